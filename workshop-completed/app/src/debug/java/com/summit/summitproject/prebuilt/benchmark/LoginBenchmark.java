@@ -0,0 +1,190 @@
+package com.summit.summitproject.prebuilt.benchmark;
+
+import androidx.annotation.NonNull;
+
+import com.summit.summitproject.prebuilt.login.BinaryResponseParser;
+import com.summit.summitproject.prebuilt.login.LoginResponseParser;
+import com.summit.summitproject.prebuilt.network.Endpoints;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Logs in over and over and reports how long each phase took, as percentiles:
+ * <ul>
+ *     <li>connect: from starting the call until it has a connection (DNS, TCP and TLS when the
+ *     connection is new, next to nothing when a pooled one is reused)</li>
+ *     <li>first byte: from then until the response headers arrive, mostly the server's time</li>
+ *     <li>transfer: from then until the whole body has arrived</li>
+ *     <li>parse: decoding the body with the app's {@link LoginResponseParser}</li>
+ *     <li>total: all of the above, end to end</li>
+ * </ul>
+ * Cold runs can first warm up a connection the way the login screen does while the user types
+ * (see {@link com.summit.summitproject.prebuilt.network.Preconnector}), to see what that saves;
+ * set a handshake delay on the local server to make new connections as slow as a real server's.
+ * <p>
+ * It also reports how big the body was. Either the JSON or the binary form of the response
+ * (see {@link BinaryResponseParser}) can be asked for, so the two can be compared.
+ * The app normally decodes the body while it streams in, so transfer and parse overlap; here the
+ * body is read in full first so the two can be told apart. The HTTP cache is bypassed, so every
+ * run downloads the whole body. Time to the summary's first frame is logged by the summary
+ * screen itself on each real login.
+ * <p>
+ * Against the local server, the size and delay of the response can be chosen (see
+ * {@link com.summit.summitproject.prebuilt.network.LocalServer}).
+ * <p>
+ * Blocks while it runs, so only use it from a background thread.
+ */
+class LoginBenchmark {
+
+    /**
+     * Runs made before measuring, so class loading and the first connection don't skew things.
+     */
+    private static final int WARM_UP_RUNS = 3;
+
+    private final OkHttpClient client;
+
+    private final Endpoints endpoints;
+
+    LoginBenchmark(OkHttpClient client, Endpoints endpoints) {
+        this.client = client;
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Logs in {@code runs} times, one after another, and returns the report. Each response holds
+     * {@code transactions} transactions and is sent after {@code delayMillis}. If {@code cold},
+     * every run starts without any pooled connections, and if {@code preconnect} as well, a
+     * connection is then warmed up before the login starts. If {@code binary}, the binary form
+     * of the response is asked for, otherwise JSON.
+     */
+    String run(int runs, int transactions, int delayMillis, boolean cold, boolean preconnect, boolean binary) throws IOException, JSONException {
+        HttpUrl url = endpoints.getLoginUrl().newBuilder()
+                .setQueryParameter("transactions", Integer.toString(transactions))
+                .setQueryParameter("pageSize", Integer.toString(transactions))
+                .setQueryParameter("delay", Integer.toString(delayMillis))
+                .build();
+
+        long[] connect = new long[runs];
+        long[] firstByte = new long[runs];
+        long[] transfer = new long[runs];
+        long[] parse = new long[runs];
+        long[] total = new long[runs];
+        long bytes = 0;
+        String contentType = null;
+        for (int i = -WARM_UP_RUNS; i < runs; i++) {
+            if (cold) {
+                client.connectionPool().evictAll();
+                if (preconnect) {
+                    // As the login screen would have done while the user was typing
+                    Request head = new Request.Builder().head().url(endpoints.getBaseUrl()).build();
+                    client.newCall(head).execute().close();
+                }
+            }
+            PhaseListener phases = new PhaseListener();
+            OkHttpClient.Builder runClientBuilder = client.newBuilder()
+                    .cache(null)
+                    .eventListener(phases);
+            // Otherwise logging every body would be measured too
+            runClientBuilder.interceptors().clear();
+            OkHttpClient runClient = runClientBuilder.build();
+            Request request = new Request.Builder()
+                    .get()
+                    .header("Accept", binary ? BinaryResponseParser.MEDIA_TYPE : "application/json")
+                    .url(url)
+                    .build();
+
+            try (Response response = runClient.newCall(request).execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    throw new IOException("Login failed with HTTP " + response.code());
+                }
+                // Pull the whole body into memory before decoding any of it
+                body.source().request(Long.MAX_VALUE);
+                long transferEnd = System.nanoTime();
+                bytes = body.source().getBuffer().size();
+                contentType = String.valueOf(body.contentType());
+                new LoginResponseParser().parse(body);
+                long parseEnd = System.nanoTime();
+
+                if (i >= 0) {
+                    connect[i] = phases.connectionAcquired - phases.callStart;
+                    firstByte[i] = phases.responseHeadersEnd - phases.connectionAcquired;
+                    transfer[i] = transferEnd - phases.responseHeadersEnd;
+                    parse[i] = parseEnd - transferEnd;
+                    total[i] = parseEnd - phases.callStart;
+                }
+            }
+        }
+
+        String kind = cold ? (preconnect ? "cold, preconnected" : "cold") : "warm";
+        return String.format(Locale.US, "%d %s logins, %d transactions, %dms server delay:%n", runs, kind, transactions, delayMillis)
+                + String.format(Locale.US, "%-10s %d bytes of %s%n", "size", bytes, contentType)
+                + summarize("connect", connect) + "\n"
+                + summarize("first byte", firstByte) + "\n"
+                + summarize("transfer", transfer) + "\n"
+                + summarize("parse", parse) + "\n"
+                + summarize("total", total);
+    }
+
+    private static String summarize(String phase, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format(Locale.US, "%-10s p50 %8.2fms  p95 %8.2fms  p99 %8.2fms",
+                phase,
+                percentile(sorted, 50) / 1e6,
+                percentile(sorted, 95) / 1e6,
+                percentile(sorted, 99) / 1e6
+        );
+    }
+
+    /**
+     * The nearest-rank percentile of {@code sorted}.
+     */
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Notes when each phase of a single call ended.
+     */
+    private static class PhaseListener extends EventListener {
+
+        volatile long callStart;
+
+        volatile long connectionAcquired;
+
+        volatile long responseHeadersEnd;
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+            connectionAcquired = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+            responseHeadersEnd = System.nanoTime();
+        }
+    }
+}
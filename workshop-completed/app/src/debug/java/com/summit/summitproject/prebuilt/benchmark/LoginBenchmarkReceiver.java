@@ -0,0 +1,68 @@
+package com.summit.summitproject.prebuilt.benchmark;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.summit.summitproject.SummitApplication;
+import com.summit.summitproject.prebuilt.network.LocalServer;
+
+/**
+ * Runs the {@link LoginBenchmark} when told to over adb, and logs the report. Only in debug
+ * builds. With the app open:
+ * <pre>
+ * adb shell am broadcast -n com.summit.summitproject/.prebuilt.benchmark.LoginBenchmarkReceiver \
+ *     --ei runs 100 --ei transactions 5000 --ei delay 0 --ez cold false --es format binary \
+ *     --ez preconnect false --ei handshakeDelay 300
+ * adb logcat -s LoginBenchmark
+ * </pre>
+ * Every extra is optional. {@code format} is {@code json} or {@code binary}; without it, both
+ * are run one after the other so their size and parse times can be compared. {@code preconnect}
+ * only applies to cold runs. {@code handshakeDelay} slows down new connections to the local
+ * server, as a real server's would be (see {@link LocalServer#setHandshakeDelay(int)}); compare
+ * cold runs with and without {@code preconnect} to see what warming up a connection saves.
+ */
+public class LoginBenchmarkReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "LoginBenchmark";
+
+    private static final int DEFAULT_RUNS = 50;
+
+    private static final int DEFAULT_TRANSACTIONS = 1000;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final int runs = intent.getIntExtra("runs", DEFAULT_RUNS);
+        final int transactions = intent.getIntExtra("transactions", DEFAULT_TRANSACTIONS);
+        final int delay = intent.getIntExtra("delay", 0);
+        final boolean cold = intent.getBooleanExtra("cold", false);
+        final String format = intent.getStringExtra("format");
+        final boolean preconnect = intent.getBooleanExtra("preconnect", false);
+        if (intent.hasExtra("handshakeDelay")) {
+            LocalServer.setHandshakeDelay(intent.getIntExtra("handshakeDelay", 0));
+        }
+        final SummitApplication app = SummitApplication.from(context);
+        if (!app.getEndpoints().isLocal()) {
+            Log.w(TAG, "Not using the local server, so the size and delay will be ignored");
+        }
+
+        // Runs for a while, so it gets its own thread rather than holding up the app's
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    LoginBenchmark benchmark = new LoginBenchmark(app.getNetworkClient().getHttpClient(), app.getEndpoints());
+                    if (format == null || format.equals("json")) {
+                        Log.i(TAG, benchmark.run(runs, transactions, delay, cold, preconnect, false));
+                    }
+                    if (format == null || format.equals("binary")) {
+                        Log.i(TAG, benchmark.run(runs, transactions, delay, cold, preconnect, true));
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Benchmark failed", e);
+                }
+            }
+        }, "login-benchmark").start();
+    }
+}
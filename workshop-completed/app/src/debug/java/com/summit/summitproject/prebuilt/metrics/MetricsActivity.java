@@ -0,0 +1,132 @@
+package com.summit.summitproject.prebuilt.metrics;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.summit.summitproject.R;
+import com.summit.summitproject.SummitApplication;
+
+import org.json.JSONException;
+
+import java.util.Locale;
+
+/**
+ * Shows the app's {@link Metrics} as a table of percentiles, and exports them as JSON. Only in
+ * debug builds. Open it over the app with:
+ * <pre>
+ * adb shell am start -n com.summit.summitproject/.prebuilt.metrics.MetricsActivity --ez export true
+ * adb logcat -s Metrics
+ * </pre>
+ * With {@code export}, the JSON (see {@link Metrics#toJson()}) is also logged straight away, for
+ * scripts to pick up. The "Export JSON" button shares it instead, e.g. to email or a file.
+ * "Reset" forgets everything recorded so far, to measure a change from a clean slate.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "Metrics";
+
+    private Metrics metrics;
+
+    private TextView table;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        setTitle(R.string.metrics_title);
+        metrics = SummitApplication.from(this).getMetrics();
+        table = findViewById(R.id.metrics_table);
+
+        findViewById(R.id.metrics_refresh).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showTable();
+            }
+        });
+        findViewById(R.id.metrics_reset).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                metrics.reset();
+                showTable();
+            }
+        });
+        findViewById(R.id.metrics_export).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                share();
+            }
+        });
+
+        if (savedInstanceState == null && getIntent().getBooleanExtra("export", false)) {
+            String json = exportJson();
+            if (json != null) {
+                Log.i(TAG, json);
+            }
+        }
+    }
+
+    /**
+     * Refreshed every time the screen comes back, e.g. after signing in again.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showTable();
+    }
+
+    private void showTable() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.US, "%-26s %6s %10s %10s %10s %10s%n", "", "n", "p50", "p90", "p99", "max"));
+        for (Metrics.Metric metric : Metrics.Metric.values()) {
+            Histogram histogram = metrics.get(metric);
+            text.append(String.format(Locale.US, "%-26s %6d %10s %10s %10s %10s%n",
+                    metric.getKey(),
+                    histogram.getCount(),
+                    format(metric, histogram.getPercentile(50)),
+                    format(metric, histogram.getPercentile(90)),
+                    format(metric, histogram.getPercentile(99)),
+                    format(metric, histogram.getMax())));
+        }
+        table.setText(text);
+    }
+
+    /**
+     * Durations in milliseconds, sizes in kilobytes.
+     */
+    private static String format(Metrics.Metric metric, long value) {
+        if (metric.isDuration()) {
+            return String.format(Locale.US, "%.1fms", value / 1_000_000.0);
+        }
+        return String.format(Locale.US, "%.1fKB", value / 1024.0);
+    }
+
+    private void share() {
+        String json = exportJson();
+        if (json == null) {
+            Toast.makeText(this, R.string.metrics_export_failed, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("application/json");
+        send.putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(send, getString(R.string.metrics_export)));
+    }
+
+    /**
+     * The metrics as indented JSON, or null if they couldn't be turned into JSON.
+     */
+    private String exportJson() {
+        try {
+            return metrics.toJson().toString(2);
+        } catch (JSONException e) {
+            Log.e(TAG, "Couldn't export the metrics", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.summit.summitproject.prebuilt.network;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Makes the {@link LocalServer} fail some or all requests when told to over adb, to see how the
+ * app copes with a flaky or dead server. Only in debug builds. For example, to time out half of
+ * all requests, and then to go back to normal:
+ * <pre>
+ * adb shell am broadcast -n com.summit.summitproject/.prebuilt.network.FaultInjectionReceiver \
+ *     --es fault stall --ei failRate 50
+ * adb shell am broadcast -n com.summit.summitproject/.prebuilt.network.FaultInjectionReceiver
+ * </pre>
+ * See {@link LocalServer} for the kinds of fault. {@code failRate} defaults to 100.
+ * <p>
+ * Session tokens can be tested the same way: {@code --ez revokeSessions true} turns down every
+ * token handed out so far, and {@code --ei sessionTtl 60} makes new ones expire after a minute.
+ * Every broadcast sets the faults afresh, so repeat {@code fault} to keep it.
+ * <p>
+ * {@code --ei handshakeDelay 300} makes every new connection take an extra 300ms to set up
+ * (see {@link LocalServer#setHandshakeDelay(int)}).
+ */
+public class FaultInjectionReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        LocalServer.setFaults(intent.getStringExtra("fault"), intent.getIntExtra("failRate", 100));
+        if (intent.getBooleanExtra("revokeSessions", false)) {
+            LocalServer.revokeSessions();
+        }
+        if (intent.hasExtra("handshakeDelay")) {
+            LocalServer.setHandshakeDelay(intent.getIntExtra("handshakeDelay", 0));
+        }
+        if (intent.hasExtra("sessionTtl")) {
+            LocalServer.setSessionTtl(intent.getIntExtra("sessionTtl", 0));
+        }
+    }
+}
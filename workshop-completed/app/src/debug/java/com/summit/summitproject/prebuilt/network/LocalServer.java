@@ -0,0 +1,443 @@
+package com.summit.summitproject.prebuilt.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.login.BinaryResponseParser;
+import com.summit.summitproject.prebuilt.login.SessionToken;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.Utf8;
+
+/**
+ * A stand-in for the API which runs inside the app, for debug builds, so logins work offline
+ * and take a known amount of time.
+ * <br>
+ * Answers the login call (any path other than {@link LocalServer#PAGE_PATH}) with a made-up user
+ * and the first page of their transactions, and {@link LocalServer#PAGE_PATH} with the pages
+ * after it. Transactions are generated from their position, so the same request always gets the
+ * same response. Query parameters on any request change what's generated:
+ * <ul>
+ *     <li>{@code transactions}: how many there are in total</li>
+ *     <li>{@code pageSize}: how many are in each page (the login response holds the first)</li>
+ *     <li>{@code delay}: how long to wait before answering, in milliseconds</li>
+ *     <li>{@code bytesPerSecond}: how fast to send the body, to simulate a slow network</li>
+ * </ul>
+ * These carry over into the {@code nextPage} links. Every response has an ETag, and a request
+ * with a matching {@code If-None-Match} gets "304 Not Modified" back. A request which
+ * {@code Accept}s {@link BinaryResponseParser#MEDIA_TYPE} gets the binary form rather than JSON.
+ * <p>
+ * Failures can be injected too, to see how the app copes with a flaky or dead server:
+ * <ul>
+ *     <li>{@code fault}: how requests fail. {@code error} answers "503 Service Unavailable",
+ *     {@code stall} never answers (so the call times out), {@code disconnect} drops the
+ *     connection without answering, and {@code garbage} sends a body that isn't valid JSON</li>
+ *     <li>{@code failRate}: the percentage of requests which fail that way (100 by default, if
+ *     {@code fault} is set)</li>
+ * </ul>
+ * As the login URL is fixed, these can also be set for every request with
+ * {@link LocalServer#setFaults(String, int)} (see {@link FaultInjectionReceiver}).
+ * <p>
+ * Every login response hands out a session token (see {@link SessionToken}) which lasts
+ * {@code sessionTtl} seconds (15 minutes by default). A login which sends one as
+ * {@code Authorization: Bearer ...} instead of credentials is turned down with "401
+ * Unauthorized" once it has expired or been revoked with {@link LocalServer#revokeSessions()}.
+ * How long tokens last can also be set for every login with
+ * {@link LocalServer#setSessionTtl(int)}.
+ * <p>
+ * Connecting to a loopback server is nearly free, unlike a real one. To see what reusing
+ * connections saves, {@link LocalServer#setHandshakeDelay(int)} makes the first request on each
+ * new connection take longer.
+ */
+public final class LocalServer {
+
+    private static final String TAG = "LocalServer";
+
+    /**
+     * The path pages after the first are served from.
+     */
+    static final String PAGE_PATH = "/transactions";
+
+    private static final int DEFAULT_TRANSACTIONS = 200;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+
+    private static final String[] MERCHANTS = {
+            "Starbucks", "Macy's", "Amazon", "Target", "Walmart", "Chipotle", "Shell", "Uber",
+            "Lyft", "Whole Foods", "Trader Joe's", "Home Depot", "Best Buy", "Apple", "Netflix",
+            "Spotify", "CVS Pharmacy", "Walgreens", "Costco", "Panera Bread", "McDonald's",
+            "Dunkin'", "Subway", "Delta Air Lines", "Marriott", "Exxon", "Kroger", "Safeway",
+            "IKEA", "Nordstrom", "Sephora", "Petco", "Lowe's", "Staples", "Chick-fil-A",
+            "Domino's", "Airbnb", "Etsy", "eBay", "Hulu"
+    };
+
+    /**
+     * The {@code fault} used when a request doesn't give one, or null for none.
+     */
+    private static volatile String defaultFault;
+
+    /**
+     * The {@code failRate} used when a request doesn't give one.
+     */
+    private static volatile int defaultFailRate = 100;
+
+    /**
+     * Session tokens handed out before this time, on the {@link System#currentTimeMillis()}
+     * clock, are turned down.
+     */
+    private static volatile long sessionsRevokedBefore;
+
+    /**
+     * The {@code sessionTtl} used when a request doesn't give one.
+     */
+    private static volatile int defaultSessionTtlSeconds = 15 * 60;
+
+    /**
+     * Extra time taken to answer the first request on each new connection, in milliseconds.
+     */
+    private static volatile int handshakeDelayMillis;
+
+    private LocalServer() {
+    }
+
+    /**
+     * Makes the session tokens handed out from now on last {@code seconds}, unless a request asks
+     * for something else.
+     */
+    public static void setSessionTtl(int seconds) {
+        defaultSessionTtlSeconds = Math.max(0, seconds);
+        Log.i(TAG, "Session tokens now last " + defaultSessionTtlSeconds + "s");
+    }
+
+    /**
+     * Makes the first request on every new connection take {@code millis} longer, to simulate
+     * the DNS lookup, TCP connect and TLS handshake of a real server far away. Requests which
+     * reuse a connection aren't slowed down.
+     */
+    public static void setHandshakeDelay(int millis) {
+        handshakeDelayMillis = Math.max(0, millis);
+        Log.i(TAG, "New connections now take an extra " + handshakeDelayMillis + "ms");
+    }
+
+    /**
+     * Turns down every session token handed out so far, as if they had all expired.
+     */
+    public static void revokeSessions() {
+        sessionsRevokedBefore = System.currentTimeMillis();
+        Log.i(TAG, "Revoked every session token handed out so far");
+    }
+
+    /**
+     * Makes {@code failRate} percent of requests fail with {@code fault} (see above), unless a
+     * request asks for something else. A null {@code fault} stops injecting failures.
+     */
+    public static void setFaults(String fault, int failRate) {
+        defaultFailRate = Math.max(0, Math.min(100, failRate));
+        defaultFault = fault;
+        Log.i(TAG, fault == null ? "Not injecting faults" : "Injecting " + fault + " into " + defaultFailRate + "% of requests");
+    }
+
+    /**
+     * Starts the server on a background thread. It listens on the loopback interface only, and
+     * runs for as long as the app's process does. Returns the base URL it's listening on, once
+     * it has started.
+     */
+    public static Future<HttpUrl> start(AppExecutors executors) {
+        return executors.io().submit(new Callable<HttpUrl>() {
+            @Override
+            public HttpUrl call() throws IOException {
+                MockWebServer server = new MockWebServer();
+                server.setDispatcher(new SyntheticDispatcher());
+                server.start(InetAddress.getLoopbackAddress(), 0);
+                HttpUrl url = server.url("/");
+                Log.i(TAG, "Serving API calls at " + url);
+                return url;
+            }
+        });
+    }
+
+    /**
+     * Generates every response from the request's URL.
+     */
+    private static class SyntheticDispatcher extends Dispatcher {
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            HttpUrl url = request.getRequestUrl();
+            if (url == null) {
+                return new MockResponse().setResponseCode(400);
+            }
+            int total = intParameter(url, "transactions", DEFAULT_TRANSACTIONS);
+            int pageSize = Math.max(1, intParameter(url, "pageSize", DEFAULT_PAGE_SIZE));
+            int delayMillis = intParameter(url, "delay", 0);
+            if (request.getSequenceNumber() == 0) {
+                // The first request on a connection also pays for setting it up
+                delayMillis += handshakeDelayMillis;
+            }
+            int bytesPerSecond = intParameter(url, "bytesPerSecond", 0);
+            boolean isPage = PAGE_PATH.equals(url.encodedPath());
+            int offset = isPage ? intParameter(url, "cursor", 0) : 0;
+            String accept = request.getHeader("Accept");
+            boolean binary = accept != null && accept.contains(BinaryResponseParser.MEDIA_TYPE);
+
+            MockResponse fault = injectFault(url, delayMillis);
+            if (fault != null) {
+                return fault;
+            }
+
+            // A login with a session token instead of credentials needs the token to be good
+            if (!isPage) {
+                String authorization = request.getHeader("Authorization");
+                if (authorization != null && !isValidSession(authorization)) {
+                    return new MockResponse()
+                            .setResponseCode(401)
+                            .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            // The body only depends on these, so they're all the ETag needs
+            String etag = "\"" + (isPage ? "page" : "login") + "-" + total + "-" + pageSize + "-" + offset + (binary ? "-bin" : "") + "\"";
+            MockResponse response = new MockResponse()
+                    .setHeader("ETag", etag)
+                    .setHeader("Cache-Control", "no-cache")
+                    .setHeader("Vary", "Accept")
+                    .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+            if (!isPage) {
+                // Every login, however it was made, gets a fresh token
+                int ttlSeconds = intParameter(url, "sessionTtl", defaultSessionTtlSeconds);
+                response.setHeader(SessionToken.HEADER_TOKEN, newSession(ttlSeconds))
+                        .setHeader(SessionToken.HEADER_EXPIRES_IN, ttlSeconds);
+            }
+            if (etag.equals(request.getHeader("If-None-Match"))) {
+                return response.setResponseCode(304);
+            }
+
+            int end = Math.min(total, offset + pageSize);
+            String nextPage = null;
+            if (end < total) {
+                nextPage = url.newBuilder()
+                        .encodedPath(PAGE_PATH)
+                        .setQueryParameter("cursor", Integer.toString(end))
+                        .build()
+                        .toString();
+            }
+            if (binary) {
+                response.setHeader("Content-Type", BinaryResponseParser.MEDIA_TYPE)
+                        .setBody(binaryBody(isPage, offset, end, nextPage));
+            } else {
+                response.setHeader("Content-Type", "application/json; charset=utf-8")
+                        .setBody(jsonBody(isPage, offset, end, nextPage));
+            }
+            if (bytesPerSecond > 0) {
+                // Sent in tenths of a second, so the throttling is smooth
+                response.throttleBody(Math.max(1, bytesPerSecond / 10), 100, TimeUnit.MILLISECONDS);
+            }
+            return response;
+        }
+
+        /**
+         * The login response (or a page, if {@code isPage}) holding transactions {@code offset}
+         * up to {@code end}, as JSON.
+         */
+        private static String jsonBody(boolean isPage, int offset, int end, String nextPage) {
+            StringBuilder json = new StringBuilder(128 + (end - offset) * 64);
+            json.append('{');
+            if (!isPage) {
+                json.append("\"name\":\"Nick C.\",\"cardLastFour\":\"7890\",");
+            }
+            json.append("\"transactions\":[");
+            for (int i = offset; i < end; i++) {
+                if (i > offset) {
+                    json.append(',');
+                }
+                appendTransaction(json, i);
+            }
+            json.append("],\"nextPage\":");
+            if (nextPage != null) {
+                json.append('"').append(nextPage).append('"');
+            } else {
+                json.append("null");
+            }
+            json.append('}');
+            return json.toString();
+        }
+
+        /**
+         * The same as {@link SyntheticDispatcher#jsonBody}, in the binary form described by
+         * {@link BinaryResponseParser}. The merchant dictionary is always every merchant there
+         * is, in the order of {@link LocalServer#MERCHANTS}.
+         */
+        private static Buffer binaryBody(boolean isPage, int offset, int end, String nextPage) {
+            Buffer body = new Buffer();
+            body.writeInt(BinaryResponseParser.MAGIC);
+            body.writeByte(isPage ? BinaryResponseParser.KIND_PAGE : BinaryResponseParser.KIND_LOGIN);
+            if (!isPage) {
+                writeString(body, "Nick C.");
+                writeString(body, "7890");
+            }
+            writeString(body, nextPage);
+            writeString(body, "USD");
+            writeVarint(body, MERCHANTS.length);
+            for (String merchant : MERCHANTS) {
+                writeString(body, merchant);
+            }
+            writeVarint(body, end - offset);
+            for (int i = offset; i < end; i++) {
+                writeString(body, "t" + i);
+            }
+            for (int i = offset; i < end; i++) {
+                writeVarint(body, merchantIndex(i));
+            }
+            for (int i = offset; i < end; i++) {
+                long cents = cents(i);
+                writeVarint(body, (cents << 1) ^ (cents >> 63));
+            }
+            return body;
+        }
+
+        private static void writeString(Buffer body, String value) {
+            if (value == null) {
+                writeVarint(body, 0);
+                return;
+            }
+            writeVarint(body, Utf8.size(value) + 1);
+            body.writeUtf8(value);
+        }
+
+        private static void writeVarint(Buffer body, long value) {
+            while ((value & ~0x7fL) != 0) {
+                body.writeByte((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            body.writeByte((int) value);
+        }
+
+        /**
+         * Hands out a session token good for {@code ttlSeconds}. Nothing is kept: the token holds
+         * when it was handed out and when it expires, so tokens still work after the app (and
+         * with it this server) has been restarted, like a real server's would.
+         */
+        private static String newSession(int ttlSeconds) {
+            long now = System.currentTimeMillis();
+            return "local." + now + "." + (now + ttlSeconds * 1000L) + "." + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+
+        /**
+         * Whether an {@code Authorization} header holds a token from
+         * {@link SyntheticDispatcher#newSession(int)} which is still good.
+         */
+        private static boolean isValidSession(String authorization) {
+            String[] parts = authorization.replaceFirst("^Bearer ", "").split("\\.");
+            if (parts.length != 4 || !parts[0].equals("local")) {
+                return false;
+            }
+            try {
+                long issuedAt = Long.parseLong(parts[1]);
+                long expiresAt = Long.parseLong(parts[2]);
+                long now = System.currentTimeMillis();
+                return issuedAt >= sessionsRevokedBefore && now < expiresAt;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Picks whether this request should fail, and returns the failure if so.
+         */
+        private static MockResponse injectFault(HttpUrl url, int delayMillis) {
+            String fault = url.queryParameter("fault");
+            if (fault == null) {
+                fault = defaultFault;
+            }
+            if (fault == null) {
+                return null;
+            }
+            int failRate = Math.min(100, intParameter(url, "failRate", defaultFailRate));
+            if (ThreadLocalRandom.current().nextInt(100) >= failRate) {
+                return null;
+            }
+
+            MockResponse response = new MockResponse()
+                    .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+            switch (fault) {
+                case "stall":
+                    return response.setSocketPolicy(SocketPolicy.NO_RESPONSE);
+                case "disconnect":
+                    return response.setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+                case "garbage":
+                    return response.setHeader("Content-Type", "application/json; charset=utf-8")
+                            .setBody("{\"transactions\":[{\"id\":");
+                default:
+                    return response.setResponseCode(503);
+            }
+        }
+
+        /**
+         * Appends the transaction at {@code index}, which is always the same for the same index.
+         */
+        private static void appendTransaction(StringBuilder json, int index) {
+            long cents = cents(index);
+            String merchant = MERCHANTS[merchantIndex(index)];
+
+            json.append("{\"id\":\"t").append(index)
+                    .append("\",\"merchant\":\"").append(merchant)
+                    .append("\",\"amount\":\"$").append(cents / 100).append('.');
+            if (cents % 100 < 10) {
+                json.append('0');
+            }
+            json.append(cents % 100).append("\"}");
+        }
+
+        /**
+         * The amount of the transaction at {@code index}, in cents.
+         */
+        private static long cents(int index) {
+            return 100 + (spread(index) & 0x7FFFFFFFL) % 20000;
+        }
+
+        /**
+         * The merchant of the transaction at {@code index}, in {@link LocalServer#MERCHANTS}.
+         */
+        private static int merchantIndex(int index) {
+            return (int) ((spread(index) >>> 33) % MERCHANTS.length);
+        }
+
+        /**
+         * Spreads the index's bits out, so neighbouring transactions look unrelated.
+         */
+        private static long spread(int index) {
+            long hash = index * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+            return hash;
+        }
+
+        private static int intParameter(HttpUrl url, String name, int defaultValue) {
+            String value = url.queryParameter(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Math.max(0, Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+}
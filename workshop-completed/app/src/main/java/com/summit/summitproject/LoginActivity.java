@@ -1,9 +1,11 @@
 package com.summit.summitproject;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.SystemClock;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
@@ -15,33 +17,43 @@ import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 
-import com.summit.summitproject.prebuilt.login.LoginListener;
-import com.summit.summitproject.prebuilt.login.LoginManager;
-import com.summit.summitproject.prebuilt.model.Transaction;
-
-import java.util.ArrayList;
+import com.summit.summitproject.prebuilt.login.LoginRepository;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.session.CredentialStore;
 
 /**
- * The first screen of our app. Takes in a username and password and interacts with the
- * {@link LoginManager} to retrieve user details. Also allows the user to check "Remember Me"
- * to locally store and recall credentials.
+ * The first screen of our app. Takes in a username and password and signs in through the
+ * {@link LoginViewModel} (which uses the {@link LoginRepository}) to retrieve user details.
+ * Also allows the user to check "Remember Me" to locally store and recall credentials.
+ * <p>
+ * The sign in itself lives in the {@link LoginViewModel}, so rotating the screen while signing
+ * in neither restarts the login nor loses its result.
+ * <p>
+ * With "Remember Me" checked, relaunching the app while the last login's session token is still
+ * valid skips this screen and goes straight back to the summary (see
+ * {@link LoginViewModel#resume}).
+ * <p>
+ * As soon as anything is typed in (or filled in), a connection to the API is warmed up in the
+ * background (see {@link com.summit.summitproject.prebuilt.network.Preconnector}), so the login
+ * call doesn't have to start from a cold connection.
+ * <p>
+ * Remembered credentials are loaded in the background (see {@link CredentialStore}), so the
+ * first frame never waits on disk. The fields are filled in once they're ready, and that's when
+ * the screen reports itself fully drawn ({@link android.app.Activity#reportFullyDrawn()}), so
+ * both the time to first frame ("Displayed" in Logcat) and to a usable form ("Fully drawn") can
+ * be measured.
  */
 public class LoginActivity extends AppCompatActivity {
 
     /**
-     * The key under which the <b>username</b> will be stored in {@link SharedPreferences}.
-     */
-    private static final String PREF_USERNAME = "USERNAME";
-
-    /**
-     * The key under which the <b>password</b> will be stored in {@link SharedPreferences}.
+     * Used to persist user credentials if "Remember Me" is checked.
      */
-    private static final String PREF_PASSWORD = "PASSWORD";
+    private CredentialStore credentialStore;
 
     /**
-     * Used to persist user credentials if "Remember Me" is checked.
+     * Runs the sign in, and survives configuration changes.
      */
-    private SharedPreferences sharedPreferences;
+    private LoginViewModel viewModel;
 
     // UI Widgets
 
@@ -62,6 +74,7 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        final long launchedAt = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_login);
 
         username = findViewById(R.id.username);
@@ -70,13 +83,53 @@ public class LoginActivity extends AppCompatActivity {
         rememberMe = findViewById(R.id.remember_me);
         progress = findViewById(R.id.progress);
 
+        credentialStore = SummitApplication.from(this).getCredentialStore();
+        viewModel = new ViewModelProvider(this, ViewModelProvider.AndroidViewModelFactory.getInstance(getApplication()))
+                .get(LoginViewModel.class);
+
         setupWidgets();
 
-        // If user credentials were previously stored, pre-fill the username / password
-        sharedPreferences = getSharedPreferences("prefs", MODE_PRIVATE);
-        rememberMe.setChecked(sharedPreferences.contains(PREF_USERNAME));
-        username.setText(sharedPreferences.getString(PREF_USERNAME, ""));
-        password.setText(sharedPreferences.getString(PREF_PASSWORD, ""));
+        // If user credentials were previously stored, pre-fill the username / password once
+        // they've loaded. After a configuration change the fields restore themselves instead.
+        final boolean restored = savedInstanceState != null;
+        credentialStore.load(new CredentialStore.Callback() {
+            @Override
+            public void onCredentialsLoaded(CredentialStore store) {
+                if (isDestroyed()) {
+                    return;
+                }
+                // Don't overwrite anything the user managed to type while loading
+                boolean untouched = username.length() == 0 && password.length() == 0;
+                if (!restored && untouched) {
+                    rememberMe.setChecked(store.hasCredentials());
+                    username.setText(store.getUsername());
+                    password.setText(store.getPassword());
+                }
+                reportFullyDrawn();
+
+                // If the last login's session token is still good, skip straight to its summary
+                if (!restored) {
+                    viewModel.resume(store, launchedAt);
+                }
+            }
+        });
+
+        viewModel.isLoading().observe(this, new Observer<Boolean>() {
+            @Override
+            public void onChanged(Boolean loading) {
+                // Don't allow user input while logging in & show the progress bar
+                setAllEnabled(!loading);
+                progress.setVisibility(loading ? View.VISIBLE : View.INVISIBLE);
+            }
+        });
+        viewModel.getEvents().observe(this, new Observer<LoginViewModel.Event>() {
+            @Override
+            public void onChanged(LoginViewModel.Event event) {
+                if (event.consume()) {
+                    handleEvent(event);
+                }
+            }
+        });
     }
 
     /**
@@ -91,16 +144,7 @@ public class LoginActivity extends AppCompatActivity {
             public void onClick(View v) {
                 String inputtedUsername = username.getText().toString();
                 String inputtedPassword = password.getText().toString();
-
-                // Don't allow user input while logging in & show the progress bar
-                setAllEnabled(false);
-                progress.setVisibility(View.VISIBLE);
-
-                // Instantiate the login manager, passing the username, password, and result listener
-                LoginManager loginManager = new LoginManager(inputtedUsername, inputtedPassword, loginListener);
-
-                // Kick off the login network call
-                loginManager.execute();
+                viewModel.signIn(inputtedUsername, inputtedPassword, rememberMe.isChecked());
             }
         });
 
@@ -117,13 +161,29 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     /**
-     * Save the username nad password to local storage.
+     * Does what the {@link LoginViewModel} asked for.
+     */
+    private void handleEvent(LoginViewModel.Event event) {
+        switch (event.getType()) {
+            case LoginViewModel.Event.OPEN_SUMMARY:
+                openSummary(event.getSessionKey(), event.getSignInStartedAt(), event.isResumed());
+                break;
+            case LoginViewModel.Event.ERROR:
+                Toast.makeText(this, event.getMessage(), Toast.LENGTH_LONG).show();
+                break;
+        }
+    }
+
+    /**
+     * Starts the SummaryActivity, passing only the session key in the launch intent.
      */
-    private void saveUserCredentials() {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(PREF_USERNAME, username.getText().toString());
-        editor.putString(PREF_PASSWORD, password.getText().toString());
-        editor.apply();
+    private void openSummary(String sessionKey, long signInStartedAt, boolean resumed) {
+        Intent intent = new Intent(this, SummaryActivity.class);
+        intent.putExtra(SummaryActivity.KEY_SESSION, sessionKey);
+        intent.putExtra(SummaryActivity.KEY_SIGN_IN_STARTED, signInStartedAt);
+        intent.putExtra(SummaryActivity.KEY_RESUMED, resumed);
+        intent.putExtra(SummaryActivity.KEY_OPENED_AT, Metrics.now());
+        startActivity(intent);
     }
 
     /**
@@ -132,7 +192,7 @@ public class LoginActivity extends AppCompatActivity {
     private void clearUserCredentials() {
         username.setText("");
         password.setText("");
-        sharedPreferences.edit().clear().apply();
+        credentialStore.clear();
     }
 
     /**
@@ -148,55 +208,32 @@ public class LoginActivity extends AppCompatActivity {
 
         @Override
         public void afterTextChanged(Editable s) {
-            // Enable the "Sign In" button if something has been inputted in both the username
-            // and password.
-            String usernameText = username.getText().toString().trim();
-            String passwordText = password.getText().toString().trim();
-            signIn.setEnabled(usernameText.length() > 0 && passwordText.length() > 0);
-        }
-    };
+            updateSignInEnabled();
 
-    private LoginListener loginListener = new LoginListener() {
-        @Override
-        public void onLoginSuccess(String name, String cardNum, ArrayList<Transaction> transactions) {
-            // Allow user input (e.g. if the user returns to this screen) and
-            // hide the progress bar again
-            setAllEnabled(true);
-            progress.setVisibility(View.INVISIBLE);
-
-            // Store user credentials in private storage if "Remember Me" was checked
-            if (rememberMe.isChecked()) {
-                saveUserCredentials();
+            // A sign in is likely on its way, so get a connection ready for it. Only the first
+            // call does anything.
+            if (s.length() > 0) {
+                SummitApplication.from(LoginActivity.this).getPreconnector().preconnect();
             }
-
-            // Start the SummaryActivity and also pass the user's name,
-            // card number, and list of transactions in the launch intent.
-            Intent intent = new Intent(LoginActivity.this, SummaryActivity.class);
-            intent.putExtra(SummaryActivity.KEY_NAME, name);
-            intent.putExtra(SummaryActivity.KEY_CARD_NUM, cardNum);
-            intent.putExtra(SummaryActivity.KEY_TRANSACTIONS, transactions);
-            startActivity(intent);
-
-        }
-
-        @Override
-        public void onLoginError(Exception exception) {
-            // Allow user input (eg. if the user returns to this screen) and
-            // hide the progress bar again
-            setAllEnabled(true);
-            progress.setVisibility(View.INVISIBLE);
-
-            Toast.makeText(LoginActivity.this, "Failed to login", Toast.LENGTH_LONG).show();
         }
     };
 
+    /**
+     * Enable the "Sign In" button if something has been inputted in both the username and
+     * password.
+     */
+    private void updateSignInEnabled() {
+        String usernameText = username.getText().toString().trim();
+        String passwordText = password.getText().toString().trim();
+        signIn.setEnabled(username.isEnabled() && usernameText.length() > 0 && passwordText.length() > 0);
+    }
+
     /**
      * Enables or disables user interactions with the text input widgets & sign in button.
      */
     private void setAllEnabled(boolean enabled) {
         username.setEnabled(enabled);
         password.setEnabled(enabled);
-        signIn.setEnabled(enabled);
+        updateSignInEnabled();
     }
 }
-
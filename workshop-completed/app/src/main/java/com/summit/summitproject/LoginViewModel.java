@@ -0,0 +1,440 @@
+package com.summit.summitproject;
+
+import android.app.Application;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.summit.summitproject.prebuilt.login.LoginException;
+import com.summit.summitproject.prebuilt.login.LoginListener;
+import com.summit.summitproject.prebuilt.login.LoginRepository;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+import com.summit.summitproject.prebuilt.login.SessionToken;
+import com.summit.summitproject.prebuilt.session.CredentialStore;
+import com.summit.summitproject.prebuilt.session.LoginCache;
+import com.summit.summitproject.prebuilt.session.SessionRepository;
+
+/**
+ * Runs the sign in for the {@link LoginActivity}, and outlives it across configuration changes
+ * such as rotation: a login started before the screen was recreated carries on, and its result
+ * goes to the new screen rather than the old one.
+ * <br>
+ * Signing in starts the login (through the {@link LoginRepository}, so identical logins share
+ * one network call) straight away, and meanwhile checks the {@link LoginCache} for a summary
+ * from an earlier login. If the cache answers first, its summary is shown and the login
+ * refreshes it in the background; if the login finishes first, the cached summary is skipped.
+ * <br>
+ * With "Remember Me" checked, the {@link SessionToken} from the last login is kept too. If it's
+ * still valid when the app is next launched, {@link LoginViewModel#resume} goes straight back to
+ * the summary that login fetched, without waiting for the network at all, and refreshes it in
+ * the background using the token.
+ * <p>
+ * The screen watches {@link LoginViewModel#isLoading()} and handles each
+ * {@link LoginViewModel#getEvents() event} once. Must be used from the main thread.
+ */
+public class LoginViewModel extends AndroidViewModel implements LoginListener {
+
+    private final MutableLiveData<Boolean> loading = new MutableLiveData<>(false);
+
+    private final MutableLiveData<Event> events = new MutableLiveData<>();
+
+    /**
+     * The login currently in progress, if any.
+     */
+    private LoginRepository.Subscription login;
+
+    /**
+     * Bumped by every sign in, so a cache lookup for an earlier one is ignored.
+     */
+    private int signInGeneration;
+
+    /**
+     * The credentials the current login was started with, so that its result can be cached.
+     */
+    private String loginUsername;
+
+    private String loginPassword;
+
+    private boolean rememberMe;
+
+    /**
+     * The cached result for the current login's credentials, if there was one.
+     */
+    private LoginResult cachedResult;
+
+    /**
+     * Set while a cached summary is being shown and the login is still fetching fresh data for
+     * it: the key of the session to update once the fresh data arrives.
+     */
+    private String refreshingSessionKey;
+
+    /**
+     * Set while the current sign in is still waiting for the {@link LoginCache}.
+     */
+    private boolean lookingUpCache;
+
+    /**
+     * A login error which arrived while {@link LoginViewModel#lookingUpCache}, held back until
+     * it's known whether there's a cached summary to show instead.
+     */
+    private LoginException pendingError;
+
+    /**
+     * When the user last tapped "Sign In", on the {@link SystemClock#elapsedRealtime()} clock.
+     */
+    private long signInStartedAt;
+
+    /**
+     * Set while the current login uses a session token rather than the credentials.
+     */
+    private boolean resumingWithToken;
+
+    /**
+     * Set once {@link LoginViewModel#resume} has been called, so it only ever happens once.
+     */
+    private boolean resumeAttempted;
+
+    public LoginViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    /**
+     * Whether a sign in is in progress and the screen should wait for it.
+     */
+    public LiveData<Boolean> isLoading() {
+        return loading;
+    }
+
+    /**
+     * Things the screen needs to do once: open the summary or show an error.
+     */
+    public LiveData<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Signs in, and remembers the credentials afterwards if {@code rememberMe} is set.
+     */
+    public void signIn(final String username, final String password, boolean rememberMe) {
+        signInStartedAt = SystemClock.elapsedRealtime();
+        this.rememberMe = rememberMe;
+        loading.setValue(true);
+
+        SummitApplication app = getApplication();
+
+        // The summary screen is likely next, so get its rows inflated while we wait
+        app.getTransactionViewPool().warm();
+
+        final int generation = ++signInGeneration;
+        refreshingSessionKey = null;
+        lookingUpCache = true;
+        pendingError = null;
+        startLogin(username, password, null, null);
+        app.getLoginCache().get(username, password, new LoginCache.Callback() {
+            @Override
+            public void onCacheLoaded(LoginResult cached) {
+                if (generation != signInGeneration) {
+                    return;
+                }
+                lookingUpCache = false;
+                LoginException error = pendingError;
+                pendingError = null;
+                if (login == null && error == null) {
+                    // The fresh result already landed, so the cached one is out of date
+                    return;
+                }
+
+                if (cached != null) {
+                    cachedResult = cached;
+                    if (login != null) {
+                        // Lets the login hand this back if the server says nothing changed
+                        login.setCachedResult(cached);
+                    }
+                    loading.setValue(false);
+                    refreshingSessionKey = openSummary(cached);
+                }
+                if (error != null) {
+                    handleLoginError(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Goes straight to the summary from the last login if "Remember Me" kept a session token
+     * which is still valid and that session can still be found, then refreshes it in the
+     * background with the token. Otherwise does nothing, and the user signs in as usual.
+     * <br>
+     * Call when the login screen is first shown, once {@code store} has loaded;
+     * {@code launchedAt} is when that was, on the {@link SystemClock#elapsedRealtime()} clock.
+     * Only the first call does anything.
+     */
+    public void resume(final CredentialStore store, final long launchedAt) {
+        if (resumeAttempted) {
+            return;
+        }
+        resumeAttempted = true;
+
+        final SessionToken token = store.getSessionToken();
+        final String sessionKey = store.getSessionKey();
+        if (token == null || sessionKey == null || !store.hasCredentials()) {
+            return;
+        }
+        if (!token.isValid()) {
+            store.clearSession();
+            return;
+        }
+
+        SummitApplication app = getApplication();
+        final int generation = ++signInGeneration;
+        lookingUpCache = false;
+        pendingError = null;
+        app.getSessionRepository().get(sessionKey, new SessionRepository.Callback() {
+            @Override
+            public void onSessionLoaded(LoginResult result) {
+                // Skip it if the user signed in some other way meanwhile, or the session's gone
+                if (generation != signInGeneration || result == null) {
+                    return;
+                }
+                signInStartedAt = launchedAt;
+                rememberMe = true;
+                refreshingSessionKey = sessionKey;
+                events.setValue(Event.openSummary(sessionKey, launchedAt, true));
+                startLogin(store.getUsername(), store.getPassword(), token.getToken(), result);
+            }
+        });
+    }
+
+    /**
+     * Starts the login network call, with {@code sessionToken} instead of the credentials if it's
+     * set. If the server says nothing has changed since {@code cached} was fetched (or a cached
+     * result handed to it later), it is handed straight back rather than decoding the response
+     * again.
+     */
+    private void startLogin(String username, String password, String sessionToken, LoginResult cached) {
+        LoginRepository.Subscription previous = login;
+        loginUsername = username;
+        loginPassword = password;
+        cachedResult = cached;
+        resumingWithToken = sessionToken != null;
+
+        SummitApplication app = getApplication();
+        if (sessionToken != null) {
+            login = app.getLoginRepository().resume(sessionToken, cached, this);
+        } else {
+            login = app.getLoginRepository().login(username, password, cached, this);
+        }
+
+        // Only one login at a time, so a late result from an earlier one can't get mixed up.
+        // Cancelled after joining the new one: if they're the same login, cancelling first would
+        // have stopped the very call we wanted to join, as nobody else was waiting for it.
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    @Override
+    public void onLoginSuccess(LoginResult result, SessionToken token) {
+        login = null;
+        loading.setValue(false);
+
+        // Store user credentials in private storage if "Remember Me" was checked
+        SummitApplication app = getApplication();
+        if (rememberMe) {
+            app.getCredentialStore().save(loginUsername, loginPassword);
+        }
+
+        String sessionKey = refreshingSessionKey;
+        refreshingSessionKey = null;
+        // If the server says nothing changed, the cached summary is already up to date
+        if (result != cachedResult) {
+            // Remember this result so the summary can be shown instantly on the next login
+            app.getLoginCache().put(loginUsername, loginPassword, result);
+            if (sessionKey != null) {
+                // A cached summary is already on screen, so just bring it up to date
+                app.getSessionRepository().update(sessionKey, result);
+            }
+        }
+        if (sessionKey == null) {
+            sessionKey = openSummary(result);
+        }
+
+        // Remember the token too, so the next launch can go straight to this session
+        if (rememberMe && token != null) {
+            app.getCredentialStore().saveSession(token, sessionKey);
+        }
+    }
+
+    @Override
+    public void onLoginError(LoginException exception) {
+        login = null;
+        if (lookingUpCache) {
+            // A cached summary may yet turn up, and would be better than an error
+            pendingError = exception;
+            return;
+        }
+        handleLoginError(exception);
+    }
+
+    /**
+     * Tells the user the login failed: on the summary, if a cached one is showing, or else on
+     * the login screen.
+     */
+    private void handleLoginError(LoginException exception) {
+        loading.setValue(false);
+
+        SummitApplication app = getApplication();
+        if (resumingWithToken && exception.getReason() == LoginException.Reason.UNAUTHORIZED) {
+            // The server no longer accepts the token, so don't go straight in with it next time
+            app.getCredentialStore().clearSession();
+        }
+
+        String sessionKey = refreshingSessionKey;
+        if (sessionKey != null) {
+            // The cached summary is on screen rather than the login screen, so that's where the
+            // user needs to hear it may be out of date
+            refreshingSessionKey = null;
+            app.getSessionRepository().refreshFailed(sessionKey);
+            return;
+        }
+        events.setValue(Event.error(messageFor(exception.getReason())));
+    }
+
+    /**
+     * What to tell the user when a login failed for {@code reason}.
+     */
+    private static int messageFor(LoginException.Reason reason) {
+        switch (reason) {
+            case NETWORK:
+                return R.string.login_failed_network;
+            case TIMEOUT:
+                return R.string.login_failed_timeout;
+            case SERVER:
+                return R.string.login_failed_server;
+            case UNAUTHORIZED:
+                return R.string.login_failed_unauthorized;
+            case UNAVAILABLE:
+                return R.string.login_failed_unavailable;
+            case BUSY:
+                return R.string.login_failed_busy;
+            default:
+                return R.string.login_failed;
+        }
+    }
+
+    /**
+     * Holds on to the user's details in the session repository, then tells the screen to open
+     * the summary with the session key. Returns the session key.
+     */
+    private String openSummary(LoginResult result) {
+        SummitApplication app = getApplication();
+        String sessionKey = app.getSessionRepository().put(result);
+        events.setValue(Event.openSummary(sessionKey, signInStartedAt, false));
+        return sessionKey;
+    }
+
+    /**
+     * The screen is gone for good, so nobody is waiting for the login any more.
+     */
+    @Override
+    protected void onCleared() {
+        signInGeneration++;
+        if (login != null) {
+            login.cancel();
+            login = null;
+        }
+    }
+
+    /**
+     * Something the screen should do once. Observers see the latest event again after a
+     * configuration change, so check {@link Event#consume()} first.
+     */
+    public static class Event {
+
+        /**
+         * Open the summary for {@link Event#getSessionKey()}.
+         */
+        public static final int OPEN_SUMMARY = 0;
+
+        /**
+         * Show {@link Event#getMessage()} as an error.
+         */
+        public static final int ERROR = 1;
+
+        private final int type;
+
+        private final String sessionKey;
+
+        private final long signInStartedAt;
+
+        private final boolean resumed;
+
+        private final int message;
+
+        private boolean consumed;
+
+        private Event(int type, String sessionKey, long signInStartedAt, boolean resumed, int message) {
+            this.type = type;
+            this.sessionKey = sessionKey;
+            this.signInStartedAt = signInStartedAt;
+            this.resumed = resumed;
+            this.message = message;
+        }
+
+        static Event openSummary(String sessionKey, long signInStartedAt, boolean resumed) {
+            return new Event(OPEN_SUMMARY, sessionKey, signInStartedAt, resumed, 0);
+        }
+
+        static Event error(int message) {
+            return new Event(ERROR, null, 0, false, message);
+        }
+
+        /**
+         * Returns true the first time it's called, and false after that.
+         */
+        public boolean consume() {
+            if (consumed) {
+                return false;
+            }
+            consumed = true;
+            return true;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * The session to open, for {@link Event#OPEN_SUMMARY}.
+         */
+        public String getSessionKey() {
+            return sessionKey;
+        }
+
+        /**
+         * When the user tapped "Sign In" (or the app was launched, if {@link Event#isResumed()}),
+         * for {@link Event#OPEN_SUMMARY}.
+         */
+        public long getSignInStartedAt() {
+            return signInStartedAt;
+        }
+
+        /**
+         * Whether the summary is being reopened with a session token rather than after signing
+         * in, for {@link Event#OPEN_SUMMARY}.
+         */
+        public boolean isResumed() {
+            return resumed;
+        }
+
+        /**
+         * The string resource to show, for {@link Event#ERROR}.
+         */
+        public int getMessage() {
+            return message;
+        }
+    }
+}
@@ -2,52 +2,120 @@ package com.summit.summitproject;
 
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.summit.summitproject.prebuilt.analytics.SpendingAnalyzer;
+import com.summit.summitproject.prebuilt.analytics.SpendingSummary;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.model.StickyHeaderDecoration;
 import com.summit.summitproject.prebuilt.model.Transaction;
 import com.summit.summitproject.prebuilt.model.TransactionAdapter;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.model.TransactionSections;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+import com.summit.summitproject.prebuilt.model.TransactionViewPool;
+import com.summit.summitproject.prebuilt.paging.TransactionPage;
+import com.summit.summitproject.prebuilt.paging.TransactionPager;
+import com.summit.summitproject.prebuilt.search.TransactionOrder;
+import com.summit.summitproject.prebuilt.search.TransactionSearch;
+import com.summit.summitproject.prebuilt.session.SessionRepository;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Displays a user's name, the last 4 numbers of a credit card, and their recent transactions
  * for that card.
  * <br>
- * Expects the following pieces of data to be supplied via the {@link android.content.Intent}:
+ * Expects the key of a session in the {@link SessionRepository} to be supplied via the
+ * {@link android.content.Intent} -- via {@link SummaryActivity#KEY_SESSION}. The session holds:
  * <ul>
- *     <li>User's name -- via {@link SummaryActivity#KEY_NAME}</li>
- *     <li>The last four numbers of a credit card -- via {@link SummaryActivity#KEY_CARD_NUM}</li>
- *     <li>Recent transactions for the credit card -- via {@link SummaryActivity#KEY_TRANSACTIONS}</li>
+ *     <li>User's name</li>
+ *     <li>The last four numbers of a credit card</li>
+ *     <li>The first page of recent transactions for the credit card</li>
+ *     <li>Optionally, a link to the next page of transactions</li>
  * </ul>
+ * Later pages are loaded by a {@link TransactionPager} as the user scrolls towards the end of
+ * the list. A header shows the total spend and top merchants, worked out by a
+ * {@link SpendingAnalyzer} and kept up to date as pages arrive; tapping it shows the spend for
+ * every merchant. Typing in the search box narrows the list (and the header) down to merchants
+ * whose name contains the text, using a {@link TransactionSearch}, and the menu sorts it or groups
+ * it into a section per merchant.
+ * <p>
+ * The session may be showing cached data while fresh data is fetched in the background; the
+ * screen is updated if the session changes while it's open, and says so if fetching it failed.
+ * <p>
+ * How long it took to get here from the login screen, to fill in the screen and to draw the
+ * first frame are recorded in the app's {@link Metrics}.
  */
-public class SummaryActivity extends AppCompatActivity implements TransactionAdapter.TransactionClickedListener {
+public class SummaryActivity extends AppCompatActivity implements TransactionAdapter.TransactionClickedListener, TransactionPager.Listener, SessionRepository.Listener, SpendingAnalyzer.Listener, TransactionSearch.Listener {
 
     /**
-     * Used to extract the user's name from the launch {@link android.content.Intent}
+     * Used to extract the session key from the launch {@link android.content.Intent}
      */
-    public static final String KEY_NAME = "NAME";
+    public static final String KEY_SESSION = "SESSION";
 
     /**
-     * Used to extract a credit card last 4 from the launch {@link android.content.Intent}
+     * Used to extract when the user tapped "Sign In" (on the
+     * {@link SystemClock#elapsedRealtime()} clock) from the launch {@link android.content.Intent},
+     * to log how long it took to get the transactions on screen. Optional.
      */
-    public static final String KEY_CARD_NUM = "CARD_NUM";
+    public static final String KEY_SIGN_IN_STARTED = "SIGN_IN_STARTED";
 
     /**
-     * Used to extract a credit card's transaction from the launch {@link android.content.Intent}
+     * Used to extract whether this session was reopened with a session token on launch, rather
+     * than after signing in, from the launch {@link android.content.Intent}. In that case
+     * {@link SummaryActivity#KEY_SIGN_IN_STARTED} is when the app was launched instead. Optional.
      */
-    public static final String KEY_TRANSACTIONS = "TRANSACTIONS";
+    public static final String KEY_RESUMED = "RESUMED";
 
-    // Data passed in via the Intent
+    /**
+     * Used to extract when the login screen started this one (on the {@link Metrics#now()}
+     * clock) from the launch {@link android.content.Intent}, to record how long the handoff
+     * between the screens took. Optional.
+     */
+    public static final String KEY_OPENED_AT = "OPENED_AT";
 
-    private String name;
+    private static final String TAG = "SummaryActivity";
+
+    /**
+     * How close (in rows) the user can scroll to the end of the list before the next page
+     * starts loading.
+     */
+    private static final int PREFETCH_DISTANCE = 20;
+
+    /**
+     * How many of the biggest merchants are listed in the spending header.
+     */
+    private static final int TOP_MERCHANTS = 3;
 
-    private String cardNum;
+    /**
+     * The key of the session being shown.
+     */
+    private String sessionKey;
 
-    private List<Transaction> transactions;
+    /**
+     * Whether this screen was recreated (e.g. after a rotation) rather than opened, in which case
+     * the handoff and first frame have already been measured.
+     */
+    private boolean recreated;
 
     // UI Widgets
 
@@ -55,13 +123,71 @@ public class SummaryActivity extends AppCompatActivity implements TransactionAda
 
     private TextView subtitle;
 
+    private TextView spending;
+
+    private EditText searchBox;
+
     private RecyclerView transactionsList;
 
     /**
      * Takes the transactions data and instructs the transactionsList on how they should be
      * rendered.
      */
-    private RecyclerView.Adapter transactionsAdapter;
+    private TransactionAdapter transactionsAdapter;
+
+    /**
+     * Every transaction loaded so far, whether or not it matches the search. The adapter shows
+     * snapshots of it (or of the search results), so merchant ids stay the same in all of them.
+     */
+    private final TransactionStore allTransactions = new TransactionStore();
+
+    /**
+     * Narrows the list down to the merchants being searched for.
+     */
+    private TransactionSearch search;
+
+    /**
+     * Loads further pages of transactions on demand.
+     */
+    private TransactionPager pager;
+
+    /**
+     * Works out the spending header as the list changes.
+     */
+    private SpendingAnalyzer spendingAnalyzer;
+
+    /**
+     * The latest spending summary, or null until the first one is ready.
+     */
+    private SpendingSummary spendingSummary;
+
+    /**
+     * The rows the spending header should be worked out for next, or null if it's up to date.
+     */
+    private TransactionList pendingSpending;
+
+    /**
+     * Whether {@link SummaryActivity#pendingSpending} needs adding up from scratch, rather than
+     * only the rows appended since last time.
+     */
+    private boolean pendingSpendingFromScratch;
+
+    /**
+     * Works out the spending header for {@link SummaryActivity#pendingSpending}. Posted for the
+     * next frame, so any number of changes within one frame cost a single pass.
+     */
+    private final Runnable analyzeSpending = new Runnable() {
+        @Override
+        public void run() {
+            TransactionList transactions = pendingSpending;
+            pendingSpending = null;
+            if (pendingSpendingFromScratch) {
+                spendingAnalyzer.analyze(transactions);
+            } else {
+                spendingAnalyzer.analyzeAppended(transactions);
+            }
+        }
+    };
 
     /**
      * Called the first time an Activity is created, but before any UI is shown to the user.
@@ -70,24 +196,346 @@ public class SummaryActivity extends AppCompatActivity implements TransactionAda
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        recreated = savedInstanceState != null;
+        long openedAt = getIntent().getLongExtra(KEY_OPENED_AT, 0);
+        if (openedAt != 0 && !recreated) {
+            SummitApplication.from(this).getMetrics().record(Metrics.Metric.HANDOFF, Metrics.now() - openedAt);
+        }
         setContentView(R.layout.activity_summary);
 
-        name = getIntent().getStringExtra(KEY_NAME);
-        cardNum = getIntent().getStringExtra(KEY_CARD_NUM);
-        transactions = (List<Transaction>) getIntent().getSerializableExtra(KEY_TRANSACTIONS);
-
         title = findViewById(R.id.summary_title);
         subtitle = findViewById(R.id.summary_subtitle);
+        spending = findViewById(R.id.summary_spending);
+        spending.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showSpendingBreakdown();
+            }
+        });
         transactionsList = findViewById(R.id.transaction_list);
+        searchBox = findViewById(R.id.transaction_search);
+        search = new TransactionSearch(SummitApplication.from(this).getExecutors(), this);
+        searchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search.setQuery(s.toString());
+            }
+        });
+
+        // Look up the user's details. This is usually instant, but may need a trip to disk if
+        // the app's process was restarted since the user logged in.
+        sessionKey = getIntent().getStringExtra(KEY_SESSION);
+        SessionRepository sessions = SummitApplication.from(this).getSessionRepository();
+        sessions.addListener(this);
+        sessions.getRefreshFailures().observe(this, new Observer<SessionRepository.RefreshFailure>() {
+            @Override
+            public void onChanged(SessionRepository.RefreshFailure failure) {
+                // The fresh data couldn't be fetched, so let the user know this may be out of date
+                if (failure.getKey().equals(sessionKey) && failure.consume()) {
+                    Toast.makeText(SummaryActivity.this, R.string.refresh_failed, Toast.LENGTH_LONG).show();
+                }
+            }
+        });
+        sessions.get(sessionKey, new SessionRepository.Callback() {
+            @Override
+            public void onSessionLoaded(LoginResult result) {
+                if (isDestroyed()) {
+                    return;
+                }
+                if (result == null) {
+                    // The session is gone, so send the user back to log in again
+                    finish();
+                    return;
+                }
+                showSession(result);
+            }
+        });
+    }
+
+    /**
+     * Fills in the screen with the user's details, timing how long that takes.
+     */
+    private void showSession(LoginResult result) {
+        Metrics metrics = SummitApplication.from(this).getMetrics();
+        long startedAt = metrics.begin(Metrics.Metric.MODEL_BUILD);
+        try {
+            bindSession(result);
+        } finally {
+            metrics.end(Metrics.Metric.MODEL_BUILD, startedAt);
+        }
+    }
+
+    private void bindSession(LoginResult result) {
+        SummitApplication app = SummitApplication.from(this);
 
         // Substitute in the user's name and card last 4 in the text widgets
-        title.setText(getString(R.string.summary_title, name));
-        subtitle.setText(getString(R.string.summary_subtitle, cardNum));
+        title.setText(getString(R.string.summary_title, result.getName()));
+        subtitle.setText(getString(R.string.summary_subtitle, result.getCardNum()));
+
+        // Keep every row in one store, so merchant ids line up between the whole list and the
+        // search results
+        allTransactions.clear();
+        allTransactions.addAll(result.getTransactions());
+        TransactionList snapshot = allTransactions.snapshot();
 
-        // Prepare the list data
-        transactionsAdapter = new TransactionAdapter(transactions, this);
-        transactionsList.setLayoutManager(new LinearLayoutManager(this));
-        transactionsList.setAdapter(transactionsAdapter);
+        if (transactionsAdapter == null) {
+            // Prepare the list data. Rows come from the shared pool, which was usually filled in
+            // the background while the user was logging in, so none need inflating here.
+            TransactionViewPool viewPool = app.getTransactionViewPool();
+            transactionsAdapter = new TransactionAdapter(snapshot, app.getExecutors(), viewPool, this);
+            final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+            transactionsList.setLayoutManager(layoutManager);
+            transactionsList.setAdapter(transactionsAdapter);
+            // After the adapter: a pool given to a list without one is emptied as soon as the
+            // adapter is set, throwing the warmed rows away
+            transactionsList.setRecycledViewPool(viewPool.getPool());
+            transactionsList.addItemDecoration(new StickyHeaderDecoration(transactionsAdapter));
+            logFirstFrame();
+
+            spendingAnalyzer = new SpendingAnalyzer(app.getExecutors(), this);
+
+            // Load the next page once the user scrolls close to the end of what's loaded so far
+            transactionsList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                    int lastVisible = layoutManager.findLastVisibleItemPosition();
+                    if (lastVisible >= transactionsAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                        pager.loadNextPage();
+                    }
+                }
+            });
+        }
+        // Shows the rows matching whatever is being searched for
+        search.setTransactions(snapshot);
+
+        // Further pages follow on from the first page we were just given
+        if (pager != null) {
+            pager.cancel();
+        }
+        // Pages in another currency are turned away before they get here, since they can't be
+        // added to the same list
+        pager = new TransactionPager(
+                app.getNetworkClient(),
+                app.getExecutors(),
+                result.getNextPage(),
+                result.getTransactions().size() > 0 ? result.getTransactions().getCurrency() : null,
+                this
+        );
+    }
+
+    /**
+     * Logs and records how long it took from tapping "Sign In" (or launching the app, if the
+     * session was resumed) until the first frame with transactions in it is about to be drawn.
+     */
+    private void logFirstFrame() {
+        final long signInStarted = getIntent().getLongExtra(KEY_SIGN_IN_STARTED, 0);
+        if (signInStarted == 0 || recreated) {
+            return;
+        }
+        // Logged separately, so the time to the summary with and without a session token can be
+        // compared
+        final boolean resumed = getIntent().getBooleanExtra(KEY_RESUMED, false);
+        final String from = resumed ? "Launch (resumed session)" : "Sign in";
+        final Metrics metrics = SummitApplication.from(this).getMetrics();
+        transactionsList.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                transactionsList.getViewTreeObserver().removeOnPreDrawListener(this);
+                long elapsed = SystemClock.elapsedRealtime() - signInStarted;
+                Log.d(TAG, from + " to first frame: " + elapsed + "ms");
+                metrics.record(resumed ? Metrics.Metric.RESUMED_FIRST_FRAME : Metrics.Metric.FIRST_FRAME, TimeUnit.MILLISECONDS.toNanos(elapsed));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Called when fresh data arrives for a session, e.g. after the cached summary was shown
+     * while the login refreshed it in the background.
+     */
+    @Override
+    public void onSessionUpdated(String key, LoginResult result) {
+        if (key.equals(sessionKey)) {
+            showSession(result);
+        }
+    }
+
+    /**
+     * Called when the Activity is going away for good. Stops listening for session updates,
+     * stops any page that is still loading and hands the rows back to the shared pool.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        SummitApplication.from(this).getSessionRepository().removeListener(this);
+        // Swapped rather than set, so the rows go back to the pool for the next screen instead
+        // of the pool being emptied along with the adapter
+        transactionsList.swapAdapter(null, true);
+        transactionsList.removeCallbacks(analyzeSpending);
+        search.cancel();
+        if (spendingAnalyzer != null) {
+            spendingAnalyzer.cancel();
+        }
+        if (pager != null) {
+            pager.cancel();
+        }
+    }
+
+    /**
+     * Called when the next page of transactions has been loaded, to add it to the list (if it
+     * matches the search). The {@link TransactionPager} has already checked it's in the same
+     * currency as the rows loaded before it.
+     */
+    @Override
+    public void onPageLoaded(TransactionPage page) {
+        allTransactions.addAll(page.getTransactions());
+        search.appendTransactions(allTransactions.snapshot());
+    }
+
+    /**
+     * Called when the transactions matching the search are ready, or more have been loaded.
+     */
+    @Override
+    public void onSearchResults(TransactionList results, TransactionSections sections, boolean appended, boolean sameRows) {
+        if (appended) {
+            transactionsAdapter.appendTransactions(results);
+        } else {
+            // Only the rows which changed are updated, so the user keeps their place in the list
+            transactionsAdapter.submitTransactions(results, sections);
+        }
+        // Keep the spending header in step with the rows shown. Reordering them changes nothing;
+        // appended pages are only added to the running totals
+        if (!sameRows) {
+            updateSpending(results, !appended);
+        }
+    }
+
+    /**
+     * Adds the menu for picking how the list is ordered.
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_summary, menu);
+        return true;
+    }
+
+    /**
+     * Ticks the order the list is currently in.
+     */
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        int checked;
+        switch (search.getOrder()) {
+            case AMOUNT:
+                checked = R.id.order_amount;
+                break;
+            case MERCHANT:
+                checked = R.id.order_merchant;
+                break;
+            case GROUPED_BY_MERCHANT:
+                checked = R.id.order_grouped;
+                break;
+            default:
+                checked = R.id.order_recent;
+                break;
+        }
+        menu.findItem(checked).setChecked(true);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    /**
+     * Called when a menu item is picked. Re-sorting happens in the background, so the list
+     * stays responsive however long it is.
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.order_recent) {
+            search.setOrder(TransactionOrder.RECENT);
+        } else if (id == R.id.order_amount) {
+            search.setOrder(TransactionOrder.AMOUNT);
+        } else if (id == R.id.order_merchant) {
+            search.setOrder(TransactionOrder.MERCHANT);
+        } else if (id == R.id.order_grouped) {
+            search.setOrder(TransactionOrder.GROUPED_BY_MERCHANT);
+        } else {
+            return super.onOptionsItemSelected(item);
+        }
+        item.setChecked(true);
+        return true;
+    }
+
+    /**
+     * Called when loading the next page failed. It is retried the next time the user scrolls.
+     */
+    @Override
+    public void onPageError(Exception exception) {
+        Toast.makeText(this, R.string.transactions_page_error, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Works out the spending header for {@code transactions} at the next frame, along with any
+     * other changes made before then.
+     */
+    private void updateSpending(TransactionList transactions, boolean fromScratch) {
+        if (pendingSpending == null) {
+            pendingSpendingFromScratch = fromScratch;
+            transactionsList.postOnAnimation(analyzeSpending);
+        } else {
+            pendingSpendingFromScratch |= fromScratch;
+        }
+        pendingSpending = transactions;
+    }
+
+    /**
+     * Called when the spending summary has been worked out for the transactions loaded so far.
+     */
+    @Override
+    public void onSpendingAnalyzed(SpendingSummary summary) {
+        spendingSummary = summary;
+
+        StringBuilder topMerchants = new StringBuilder();
+        for (SpendingSummary.MerchantSpend merchant : summary.getTopMerchants(TOP_MERCHANTS)) {
+            if (topMerchants.length() > 0) {
+                topMerchants.append(", ");
+            }
+            topMerchants.append(getString(R.string.spending_merchant, merchant.getMerchant(), merchant.getTotal()));
+        }
+
+        String text = getString(R.string.spending_total, summary.getTotal(), summary.getTransactionCount());
+        if (topMerchants.length() > 0) {
+            text += "\n" + getString(R.string.spending_top_merchants, topMerchants);
+        }
+        spending.setText(text);
+        spending.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Shows how much was spent at every merchant, biggest first.
+     */
+    private void showSpendingBreakdown() {
+        if (spendingSummary == null) {
+            return;
+        }
+        List<SpendingSummary.MerchantSpend> merchants = spendingSummary.getMerchants();
+        String[] rows = new String[merchants.size()];
+        for (int i = 0; i < rows.length; i++) {
+            SpendingSummary.MerchantSpend merchant = merchants.get(i);
+            rows[i] = getString(R.string.spending_breakdown_row, merchant.getMerchant(), merchant.getTotal(), merchant.getTransactionCount());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.spending_breakdown_title)
+                .setItems(rows, null)
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
     }
 
     /**
@@ -0,0 +1,164 @@
+package com.summit.summitproject;
+
+import android.app.Application;
+import android.content.Context;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.login.LoginRepository;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.model.TransactionViewPool;
+import com.summit.summitproject.prebuilt.network.Endpoints;
+import com.summit.summitproject.prebuilt.network.LocalServer;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+import com.summit.summitproject.prebuilt.network.Preconnector;
+import com.summit.summitproject.prebuilt.session.CredentialStore;
+import com.summit.summitproject.prebuilt.session.LoginCache;
+import com.summit.summitproject.prebuilt.session.SessionRepository;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created once when the app's process starts, before any Activity. Holds the app-wide
+ * components which should be shared between screens instead of being rebuilt by each one.
+ */
+public class SummitApplication extends Application {
+
+    /**
+     * Cached login results older than this are never shown.
+     */
+    private static final long LOGIN_CACHE_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * The most disk space the login cache may use.
+     */
+    private static final long LOGIN_CACHE_MAX_BYTES = 10 * 1024 * 1024;
+
+    /**
+     * The most users whose login result is cached at once.
+     */
+    private static final int LOGIN_CACHE_MAX_ENTRIES = 5;
+
+    private Metrics metrics;
+
+    private NetworkClient networkClient;
+
+    private Endpoints endpoints;
+
+    private Preconnector preconnector;
+
+    private AppExecutors executors;
+
+    private SessionRepository sessionRepository;
+
+    private LoginCache loginCache;
+
+    private LoginRepository loginRepository;
+
+    private CredentialStore credentialStore;
+
+    private TransactionViewPool transactionViewPool;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        metrics = new Metrics();
+        executors = new AppExecutors();
+        // Full request and response logging only in debug builds, see NetworkClient
+        networkClient = new NetworkClient(new File(getCacheDir(), "http"), executors, BuildConfig.DEBUG);
+        // Started first, so the remembered credentials are likely ready by the time the login
+        // screen wants them
+        credentialStore = new CredentialStore(this, "prefs", executors);
+        // Debug builds may answer API calls locally; the server starts in the background
+        endpoints = new Endpoints(BuildConfig.BASE_URL, BuildConfig.USE_LOCAL_SERVER ? LocalServer.start(executors) : null);
+        preconnector = new Preconnector(networkClient.getHttpClient(), endpoints, executors);
+        sessionRepository = new SessionRepository(new File(getFilesDir(), "sessions"), executors);
+        loginCache = new LoginCache(
+                new File(getCacheDir(), "login-cache"),
+                new File(getFilesDir(), "login-cache.key"),
+                executors,
+                LOGIN_CACHE_MAX_AGE_MILLIS,
+                LOGIN_CACHE_MAX_BYTES,
+                LOGIN_CACHE_MAX_ENTRIES
+        );
+        transactionViewPool = new TransactionViewPool(this, R.style.AppTheme, executors);
+        loginRepository = new LoginRepository(networkClient, endpoints, executors, metrics);
+    }
+
+    /**
+     * How long each phase of logging in and showing the summary has taken.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The app-wide networking component.
+     */
+    public NetworkClient getNetworkClient() {
+        return networkClient;
+    }
+
+    /**
+     * Where the app's API calls go.
+     */
+    public Endpoints getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Warms up a connection to the API ahead of the first call.
+     */
+    public Preconnector getPreconnector() {
+        return preconnector;
+    }
+
+    /**
+     * The app-wide background and main thread executors.
+     */
+    public AppExecutors getExecutors() {
+        return executors;
+    }
+
+    /**
+     * The app-wide store of login results, looked up by session key.
+     */
+    public SessionRepository getSessionRepository() {
+        return sessionRepository;
+    }
+
+    /**
+     * The app-wide on-device cache of each user's last login result.
+     */
+    public LoginCache getLoginCache() {
+        return loginCache;
+    }
+
+    /**
+     * The app-wide login runner, which shares one network call between identical logins.
+     */
+    public LoginRepository getLoginRepository() {
+        return loginRepository;
+    }
+
+    /**
+     * The credentials remembered with "Remember Me", which start loading when the app does.
+     */
+    public CredentialStore getCredentialStore() {
+        return credentialStore;
+    }
+
+    /**
+     * The app-wide pool of transaction rows, shared by every transactions list.
+     */
+    public TransactionViewPool getTransactionViewPool() {
+        return transactionViewPool;
+    }
+
+    /**
+     * Convenience for looking up the {@link SummitApplication} from any {@link Context}.
+     */
+    public static SummitApplication from(Context context) {
+        return (SummitApplication) context.getApplicationContext();
+    }
+}
@@ -0,0 +1,151 @@
+package com.summit.summitproject.prebuilt.analytics;
+
+import com.summit.summitproject.prebuilt.model.Money;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Running totals per merchant over the first {@link MerchantTotals#rows} rows of a
+ * {@link TransactionList}.
+ * <br>
+ * Merchant ids are small and dense, so each column is a plain array indexed by merchant id
+ * rather than a hash map -- the same thing a primitive map would do, without hashing or boxing.
+ * <p>
+ * Never changed once built, so it can be handed between threads.
+ */
+class MerchantTotals {
+
+    static final MerchantTotals EMPTY = new MerchantTotals(0, 0);
+
+    /**
+     * The most rows one fork-join task adds up itself before splitting the work in two.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    /**
+     * How many rows, from the start of the list, these totals cover.
+     */
+    final int rows;
+
+    /**
+     * Sum of every amount.
+     */
+    long total;
+
+    /**
+     * Sum of the amounts for each merchant id.
+     */
+    final long[] merchantTotals;
+
+    /**
+     * Number of transactions for each merchant id.
+     */
+    final int[] merchantCounts;
+
+    /**
+     * A row where each merchant id appears, so its name can be looked up, or -1.
+     */
+    final int[] merchantRows;
+
+    private MerchantTotals(int rows, int merchantCount) {
+        this.rows = rows;
+        merchantTotals = new long[merchantCount];
+        merchantCounts = new int[merchantCount];
+        merchantRows = new int[merchantCount];
+        for (int i = 0; i < merchantCount; i++) {
+            merchantRows[i] = -1;
+        }
+    }
+
+    /**
+     * Adds up rows {@code from} (inclusive) to {@code to} (exclusive) of {@code transactions},
+     * split across every thread of {@code pool}, and returns these totals with them included.
+     * {@code from} must be {@link MerchantTotals#rows}.
+     */
+    MerchantTotals plus(TransactionList transactions, int from, int to, ForkJoinPool pool) {
+        if (from != rows) {
+            throw new IllegalArgumentException("Expected rows from " + rows + ", got " + from);
+        }
+        MerchantTotals added = pool.invoke(new SumTask(transactions, from, to, transactions.getMerchantCount()));
+        return merge(this, added, to);
+    }
+
+    /**
+     * Combines two sets of totals over different rows.
+     */
+    private static MerchantTotals merge(MerchantTotals a, MerchantTotals b, int rows) {
+        int merchantCount = Math.max(a.merchantTotals.length, b.merchantTotals.length);
+        MerchantTotals merged = new MerchantTotals(rows, merchantCount);
+        merged.total = Money.add(a.total, b.total);
+        addInto(merged, a);
+        addInto(merged, b);
+        return merged;
+    }
+
+    private static void addInto(MerchantTotals into, MerchantTotals from) {
+        for (int id = 0; id < from.merchantTotals.length; id++) {
+            if (from.merchantCounts[id] == 0) {
+                continue;
+            }
+            into.merchantTotals[id] = Money.add(into.merchantTotals[id], from.merchantTotals[id]);
+            into.merchantCounts[id] += from.merchantCounts[id];
+            if (into.merchantRows[id] == -1) {
+                into.merchantRows[id] = from.merchantRows[id];
+            }
+        }
+    }
+
+    /**
+     * Adds up a range of rows, splitting it in half and adding up each half in parallel until
+     * the pieces are small enough to add up directly.
+     */
+    private static class SumTask extends RecursiveTask<MerchantTotals> {
+
+        private final TransactionList transactions;
+
+        private final int from;
+
+        private final int to;
+
+        private final int merchantCount;
+
+        SumTask(TransactionList transactions, int from, int to, int merchantCount) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.merchantCount = merchantCount;
+        }
+
+        @Override
+        protected MerchantTotals compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return sum();
+            }
+            int middle = (from + to) >>> 1;
+            SumTask first = new SumTask(transactions, from, middle, merchantCount);
+            SumTask second = new SumTask(transactions, middle, to, merchantCount);
+            first.fork();
+            MerchantTotals secondTotals = second.compute();
+            // The first half's rows come first, so its merchant rows are kept
+            return merge(first.join(), secondTotals, 0);
+        }
+
+        private MerchantTotals sum() {
+            MerchantTotals totals = new MerchantTotals(0, merchantCount);
+            long total = 0;
+            for (int position = from; position < to; position++) {
+                int merchantId = transactions.getMerchantId(position);
+                long amount = transactions.getAmountCents(position);
+                total = Money.add(total, amount);
+                totals.merchantTotals[merchantId] = Money.add(totals.merchantTotals[merchantId], amount);
+                if (totals.merchantCounts[merchantId]++ == 0) {
+                    totals.merchantRows[merchantId] = position;
+                }
+            }
+            totals.total = total;
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.summit.summitproject.prebuilt.analytics;
+
+import android.util.Log;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Works out a {@link SpendingSummary} for a list of transactions off the main thread, and keeps
+ * it up to date as the list grows.
+ * <br>
+ * The rows are added up by a fork-join reduction across every core (see
+ * {@link AppExecutors#parallel()}), so even very long lists are summarised quickly. When more
+ * rows are appended -- e.g. another page is loaded -- only the new rows are added up and merged
+ * into the running totals, rather than starting over.
+ * <p>
+ * Only one computation runs at a time: anything which changes while it runs is picked up by the
+ * next one. Must be used from the main thread; the listener is called on the main thread.
+ */
+public class SpendingAnalyzer {
+
+    private static final String TAG = "SpendingAnalyzer";
+
+    private final AppExecutors executors;
+
+    private final Listener listener;
+
+    /**
+     * The totals for the rows added up so far.
+     */
+    private MerchantTotals totals = MerchantTotals.EMPTY;
+
+    /**
+     * The latest list given to the analyzer, or null if there is none yet.
+     */
+    private TransactionList transactions;
+
+    /**
+     * Bumped whenever the running totals are thrown away, so that a computation which was
+     * already running for the old rows is ignored.
+     */
+    private int generation;
+
+    private boolean running;
+
+    private boolean cancelled;
+
+    /**
+     * Takes in the threads to compute on and a listener to receive each new summary.
+     */
+    public SpendingAnalyzer(AppExecutors executors, Listener listener) {
+        this.executors = executors;
+        this.listener = listener;
+    }
+
+    /**
+     * Summarises {@code transactions} from scratch, e.g. after the list was replaced.
+     * {@code transactions} must not change afterwards, so pass a snapshot.
+     */
+    public void analyze(TransactionList transactions) {
+        generation++;
+        totals = MerchantTotals.EMPTY;
+        this.transactions = transactions;
+        start();
+    }
+
+    /**
+     * Updates the summary for rows appended to the end of the list given last time.
+     * {@code transactions} must start with exactly the same rows (and merchant ids) as before,
+     * and must not change afterwards.
+     */
+    public void analyzeAppended(TransactionList transactions) {
+        this.transactions = transactions;
+        start();
+    }
+
+    /**
+     * Stops delivering summaries. A computation which is already running is left to finish, but
+     * its result is dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void start() {
+        if (running || cancelled || transactions == null || totals.rows >= transactions.size()) {
+            return;
+        }
+        running = true;
+
+        final MerchantTotals base = totals;
+        final TransactionList list = transactions;
+        final int startGeneration = generation;
+        try {
+            executors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    MerchantTotals updated = null;
+                    SpendingSummary summary = null;
+                    try {
+                        updated = base.plus(list, base.rows, list.size(), executors.parallel());
+                        summary = SpendingSummary.from(updated, list);
+                    } catch (ArithmeticException e) {
+                        Log.w(TAG, "Unable to add up transactions", e);
+                    }
+                    deliver(startGeneration, updated, summary);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too busy right now, so try again the next time the list changes
+            running = false;
+        }
+    }
+
+    private void deliver(final int startGeneration, final MerchantTotals updated, final SpendingSummary summary) {
+        executors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                running = false;
+                if (cancelled) {
+                    return;
+                }
+                if (startGeneration == generation && updated != null) {
+                    totals = updated;
+                    listener.onSpendingAnalyzed(summary);
+                }
+                // Pick up anything which changed while this was running
+                if (startGeneration != generation || updated != null) {
+                    start();
+                }
+            }
+        });
+    }
+
+    /**
+     * Receives spending summaries as they're worked out.
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread with the summary of every row given so far.
+         */
+        void onSpendingAnalyzed(SpendingSummary summary);
+    }
+}
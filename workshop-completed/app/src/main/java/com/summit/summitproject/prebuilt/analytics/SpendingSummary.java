@@ -0,0 +1,122 @@
+package com.summit.summitproject.prebuilt.analytics;
+
+import com.summit.summitproject.prebuilt.model.Money;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * How much was spent in a list of transactions: the total, and a breakdown per merchant with
+ * the biggest spend first.
+ */
+public class SpendingSummary {
+
+    private final Money total;
+
+    private final int transactionCount;
+
+    private final List<MerchantSpend> merchants;
+
+    private SpendingSummary(Money total, int transactionCount, List<MerchantSpend> merchants) {
+        this.total = total;
+        this.transactionCount = transactionCount;
+        this.merchants = merchants;
+    }
+
+    /**
+     * Builds a summary from {@code totals}, using {@code transactions} to look up merchant names.
+     * Sorts every merchant, so run it on a background thread.
+     */
+    static SpendingSummary from(MerchantTotals totals, TransactionList transactions) {
+        Integer[] merchantIds = new Integer[totals.merchantTotals.length];
+        int count = 0;
+        for (int id = 0; id < merchantIds.length; id++) {
+            if (totals.merchantCounts[id] > 0) {
+                merchantIds[count++] = id;
+            }
+        }
+
+        final long[] merchantTotals = totals.merchantTotals;
+        Arrays.sort(merchantIds, 0, count, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                // Biggest spend first
+                return Long.compare(merchantTotals[b], merchantTotals[a]);
+            }
+        });
+
+        List<MerchantSpend> merchants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = merchantIds[i];
+            merchants.add(new MerchantSpend(
+                    transactions.getMerchant(totals.merchantRows[id]),
+                    new Money(merchantTotals[id], transactions.getCurrency()),
+                    totals.merchantCounts[id]
+            ));
+        }
+        return new SpendingSummary(
+                new Money(totals.total, transactions.getCurrency()),
+                totals.rows,
+                Collections.unmodifiableList(merchants)
+        );
+    }
+
+    /**
+     * The sum of every transaction. Refunds count against it.
+     */
+    public Money getTotal() {
+        return total;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * Every merchant, sorted with the biggest spend first.
+     */
+    public List<MerchantSpend> getMerchants() {
+        return merchants;
+    }
+
+    /**
+     * The {@code count} merchants with the biggest spend, biggest first.
+     */
+    public List<MerchantSpend> getTopMerchants(int count) {
+        return merchants.subList(0, Math.min(count, merchants.size()));
+    }
+
+    /**
+     * How much was spent at a single merchant.
+     */
+    public static class MerchantSpend {
+
+        private final String merchant;
+
+        private final Money total;
+
+        private final int transactionCount;
+
+        MerchantSpend(String merchant, Money total, int transactionCount) {
+            this.merchant = merchant;
+            this.total = total;
+            this.transactionCount = transactionCount;
+        }
+
+        public String getMerchant() {
+            return merchant;
+        }
+
+        public Money getTotal() {
+            return total;
+        }
+
+        public int getTransactionCount() {
+            return transactionCount;
+        }
+    }
+}
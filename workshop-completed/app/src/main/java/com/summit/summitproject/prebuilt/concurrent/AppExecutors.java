@@ -0,0 +1,206 @@
+package com.summit.summitproject.prebuilt.concurrent;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads shared by the whole app: a small, bounded pool for short background work
+ * (diffing, measuring text, sorting), a larger pool for work which blocks on the network or the
+ * disk, a fork-join pool for splitting one large computation across every core, and an
+ * {@link Executor} which runs work on the main (UI) thread.
+ * <p>
+ * Replaces the deprecated {@link android.os.AsyncTask}. Work is submitted to
+ * {@link AppExecutors#background()} or {@link AppExecutors#io()} and only the final result is
+ * handed to {@link AppExecutors#mainThread()}, so the UI thread never does more than update
+ * widgets.
+ * <p>
+ * Blocking work is kept off {@link AppExecutors#background()}, so a couple of slow network calls
+ * can't hold up the list's diffing or the text it's about to show.
+ */
+public class AppExecutors {
+
+    /**
+     * Threads kept alive even when idle.
+     */
+    private static final int CORE_THREADS = 2;
+
+    /**
+     * The most threads the background pool will ever use.
+     */
+    private static final int MAX_THREADS = 4;
+
+    /**
+     * How much work may wait for a thread before new work is rejected.
+     */
+    private static final int MAX_QUEUED_TASKS = 64;
+
+    private static final long IDLE_THREAD_SECONDS = 30;
+
+    /**
+     * The most threads the I/O pool will ever use. Its threads mostly sit waiting, so there can
+     * be more of them than there are cores.
+     */
+    private static final int MAX_IO_THREADS = 8;
+
+    /**
+     * How much blocking work may wait for a thread before new work is rejected.
+     */
+    private static final int MAX_QUEUED_IO_TASKS = 128;
+
+    private final ExecutorService background;
+
+    private final ExecutorService io;
+
+    private final ForkJoinPool parallel;
+
+    private final Executor mainThread;
+
+    public AppExecutors() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                CORE_THREADS,
+                MAX_THREADS,
+                IDLE_THREAD_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED_TASKS),
+                new BackgroundThreadFactory("summit-background-")
+        );
+        pool.allowCoreThreadTimeOut(true);
+        background = pool;
+        // As many core threads as the maximum, so blocking work gets a new thread rather than
+        // queueing behind other blocking work until the queue is full
+        ThreadPoolExecutor ioPool = new ThreadPoolExecutor(
+                MAX_IO_THREADS,
+                MAX_IO_THREADS,
+                IDLE_THREAD_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED_IO_TASKS),
+                new BackgroundThreadFactory("summit-io-")
+        );
+        ioPool.allowCoreThreadTimeOut(true);
+        io = ioPool;
+        parallel = new ForkJoinPool(
+                Math.max(Runtime.getRuntime().availableProcessors(), 2),
+                new ParallelThreadFactory(),
+                null,
+                false
+        );
+        mainThread = new MainThreadExecutor();
+    }
+
+    /**
+     * Uses the given executors instead of creating its own, e.g. so tests can run the main
+     * thread's work on a thread of their own.
+     */
+    public AppExecutors(ExecutorService background, ExecutorService io, ForkJoinPool parallel, Executor mainThread) {
+        this.background = background;
+        this.io = io;
+        this.parallel = parallel;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Runs short, CPU-bound work on a background thread. Never block on the network or the disk
+     * here; use {@link AppExecutors#io()}. Rejects new work with a
+     * {@link java.util.concurrent.RejectedExecutionException} when the queue is full.
+     */
+    public ExecutorService background() {
+        return background;
+    }
+
+    /**
+     * Runs work which blocks on the network or the disk on a background thread. Rejects new
+     * work with a {@link java.util.concurrent.RejectedExecutionException} when the queue is full.
+     */
+    public ExecutorService io() {
+        return io;
+    }
+
+    /**
+     * Runs a large computation split into {@link java.util.concurrent.ForkJoinTask}s across
+     * every core. Only for CPU-bound work -- never block on I/O here. Start it from a
+     * {@link AppExecutors#background()} thread, since invoking it waits for the result.
+     */
+    public ForkJoinPool parallel() {
+        return parallel;
+    }
+
+    /**
+     * Runs work on the main (UI) thread.
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Posts work to the main thread's {@link Looper}.
+     */
+    private static class MainThreadExecutor implements Executor {
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    }
+
+    /**
+     * Creates named threads running at background priority, so they don't compete with the UI
+     * thread for the CPU.
+     */
+    private static class BackgroundThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        BackgroundThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, prefix + count.incrementAndGet());
+        }
+    }
+
+    /**
+     * Creates named fork-join worker threads running at background priority.
+     */
+    private static class ParallelThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+                @Override
+                protected void onStart() {
+                    super.onStart();
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                }
+            };
+            thread.setName("summit-parallel-" + count.incrementAndGet());
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.summit.summitproject.prebuilt.concurrent;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs work one piece at a time, in the order it was submitted, on another {@link Executor}
+ * (usually {@link AppExecutors#background()} or {@link AppExecutors#io()}).
+ * <br>
+ * Lets a component keep state which is only ever touched by its own background work, without
+ * locks and without a dedicated thread of its own.
+ */
+public class SerialExecutor implements Executor {
+
+    private final Executor executor;
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+    private Runnable active;
+
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues {@code command} to run once everything submitted before it has finished.
+     *
+     * @throws RejectedExecutionException if the underlying executor is too busy to start the
+     * queue right now. The work stays queued, and starts when more work is next submitted.
+     */
+    @Override
+    public synchronized void execute(@NonNull final Runnable command) {
+        tasks.offer(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    command.run();
+                } finally {
+                    try {
+                        scheduleNext();
+                    } catch (RejectedExecutionException e) {
+                        // Nothing to report it to from here. The queued work runs when more
+                        // work is next submitted.
+                    }
+                }
+            }
+        });
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+        if (active != null) {
+            try {
+                executor.execute(active);
+            } catch (RejectedExecutionException e) {
+                // Put it back, so it's tried again when more work is submitted
+                tasks.addFirst(active);
+                active = null;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+import com.summit.summitproject.prebuilt.paging.TransactionPage;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Currency;
+
+import okio.BufferedSource;
+
+/**
+ * Decodes the compact binary form of the login response and transaction pages, which the
+ * server sends instead of JSON if the request says it {@code Accept}s {@link #MEDIA_TYPE}. See
+ * {@link LoginResponseParser#parse(okhttp3.ResponseBody)}.
+ * <br>
+ * The JSON form repeats {@code "merchant"} and {@code "amount"} and the merchant's name for every
+ * transaction, and writes each amount as a String which has to be parsed again. This form sends
+ * each merchant's name once, in a dictionary, and then the transactions a column at a time, so
+ * similar values sit next to each other (which also helps gzip):
+ * <pre>
+ * "STX" version        4 bytes, version is {@link #VERSION}
+ * kind                 1 byte, {@link #KIND_LOGIN} or {@link #KIND_PAGE}
+ * name, cardLastFour   strings, only if kind is {@link #KIND_LOGIN}
+ * nextPage             string, may be null
+ * currency             string, ISO 4217 code, empty for the default currency
+ * merchantCount        varint, then that many strings
+ * rowCount             varint
+ * ids                  rowCount strings, may be null
+ * merchants            rowCount varints, indexes into the merchant dictionary
+ * amounts              rowCount zig-zag varints, in minor units of the currency
+ * </pre>
+ * A varint is an unsigned number 7 bits at a time, lowest first, with the top bit set on every
+ * byte but the last (as in protobuf). A string is a varint of its UTF-8 length plus one, then
+ * the UTF-8 bytes; a length of zero means null.
+ * <p>
+ * Reads straight from the network's {@link BufferedSource}, so the body is never copied into a
+ * separate buffer or decoded into chars first. Does blocking I/O, so it must be used from a
+ * background thread.
+ */
+public class BinaryResponseParser {
+
+    /**
+     * The {@code Content-Type} of a response in this form.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.summit.transactions";
+
+    public static final int VERSION = 1;
+
+    public static final int KIND_LOGIN = 1;
+
+    public static final int KIND_PAGE = 2;
+
+    /**
+     * "STX" followed by {@link #VERSION}, big-endian.
+     */
+    public static final int MAGIC = ('S' << 24) | ('T' << 16) | ('X' << 8) | VERSION;
+
+    /**
+     * More rows, merchants or string bytes than this means the count is corrupt, so don't
+     * allocate for it.
+     */
+    private static final int MAX_COUNT = 1 << 22;
+
+    /**
+     * The most rows or merchants room is made for up front. Counts come from the response, so
+     * beyond this the arrays only grow as values actually arrive: a corrupt or hostile count
+     * then fails at the end of the body, rather than first allocating tens of megabytes.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    /**
+     * Reads a whole login response from {@code source}.
+     *
+     * @throws IOException if reading from the network fails part way through.
+     * @throws JSONException if the response is not in the expected format (the same exception is
+     * used as for a bad JSON response).
+     */
+    public LoginResult parse(BufferedSource source) throws IOException, JSONException {
+        readHeader(source, KIND_LOGIN);
+        String name = readString(source);
+        String cardNum = readString(source);
+        if (name == null || cardNum == null) {
+            throw new JSONException("Login response is missing a required field.");
+        }
+        String nextPage = readString(source);
+        TransactionStore transactions = readTransactions(source);
+        return new LoginResult(name, cardNum, transactions, nextPage);
+    }
+
+    /**
+     * Reads a single page of transactions from {@code source}.
+     *
+     * @throws IOException if reading from the network fails part way through.
+     * @throws JSONException if the response is not in the expected format.
+     */
+    public TransactionPage parsePage(BufferedSource source) throws IOException, JSONException {
+        readHeader(source, KIND_PAGE);
+        String nextPage = readString(source);
+        TransactionStore transactions = readTransactions(source);
+        return new TransactionPage(transactions, nextPage);
+    }
+
+    private static void readHeader(BufferedSource source, int expectedKind) throws IOException, JSONException {
+        int magic = source.readInt();
+        if (magic != MAGIC) {
+            throw new JSONException("Not a binary transactions response, or an unsupported version.");
+        }
+        int kind = source.readByte();
+        if (kind != expectedKind) {
+            throw new JSONException("Expected a response of kind " + expectedKind + " but got " + kind);
+        }
+    }
+
+    private static TransactionStore readTransactions(BufferedSource source) throws IOException, JSONException {
+        String currencyCode = readString(source);
+
+        int merchantCount = readCount(source);
+        String[] merchants = new String[initialCapacity(merchantCount)];
+        for (int i = 0; i < merchantCount; i++) {
+            if (i == merchants.length) {
+                merchants = Arrays.copyOf(merchants, grow(merchants.length, merchantCount));
+            }
+            merchants[i] = readString(source);
+            if (merchants[i] == null) {
+                throw new JSONException("Transaction is missing a merchant or amount.");
+            }
+        }
+
+        int rows = readCount(source);
+        TransactionStore transactions = new TransactionStore(initialCapacity(rows));
+        if (currencyCode != null && !currencyCode.isEmpty()) {
+            try {
+                transactions.setCurrency(Currency.getInstance(currencyCode));
+            } catch (IllegalArgumentException e) {
+                throw new JSONException("Unknown currency " + currencyCode);
+            }
+        }
+
+        // The columns come one after the other, but a row can only be added once all three of
+        // its values are known
+        String[] ids = new String[initialCapacity(rows)];
+        for (int i = 0; i < rows; i++) {
+            if (i == ids.length) {
+                ids = Arrays.copyOf(ids, grow(ids.length, rows));
+            }
+            ids[i] = readString(source);
+        }
+        // Every id has been read by now, so there really are this many rows
+        int[] merchantIndexes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            long index = readVarint(source);
+            if (index < 0 || index >= merchantCount) {
+                throw new JSONException("Corrupt merchant index " + index);
+            }
+            merchantIndexes[i] = (int) index;
+        }
+        for (int i = 0; i < rows; i++) {
+            long zigZag = readVarint(source);
+            long cents = (zigZag >>> 1) ^ -(zigZag & 1);
+            transactions.add(ids[i], merchants[merchantIndexes[i]], cents);
+        }
+        return transactions;
+    }
+
+    private static int initialCapacity(int count) {
+        return Math.min(count, MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * The next size for an array of {@code length} which needs to hold {@code count} values.
+     */
+    private static int grow(int length, int count) {
+        return (int) Math.min(count, Math.max(1, length * 2L));
+    }
+
+    private static int readCount(BufferedSource source) throws IOException, JSONException {
+        long count = readVarint(source);
+        if (count < 0 || count > MAX_COUNT) {
+            throw new JSONException("Corrupt count " + count);
+        }
+        return (int) count;
+    }
+
+    private static String readString(BufferedSource source) throws IOException, JSONException {
+        long length = readVarint(source);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length - 1 > MAX_COUNT) {
+            throw new JSONException("Corrupt string length " + length);
+        }
+        return source.readUtf8(length - 1);
+    }
+
+    private static long readVarint(BufferedSource source) throws IOException, JSONException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = source.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new JSONException("Malformed varint");
+    }
+}
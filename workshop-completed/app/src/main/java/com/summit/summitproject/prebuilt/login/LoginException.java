@@ -0,0 +1,60 @@
+package com.summit.summitproject.prebuilt.login;
+
+/**
+ * Why a login failed, delivered to {@link LoginListener#onLoginError(LoginException)} so the
+ * screen can tell the user something more useful than "it didn't work".
+ */
+public class LoginException extends Exception {
+
+    /**
+     * What went wrong.
+     */
+    public enum Reason {
+        /**
+         * The server couldn't be reached at all, e.g. no connection or DNS failed.
+         */
+        NETWORK,
+
+        /**
+         * The server was reached but took too long to answer.
+         */
+        TIMEOUT,
+
+        /**
+         * The server didn't accept the credentials or session token.
+         */
+        UNAUTHORIZED,
+
+        /**
+         * The server answered with an error.
+         */
+        SERVER,
+
+        /**
+         * The server answered, but with something that couldn't be understood.
+         */
+        BAD_RESPONSE,
+
+        /**
+         * The server has been failing, so no call was made this time (see
+         * {@link com.summit.summitproject.prebuilt.network.CircuitBreaker}).
+         */
+        UNAVAILABLE,
+
+        /**
+         * The app already has too much work in progress to start the login.
+         */
+        BUSY
+    }
+
+    private final Reason reason;
+
+    public LoginException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -1,21 +1,19 @@
 package com.summit.summitproject.prebuilt.login;
 
-import com.summit.summitproject.prebuilt.model.Transaction;
-
-import java.util.ArrayList;
-
 /**
  * Used with the {@link LoginManager} to receive the result of a network call.
  */
 public interface LoginListener {
     /**
      * If successful, this supplies the user's name, last 4 numbers of a single credit card,
-     * and a list of recent transactions for that card.
+     * and the first page of recent transactions for that card, plus a {@link SessionToken} to
+     * fetch them again with if the server handed one out (otherwise null).
      */
-    void onLoginSuccess(String name, String cardNum, ArrayList<Transaction> transactions);
+    void onLoginSuccess(LoginResult result, SessionToken token);
 
     /**
-     * If the login call fails, return the error information.
+     * If the login call fails, return the error information. See
+     * {@link LoginException#getReason()} for what went wrong.
      */
-    void onLoginError(Exception exception);
+    void onLoginError(LoginException exception);
 }
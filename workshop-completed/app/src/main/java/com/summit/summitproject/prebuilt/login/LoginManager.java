@@ -1,22 +1,33 @@
 package com.summit.summitproject.prebuilt.login;
 
-import android.os.AsyncTask;
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.network.CircuitOpenException;
+import com.summit.summitproject.prebuilt.network.Endpoints;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+import com.summit.summitproject.prebuilt.network.PrivateHeaders;
+import com.summit.summitproject.prebuilt.network.RetryingCall;
 
-import com.summit.summitproject.prebuilt.model.Transaction;
-
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import okhttp3.logging.HttpLoggingInterceptor;
-
-import static android.os.SystemClock.sleep;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
 
 /**
  * Handles making a single network call to a fake login API to retrieve user details (their
@@ -27,12 +38,44 @@ import static android.os.SystemClock.sleep;
  * Since it's fake API call, we don't "really" send the username / password and it always
  * returns the same response, but it is "real" in the sense that a real network call is made.
  * <p>
- * Networking is done in a background thread via extending an {@link AsyncTask}:
- * <br> https://developer.android.com/reference/android/os/AsyncTask
- * <br> and is specifically done using the Okhttp library:
+ * The network call, decoding and building of the model all run on a background thread from
+ * {@link AppExecutors#io()}. Only the final {@link LoginListener} callback is posted to
+ * the main thread. Networking is specifically done using the Okhttp library:
  * <br> http://square.github.io/okhttp/
+ * <p>
+ * The app-wide {@link NetworkClient} is supplied by the caller so that repeated logins reuse
+ * the same {@link OkHttpClient} connection pool instead of starting from a cold connection every
+ * time. The call is made with {@link NetworkClient#newCall(Request)}, so it has time limits,
+ * is retried if it fails in a way which may go away by itself, and fails straight away while
+ * the server appears to be down. Where the login goes comes from the supplied {@link Endpoints}.
+ * <p>
+ * Failures are reported as a {@link LoginException} saying what went wrong.
+ * <p>
+ * The login response is kept in the client's HTTP cache (if it has one) and every login
+ * revalidates it with the server using its ETag / Last-Modified. If the server answers
+ * "304 Not Modified" and the caller supplied the result it already has via
+ * {@link LoginManager#setCachedResult(LoginResult)}, that result is handed back as-is and the
+ * response is not decoded again.
+ * <p>
+ * The server may hand out a {@link SessionToken} with the result. Logging in again with it
+ * (see {@link LoginManager#setSessionToken(String)}) fetches fresh data without the
+ * credentials.
+ * <p>
+ * How long the fetch and the decoding took, and how big the response was, are recorded in the
+ * supplied {@link Metrics}.
+ * <p>
+ * If the screen which started the login goes away, call {@link LoginManager#cancel()}: the
+ * socket is closed, the background work stops and the listener is never called.
  */
-public class LoginManager extends AsyncTask<Void, Void, String> {
+public class LoginManager {
+
+    private final NetworkClient client;
+
+    private final Endpoints endpoints;
+
+    private final AppExecutors executors;
+
+    private final Metrics metrics;
 
     private final String username;
 
@@ -41,104 +84,265 @@ public class LoginManager extends AsyncTask<Void, Void, String> {
     private final LoginListener listener;
 
     /**
-     * Takes in the user credentials and the listener to deliver the result to.
+     * The result the caller already has for these credentials, if any.
+     */
+    private volatile LoginResult cachedResult;
+
+    /**
+     * The session token to log in with instead of the credentials, if any.
+     */
+    private volatile String sessionToken;
+
+    /**
+     * Set once {@link LoginManager#cancel()} is called. Checked on the background thread
+     * between steps and on the main thread right before the listener is called.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The in-flight network call, so that it can be aborted on {@link LoginManager#cancel()}.
      */
-    public LoginManager(String username, String password, LoginListener listener) {
+    private volatile RetryingCall call;
+
+    /**
+     * The background work, so that it can be interrupted on {@link LoginManager#cancel()}.
+     */
+    private Future<?> work;
+
+    /**
+     * Takes in the networking client, endpoints, threads and metrics to use, the user
+     * credentials and the listener to deliver the result to.
+     */
+    public LoginManager(NetworkClient client, Endpoints endpoints, AppExecutors executors, Metrics metrics, String username, String password, LoginListener listener) {
+        this.client = client;
+        this.endpoints = endpoints;
+        this.executors = executors;
+        this.metrics = metrics;
         this.username = username;
         this.password = password;
         this.listener = listener;
     }
 
     /**
-     * Runs in a background thread, waits two seconds (to simulate a network delay), and makes
-     * a network call to retrieve user details.
-     * <p>
-     * Uses https://www.mocky.io/ to retrieve a pre-defined JSON response.
-     * <p>
-     * The data returned from this method is delivered to {@link LoginManager#onPostExecute(String)}.
+     * Supplies the result the caller already has for these credentials (e.g. from an on-device
+     * cache). If the server says the response hasn't changed, this exact object is delivered to
+     * {@link LoginListener#onLoginSuccess(LoginResult, SessionToken)}. May also be called while
+     * the login is running, e.g. once a slower cache lookup finishes; it's used if it arrives
+     * before the response does.
      */
-    @Override
-    protected String doInBackground(Void... voids) {
-        // Prepare logging for the request / response so you can see them in Logcat
-        HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-        logging.level(HttpLoggingInterceptor.Level.BODY);
+    public void setCachedResult(LoginResult cachedResult) {
+        this.cachedResult = cachedResult;
+    }
 
-        // Prepare the networking client (used to actually make the connection & network call)
-        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(logging).build();
+    /**
+     * Logs in with a {@link SessionToken} from an earlier login rather than the credentials,
+     * which are then ignored. Must be called before {@link LoginManager#execute()}.
+     */
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
 
-        // Build a GET request for the URL we want to hit
-        Request request = new Request.Builder()
-                .get()
-                .url("http://www.mocky.io/v2/5b0074643100006f0076df40?mocky-delay=2500ms")
-                .build();
+    /**
+     * Starts the login on a background thread. Must be called from the main thread, and only
+     * once per {@link LoginManager}.
+     */
+    public void execute() {
         try {
-            // Execute the network call and assign the response
-            Response response = client.newCall(request).execute();
+            work = executors.io().submit(new Runnable() {
+                @Override
+                public void run() {
+                    login();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too much work is already queued up, so fail straight away rather than waiting
+            deliverError(new LoginException(LoginException.Reason.BUSY, "Too many requests in progress.", e));
+        }
+    }
 
-            // If response body is not empty, return it
-            ResponseBody body = response.body();
-            return body != null ? body.string() : null;
-        } catch (Exception e) {
-            // Return null if there were any network problems
-            return null;
+    /**
+     * Stops the login if it is still running and guarantees the listener won't be called.
+     * Must be called from the main thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        RetryingCall inFlight = call;
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+        if (work != null) {
+            work.cancel(true);
         }
     }
 
     /**
-     * Receives the raw response body String from the network call (or null if there was a problem).
-     * Parses the JSON response for the user data. It looks something like:
-     * {
-     *    "name":"Nick C.",
-     *    "cardLastFour":"7890",
-     *    "transactions":
-     *    [
-     *        {
-     *          "merchant":"Starbucks",
-     *          "amount":"$1.40"
-     *        },
-     *        {
-     *          "merchant":"Macy's",
-     *          "amount":"$35.00"
-     *        },
-     *
-     *        // ...
-     *
-     *    ]
-     * }
+     * Runs in a background thread and makes a network call to retrieve user details. The server
+     * itself waits a couple of seconds before answering, to simulate a slow network.
+     * <p>
+     * By default uses https://www.mocky.io/ to retrieve a pre-defined JSON response (debug builds
+     * use the local server instead, see {@link Endpoints}), which is decoded while it streams in
+     * by the {@link LoginResponseParser} (or the {@link BinaryResponseParser}, if the server
+     * answered in that form instead).
      */
-    @Override
-    protected void onPostExecute(String response) {
-        // If there was a problem with the network (response was null), then invoke the error
-        // listener
-        if (response == null) {
-            listener.onLoginError(new Exception("Failed to get a response from the server."));
+    private void login() {
+        HttpUrl url;
+        try {
+            url = endpoints.getLoginUrl();
+        } catch (IOException e) {
+            deliverError(toLoginException(e));
+            return;
+        }
+
+        // Build a GET request for the URL we want to hit. "max-age=0" means a cached response
+        // may be used, but only after checking with the server that it's still current. (OkHttp
+        // takes "no-cache" on a request to mean skip the cache altogether, without asking.) The
+        // server may answer in the compact binary form rather than JSON, if it has it.
+        Request.Builder request = new Request.Builder()
+                .get()
+                .header("Accept", LoginResponseParser.ACCEPT)
+                .cacheControl(new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build())
+                .url(url);
+        String token = sessionToken;
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        PrivateHeaders privateHeaders = SessionToken.newPrivateHeaders();
+        request.tag(PrivateHeaders.class, privateHeaders);
+        call = client.newCall(request.build());
+
+        // cancel() may have run before the call was assigned, in which case it missed it
+        if (cancelled) {
+            call.cancel();
             return;
         }
 
         try {
-            // Attempt to parse the name & card number (last 4) from the top of the JSON object
-            JSONObject rootObject = new JSONObject(response);
-            String name = rootObject.getString("name");
-            String cardNum = rootObject.getString("cardLastFour");
-
-            // Get the JSON array of transactions
-            JSONArray transactionsObject = rootObject.getJSONArray("transactions");
-
-            ArrayList<Transaction> transactions = new ArrayList<>();
-
-            // For each JSON object in the array, parse out and add a new Transaction
-            for (int i = 0; i < transactionsObject.length(); i++) {
-                JSONObject currentTransaction = transactionsObject.getJSONObject(i);
-                String merchant = currentTransaction.getString("merchant");
-                String amount = currentTransaction.getString("amount");
-                transactions.add(new Transaction(merchant, amount));
+            // Execute the network call and assign the response
+            Response response;
+            long fetchStartedAt = metrics.begin(Metrics.Metric.FETCH);
+            try {
+                response = call.execute();
+            } finally {
+                metrics.end(Metrics.Metric.FETCH, fetchStartedAt);
+            }
+            if (!response.isSuccessful()) {
+                response.close();
+                LoginException.Reason reason = response.code() == 401 || response.code() == 403
+                        ? LoginException.Reason.UNAUTHORIZED
+                        : LoginException.Reason.SERVER;
+                deliverError(new LoginException(reason, "Server answered with HTTP " + response.code() + ".", null));
+                return;
             }
+            // Only a token which just came from the server counts, never one from the cache
+            SessionToken newToken = response.networkResponse() != null ? SessionToken.from(privateHeaders) : null;
 
-            // Invoke the success listener with the user data that was parsed out
-            listener.onLoginSuccess(name, cardNum, transactions);
+            // If the server confirmed our cached copy is still current, skip decoding entirely.
+            // cacheResponse() is set for any revalidation, even one the server answered with a
+            // new body, so only a 304 from the network counts.
+            LoginResult cached = cachedResult;
+            Response networkResponse = response.networkResponse();
+            if (cached != null && networkResponse != null && networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                response.close();
+                deliverSuccess(cached, newToken);
+                return;
+            }
+
+            // If response body is not empty, decode it
+            ResponseBody body = response.body();
+            if (body == null) {
+                response.close();
+                deliverError(new LoginException(LoginException.Reason.BAD_RESPONSE, "Server sent no response body.", null));
+                return;
+            }
+            // Count the bytes as the parser reads them, since the length isn't always known
+            // up front
+            CountingSource counted = new CountingSource(body.source());
+            ResponseBody countedBody = ResponseBody.create(Okio.buffer(counted), body.contentType(), body.contentLength());
+            LoginResult result;
+            long decodeStartedAt = metrics.begin(Metrics.Metric.DECODE);
+            try {
+                result = new LoginResponseParser().parse(countedBody);
+            } finally {
+                metrics.end(Metrics.Metric.DECODE, decodeStartedAt);
+                body.close();
+            }
+            metrics.record(Metrics.Metric.BYTES, counted.bytesRead);
+            deliverSuccess(result, newToken);
         } catch (JSONException e) {
             // If there was a problem parsing the JSON, then invoke the error listener
-            listener.onLoginError(new Exception("Failed to parse response from server."));
+            deliverError(new LoginException(LoginException.Reason.BAD_RESPONSE, "Failed to parse response from server.", e));
+        } catch (IOException e) {
+            // If there was a problem with the network, then invoke the error listener
+            deliverError(toLoginException(e));
+        } catch (RuntimeException e) {
+            // Nothing else is expected, but the listener must still hear about it or the screen
+            // would wait forever
+            deliverError(new LoginException(LoginException.Reason.BAD_RESPONSE, "Failed to parse response from server.", e));
+        }
+    }
+
+    /**
+     * Works out what kind of network failure {@code e} was.
+     */
+    private static LoginException toLoginException(IOException e) {
+        if (e instanceof CircuitOpenException) {
+            return new LoginException(LoginException.Reason.UNAVAILABLE, "Server is unavailable.", e);
+        }
+        // OkHttp reports a call which ran out of time as an InterruptedIOException("timeout")
+        if (e instanceof SocketTimeoutException
+                || (e instanceof InterruptedIOException && "timeout".equals(e.getMessage()))) {
+            return new LoginException(LoginException.Reason.TIMEOUT, "Server took too long to respond.", e);
+        }
+        return new LoginException(LoginException.Reason.NETWORK, "Failed to get a response from the server.", e);
+    }
+
+    /**
+     * Invokes the success listener on the main thread with the user data that was parsed out,
+     * and the new session token if the server sent one.
+     */
+    private void deliverSuccess(final LoginResult result, final SessionToken token) {
+        executors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onLoginSuccess(result, token);
+                }
+            }
+        });
+    }
+
+    /**
+     * Invokes the error listener on the main thread.
+     */
+    private void deliverError(final LoginException exception) {
+        executors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    listener.onLoginError(exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * Passes reads through, keeping count of how many bytes went by.
+     */
+    private static class CountingSource extends ForwardingSource {
+
+        long bytesRead;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
         }
     }
 }
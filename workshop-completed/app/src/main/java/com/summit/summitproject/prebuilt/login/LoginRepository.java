@@ -0,0 +1,198 @@
+package com.summit.summitproject.prebuilt.login;
+
+import android.util.Log;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.network.Endpoints;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Runs logins for the whole app, making sure the same credentials are never being logged in
+ * with twice at once.
+ * <br>
+ * Asking to log in while an identical login is still running doesn't start another network
+ * call: the caller joins the one in flight and gets the same result. Repeated taps, retries
+ * and screens recreated after a configuration change all share one call.
+ * <p>
+ * Each caller gets back a {@link Subscription}. Cancelling it stops that caller's listener from
+ * being called; the network call itself is only cancelled once nobody is waiting for it.
+ * <p>
+ * Must be used from the main thread; listeners are called on the main thread.
+ */
+public class LoginRepository {
+
+    private static final String TAG = "LoginRepository";
+
+    private final NetworkClient client;
+
+    private final Endpoints endpoints;
+
+    private final AppExecutors executors;
+
+    private final Metrics metrics;
+
+    /**
+     * The logins currently running, by {@link LoginRepository#key(String, String)}.
+     */
+    private final HashMap<String, InFlightLogin> inFlight = new HashMap<>();
+
+    /**
+     * Takes in the networking client, endpoints, threads and metrics to log in with.
+     */
+    public LoginRepository(NetworkClient client, Endpoints endpoints, AppExecutors executors, Metrics metrics) {
+        this.client = client;
+        this.endpoints = endpoints;
+        this.executors = executors;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Logs in with {@code username} and {@code password}, or joins the login already running
+     * for them, and delivers the result to {@code listener}.
+     * <br>
+     * {@code cached} is the result the caller already has for these credentials, if any (see
+     * {@link LoginManager#setCachedResult(LoginResult)}). It's only used when a new login is
+     * started; a caller which joins a running login gets whatever that login delivers.
+     */
+    public Subscription login(String username, String password, LoginResult cached, LoginListener listener) {
+        return join(key(username, password), username, password, null, cached, listener);
+    }
+
+    /**
+     * Fetches fresh data with a {@link SessionToken} from an earlier login instead of the
+     * credentials (see {@link LoginManager#setSessionToken(String)}), or joins the fetch already
+     * running for that token, and delivers the result to {@code listener}. {@code cached} is as
+     * for {@link LoginRepository#login}.
+     */
+    public Subscription resume(String sessionToken, LoginResult cached, LoginListener listener) {
+        // Starts with a newline, which a login's key never does (see key())
+        return join("\n" + sessionToken, null, null, sessionToken, cached, listener);
+    }
+
+    private Subscription join(String key, String username, String password, String sessionToken, LoginResult cached, LoginListener listener) {
+        InFlightLogin login = inFlight.get(key);
+        if (login == null) {
+            login = new InFlightLogin(key);
+            inFlight.put(key, login);
+            login.start(username, password, sessionToken, cached);
+        } else {
+            Log.d(TAG, "Joining a login already in flight, " + (login.listeners.size() + 1) + " waiting");
+        }
+        login.listeners.add(listener);
+        return new Subscription(login, listener);
+    }
+
+    /**
+     * How many distinct logins are running right now.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static String key(String username, String password) {
+        // Neither can contain a newline, since they're typed into single-line fields, and the
+        // username can't be empty
+        return username + '\n' + password;
+    }
+
+    /**
+     * A single network call and everyone waiting for its result.
+     */
+    private class InFlightLogin implements LoginListener {
+
+        private final String key;
+
+        final ArrayList<LoginListener> listeners = new ArrayList<>();
+
+        private LoginManager manager;
+
+        InFlightLogin(String key) {
+            this.key = key;
+        }
+
+        void start(String username, String password, String sessionToken, LoginResult cached) {
+            manager = new LoginManager(client, endpoints, executors, metrics, username, password, this);
+            manager.setCachedResult(cached);
+            manager.setSessionToken(sessionToken);
+            manager.execute();
+        }
+
+        void setCachedResult(LoginResult cached) {
+            manager.setCachedResult(cached);
+        }
+
+        void unsubscribe(LoginListener listener) {
+            if (!listeners.remove(listener) || !listeners.isEmpty()) {
+                return;
+            }
+            // Nobody is waiting any more
+            if (inFlight.get(key) == this) {
+                inFlight.remove(key);
+            }
+            manager.cancel();
+        }
+
+        @Override
+        public void onLoginSuccess(LoginResult result, SessionToken token) {
+            for (LoginListener listener : finish()) {
+                listener.onLoginSuccess(result, token);
+            }
+        }
+
+        @Override
+        public void onLoginError(LoginException exception) {
+            for (LoginListener listener : finish()) {
+                listener.onLoginError(exception);
+            }
+        }
+
+        /**
+         * Stops taking new listeners and returns the ones to deliver the result to.
+         */
+        private ArrayList<LoginListener> finish() {
+            if (inFlight.get(key) == this) {
+                inFlight.remove(key);
+            }
+            // A listener may log in again or unsubscribe while being called, so work on a copy
+            ArrayList<LoginListener> waiting = new ArrayList<>(listeners);
+            listeners.clear();
+            return waiting;
+        }
+    }
+
+    /**
+     * One caller's interest in a login.
+     */
+    public static class Subscription {
+
+        private final InFlightLogin login;
+
+        private final LoginListener listener;
+
+        private Subscription(InFlightLogin login, LoginListener listener) {
+            this.login = login;
+            this.listener = listener;
+        }
+
+        /**
+         * Supplies the cached result for the login after it started (see
+         * {@link LoginManager#setCachedResult(LoginResult)}). Everyone waiting for the login
+         * shares it, as they logged in with the same credentials.
+         */
+        public void setCachedResult(LoginResult cached) {
+            login.setCachedResult(cached);
+        }
+
+        /**
+         * Guarantees the listener won't be called, and stops the login if nobody else is waiting
+         * for it. Does nothing if the result was already delivered.
+         */
+        public void cancel() {
+            login.unsubscribe(listener);
+        }
+    }
+}
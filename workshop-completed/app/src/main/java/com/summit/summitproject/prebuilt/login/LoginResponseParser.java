@@ -0,0 +1,255 @@
+package com.summit.summitproject.prebuilt.login;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.MalformedJsonException;
+
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+import com.summit.summitproject.prebuilt.paging.TransactionPage;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Decodes the login response straight from the network stream. It looks something like:
+ * {
+ *    "name":"Nick C.",
+ *    "cardLastFour":"7890",
+ *    "transactions":
+ *    [
+ *        {
+ *          "merchant":"Starbucks",
+ *          "amount":"$1.40"
+ *        },
+ *        {
+ *          "merchant":"Macy's",
+ *          "amount":"$35.00"
+ *        },
+ *
+ *        // ...
+ *
+ *    ],
+ *    "nextPage":"http://..."
+ * }
+ * <p>
+ * {@code nextPage} is optional. When present, the response only holds the first page of
+ * transactions and the rest can be fetched a page at a time using
+ * {@link com.summit.summitproject.prebuilt.paging.TransactionPager}.
+ * <p>
+ * Uses a pull-based {@link JsonReader}, so the body is never loaded into one big String and no
+ * intermediate JSON tree is built -- each transaction is added to a {@link TransactionStore} as
+ * soon as its tokens have been read. Unknown fields are skipped, so the server can add new ones
+ * safely.
+ * <p>
+ * The server can also send these responses in a compact binary form, if the request lists
+ * {@link BinaryResponseParser#MEDIA_TYPE} in its {@code Accept} header (send
+ * {@link LoginResponseParser#ACCEPT}). {@link LoginResponseParser#parse(ResponseBody)} and
+ * {@link LoginResponseParser#parsePage(ResponseBody)} look at the response's
+ * {@code Content-Type} and decode whichever form the server chose, so a server which only
+ * speaks JSON still works.
+ * <p>
+ * Does blocking I/O, so it must be used from a background thread.
+ */
+public class LoginResponseParser {
+
+    /**
+     * The {@code Accept} header for login and page requests: the binary form if the server has
+     * it, and JSON otherwise.
+     */
+    public static final String ACCEPT = BinaryResponseParser.MEDIA_TYPE + ", application/json;q=0.9";
+
+    /**
+     * Reads a whole login response from {@code body}, in whichever form the server sent it.
+     *
+     * @throws IOException if reading from the network fails part way through.
+     * @throws JSONException if the response is not in the expected format.
+     */
+    public LoginResult parse(ResponseBody body) throws IOException, JSONException {
+        if (isBinary(body)) {
+            return new BinaryResponseParser().parse(body.source());
+        }
+        return parse(body.charStream());
+    }
+
+    /**
+     * Reads a single page of transactions from {@code body}, in whichever form the server sent
+     * it.
+     *
+     * @throws IOException if reading from the network fails part way through.
+     * @throws JSONException if the response is not in the expected format.
+     */
+    public TransactionPage parsePage(ResponseBody body) throws IOException, JSONException {
+        if (isBinary(body)) {
+            return new BinaryResponseParser().parsePage(body.source());
+        }
+        return parsePage(body.charStream());
+    }
+
+    /**
+     * Reads a whole login response from {@code reader}.
+     *
+     * @throws IOException if reading from the network fails part way through.
+     * @throws JSONException if the response is not in the expected format.
+     */
+    public LoginResult parse(Reader reader) throws IOException, JSONException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            return readRoot(json);
+        } catch (MalformedJsonException | IllegalStateException e) {
+            // Thrown by JsonReader for bad syntax or an unexpected token type
+            throw new JSONException("Malformed login response: " + e.getMessage());
+        } finally {
+            json.close();
+        }
+    }
+
+    /**
+     * Reads a single page of transactions from {@code reader}, as returned when following a
+     * {@link LoginResult#getNextPage()} link. It looks something like:
+     * {
+     *    "transactions": [ ... ],
+     *    "nextPage":"http://..."
+     * }
+     *
+     * @throws IOException if reading from the network fails part way through.
+     * @throws JSONException if the response is not in the expected format.
+     */
+    public TransactionPage parsePage(Reader reader) throws IOException, JSONException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            return readPage(json);
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new JSONException("Malformed transactions page: " + e.getMessage());
+        } finally {
+            json.close();
+        }
+    }
+
+    private static boolean isBinary(ResponseBody body) {
+        MediaType type = body.contentType();
+        return type != null && BinaryResponseParser.MEDIA_TYPE.equals(type.type() + "/" + type.subtype());
+    }
+
+    private LoginResult readRoot(JsonReader json) throws IOException, JSONException {
+        String name = null;
+        String cardNum = null;
+        TransactionStore transactions = null;
+        String nextPage = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":
+                    name = json.nextString();
+                    break;
+                case "cardLastFour":
+                    cardNum = json.nextString();
+                    break;
+                case "transactions":
+                    transactions = readTransactions(json);
+                    break;
+                case "nextPage":
+                    nextPage = readOptionalString(json);
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+
+        if (name == null || cardNum == null || transactions == null) {
+            throw new JSONException("Login response is missing a required field.");
+        }
+        return new LoginResult(name, cardNum, transactions, nextPage);
+    }
+
+    private TransactionPage readPage(JsonReader json) throws IOException, JSONException {
+        TransactionStore transactions = null;
+        String nextPage = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "transactions":
+                    transactions = readTransactions(json);
+                    break;
+                case "nextPage":
+                    nextPage = readOptionalString(json);
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+
+        if (transactions == null) {
+            throw new JSONException("Transactions page is missing its transactions.");
+        }
+        return new TransactionPage(transactions, nextPage);
+    }
+
+    /**
+     * Reads a String which the server may also send as {@code null}.
+     */
+    private String readOptionalString(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    private TransactionStore readTransactions(JsonReader json) throws IOException, JSONException {
+        TransactionStore transactions = new TransactionStore();
+        json.beginArray();
+        while (json.hasNext()) {
+            readTransaction(json, transactions);
+        }
+        json.endArray();
+        return transactions;
+    }
+
+    /**
+     * Reads a single transaction and adds it straight to {@code transactions}.
+     */
+    private void readTransaction(JsonReader json, TransactionStore transactions) throws IOException, JSONException {
+        String id = null;
+        String merchant = null;
+        String amount = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id":
+                    id = readOptionalString(json);
+                    break;
+                case "merchant":
+                    merchant = json.nextString();
+                    break;
+                case "amount":
+                    amount = json.nextString();
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+
+        if (merchant == null || amount == null) {
+            throw new JSONException("Transaction is missing a merchant or amount.");
+        }
+        try {
+            transactions.add(id, merchant, amount);
+        } catch (NumberFormatException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.model.TransactionList;
+
+/**
+ * The user details decoded from a successful login response -- their name, the last 4 numbers
+ * of a single credit card, and the first page of recent transactions for that card.
+ */
+public class LoginResult {
+
+    private final String name;
+
+    private final String cardNum;
+
+    private final TransactionList transactions;
+
+    private final String nextPage;
+
+    public LoginResult(String name, String cardNum, TransactionList transactions, String nextPage) {
+        this.name = name;
+        this.cardNum = cardNum;
+        this.transactions = transactions;
+        this.nextPage = nextPage;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCardNum() {
+        return cardNum;
+    }
+
+    public TransactionList getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * The URL of the next page of transactions, or null if {@link LoginResult#getTransactions()}
+     * already holds all of them.
+     */
+    public String getNextPage() {
+        return nextPage;
+    }
+}
@@ -0,0 +1,91 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.network.PrivateHeaders;
+
+/**
+ * A short-lived token the server hands out with a successful login, which can be sent instead
+ * of the credentials (see {@link LoginManager#setSessionToken(String)}) to fetch fresh data
+ * without signing in again, until it expires.
+ * <br>
+ * It comes in the {@link SessionToken#HEADER_TOKEN} and {@link SessionToken#HEADER_EXPIRES_IN}
+ * response headers, so it's the same whichever form the body is in, and a server which doesn't
+ * hand out tokens simply leaves them out. Each use of a token gets a new one back.
+ * <p>
+ * Those headers are kept out of the HTTP cache (see {@link SessionToken#newPrivateHeaders()}),
+ * so a "304 Not Modified" can't hand back a token from an earlier login which may since have
+ * been revoked or expired.
+ */
+public class SessionToken {
+
+    /**
+     * The response header holding the token.
+     */
+    public static final String HEADER_TOKEN = "Session-Token";
+
+    /**
+     * The response header holding how many seconds the token is good for.
+     */
+    public static final String HEADER_EXPIRES_IN = "Session-Expires-In";
+
+    /**
+     * A token this close to expiring is treated as expired already, so it isn't sent only to
+     * expire on the way.
+     */
+    private static final long EXPIRY_MARGIN_MILLIS = 30_000;
+
+    private final String token;
+
+    private final long expiresAt;
+
+    /**
+     * Takes in the token and when it expires, on the {@link System#currentTimeMillis()} clock
+     * (which, unlike the uptime clocks, still means something after a reboot).
+     */
+    public SessionToken(String token, long expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * A {@link PrivateHeaders} to tag a login request with, so its token headers are read
+     * straight from the network and never stored in the HTTP cache.
+     */
+    static PrivateHeaders newPrivateHeaders() {
+        return new PrivateHeaders(HEADER_TOKEN, HEADER_EXPIRES_IN);
+    }
+
+    /**
+     * The token the server sent, taken from the {@code headers} its request was tagged with, or
+     * null if it didn't send one.
+     */
+    static SessionToken from(PrivateHeaders headers) {
+        String token = headers.get(HEADER_TOKEN);
+        String expiresIn = headers.get(HEADER_EXPIRES_IN);
+        if (token == null || token.isEmpty() || expiresIn == null) {
+            return null;
+        }
+        try {
+            return new SessionToken(token, System.currentTimeMillis() + Long.parseLong(expiresIn.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * When the token expires, on the {@link System#currentTimeMillis()} clock.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Whether the token can still be used.
+     */
+    public boolean isValid() {
+        return System.currentTimeMillis() + EXPIRY_MARGIN_MILLIS < expiresAt;
+    }
+}
@@ -0,0 +1,166 @@
+package com.summit.summitproject.prebuilt.metrics;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how often values of each size were recorded, cheaply enough to do on every login in
+ * release builds.
+ * <br>
+ * Values go into power-of-two buckets: bucket 0 holds 0, and bucket {@code b} holds values from
+ * {@code 2^(b-1)} to {@code 2^b - 1}. Recording a value is a few atomic increments with no
+ * locking and no allocation, so it's safe to call from any thread, including the main thread.
+ * Percentiles are only as precise as the buckets -- within a factor of two -- which is plenty
+ * to tell a 20ms decode from a 2s fetch.
+ * <p>
+ * Reading it while values are still being recorded is allowed, but the figures may then be a
+ * value or two out of step with each other.
+ */
+public class Histogram {
+
+    /**
+     * One bucket for 0 and one per bit of a positive long.
+     */
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds {@code value}. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * How many values have been recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * The total of every value recorded.
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * The biggest value recorded, or 0 if there are none.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The average of the values recorded, or 0 if there are none.
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * An upper bound for the {@code percentile}th percentile (0 to 100) of the values recorded:
+     * the top of the bucket it falls in, but never more than {@link Histogram#getMax()}. 0 if
+     * there are none.
+     */
+    public long getPercentile(int percentile) {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long n : counts) {
+            total += n;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(upperBound(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every value recorded so far.
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets.set(b, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * The summary figures and every non-empty bucket, as
+     * {@code {"count":..,"sum":..,"mean":..,"max":..,"p50":..,"p90":..,"p99":..,
+     * "buckets":[{"le":..,"count":..},..]}}, where {@code le} is the biggest value in the bucket.
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("count", getCount());
+        json.put("sum", getSum());
+        json.put("mean", getMean());
+        json.put("max", getMax());
+        json.put("p50", getPercentile(50));
+        json.put("p90", getPercentile(90));
+        json.put("p99", getPercentile(99));
+        JSONArray nonEmpty = new JSONArray();
+        long[] counts = snapshot();
+        for (int b = 0; b < BUCKETS; b++) {
+            if (counts[b] > 0) {
+                JSONObject bucket = new JSONObject();
+                bucket.put("le", upperBound(b));
+                bucket.put("count", counts[b]);
+                nonEmpty.put(bucket);
+            }
+        }
+        json.put("buckets", nonEmpty);
+        return json;
+    }
+
+    private long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = buckets.get(b);
+        }
+        return counts;
+    }
+
+    private static int bucketOf(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * The biggest value which goes in {@code bucket}.
+     */
+    private static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,173 @@
+package com.summit.summitproject.prebuilt.metrics;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Times each phase of getting from "Sign In" to the transactions on screen, so a slow login can
+ * be pinned on the network, the decoding or the rendering.
+ * <br>
+ * Every {@link Metric} has a {@link Histogram}, kept for as long as the process lives. Timing a
+ * phase on one thread also marks it as a section in system traces (see {@link Trace}), so it
+ * shows up by name in Perfetto or systrace next to the framework's own sections:
+ * <pre>
+ * long startedAt = metrics.begin(Metric.DECODE);
+ * try {
+ *     ...
+ * } finally {
+ *     metrics.end(Metric.DECODE, startedAt);
+ * }
+ * </pre>
+ * Phases which start on one screen and end on another are timed by the caller and handed to
+ * {@link Metrics#record(Metric, long)}.
+ * <p>
+ * Recording is lock-free and doesn't allocate, and trace sections cost next to nothing while
+ * nobody is tracing, so this is left on in release builds. Debug builds can show the figures
+ * on screen and export them as JSON (see {@link Metrics#toJson()}). Safe to use from any thread.
+ */
+public class Metrics {
+
+    /**
+     * A phase of the login-to-summary path, or something measured along it.
+     */
+    public enum Metric {
+        /**
+         * From sending the login request until the response headers arrive, including any
+         * retries. A fetch which fails is counted up to when it failed.
+         */
+        FETCH("login.fetch", true),
+
+        /**
+         * The size of the login response body.
+         */
+        BYTES("login.bytes", false),
+
+        /**
+         * Decoding the login response body. It's decoded as it streams in, so this includes
+         * waiting for whatever of the body hadn't arrived with the headers.
+         */
+        DECODE("login.decode", true),
+
+        /**
+         * Filling in the summary screen from a login result, up to but not including drawing
+         * it.
+         */
+        MODEL_BUILD("summary.model", true),
+
+        /**
+         * From the login screen asking for the summary screen until the summary screen is
+         * created.
+         */
+        HANDOFF("summary.handoff", true),
+
+        /**
+         * From tapping "Sign In" until the summary screen's first frame with transactions in it.
+         */
+        FIRST_FRAME("summary.firstFrame", true),
+
+        /**
+         * The same as {@link Metric#FIRST_FRAME}, but from launching the app, when the last
+         * session was resumed with a session token instead of signing in.
+         */
+        RESUMED_FIRST_FRAME("summary.resumedFirstFrame", true);
+
+        private final String key;
+
+        private final boolean duration;
+
+        Metric(String key, boolean duration) {
+            this.key = key;
+            this.duration = duration;
+        }
+
+        /**
+         * The name used in JSON and as the trace section name.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Whether this is a duration in nanoseconds, rather than a number of bytes.
+         */
+        public boolean isDuration() {
+            return duration;
+        }
+    }
+
+    private final Histogram[] histograms = new Histogram[Metric.values().length];
+
+    public Metrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * A timestamp to measure durations from, in nanoseconds on the
+     * {@link SystemClock#elapsedRealtimeNanos()} clock, which is the same for every thread
+     * and screen.
+     */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Starts timing {@code metric} on this thread and opens a trace section for it. Returns the
+     * start time to hand to {@link Metrics#end(Metric, long)}, which must be called on the same
+     * thread.
+     */
+    public long begin(Metric metric) {
+        Trace.beginSection(metric.getKey());
+        return now();
+    }
+
+    /**
+     * Closes the trace section opened by {@link Metrics#begin(Metric)} and records how long it
+     * has been since {@code startedAt}.
+     */
+    public void end(Metric metric, long startedAt) {
+        record(metric, now() - startedAt);
+        Trace.endSection();
+    }
+
+    /**
+     * Records a value of {@code metric}: nanoseconds for durations, otherwise bytes.
+     */
+    public void record(Metric metric, long value) {
+        histograms[metric.ordinal()].record(value);
+    }
+
+    /**
+     * Everything recorded for {@code metric} so far.
+     */
+    public Histogram get(Metric metric) {
+        return histograms[metric.ordinal()];
+    }
+
+    /**
+     * Forgets everything recorded so far, e.g. before measuring a change.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Every metric, by {@link Metric#getKey()}, as {@link Histogram#toJson()} plus a
+     * {@code "unit"} of {@code "ns"} or {@code "bytes"}.
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        for (Metric metric : Metric.values()) {
+            JSONObject histogram = get(metric).toJson();
+            histogram.put("unit", metric.isDuration() ? "ns" : "bytes");
+            json.put(metric.getKey(), histogram);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,61 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Gives each distinct merchant name a small integer id, so a list of transactions can store
+ * an {@code int} per row instead of its own copy of the merchant's name. Most people shop at
+ * the same few places over and over, so there are far fewer merchants than transactions.
+ * <p>
+ * Ids are handed out in order starting from 0 and never change.
+ */
+class MerchantDictionary {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+
+    private int size;
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Returns the id for {@code name}, adding it to the dictionary if it's new.
+     */
+    int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+
+    /**
+     * The merchant name for a previously returned id.
+     */
+    String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * The array currently backing the dictionary, where index {@code id} holds that merchant's
+     * name. Entries already written are never changed, so a reader may keep using this array
+     * for the ids it knows about even after more merchants are added.
+     */
+    String[] names() {
+        return names;
+    }
+
+    /**
+     * How many distinct merchants are in the dictionary.
+     */
+    int size() {
+        return size;
+    }
+}
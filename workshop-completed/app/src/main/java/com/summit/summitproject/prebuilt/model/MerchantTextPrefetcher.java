@@ -0,0 +1,157 @@
+package com.summit.summitproject.prebuilt.model;
+
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Measures and lays out merchant names on a background thread ahead of the rows that show
+ * them, so the text doesn't have to be shaped on the main thread while the user scrolls.
+ * <p>
+ * Results are kept per merchant id, so each distinct merchant is only measured once no matter
+ * how many rows it appears on. On devices before Android 10 the result can't be handed to a
+ * TextView directly, but measuring it still fills the system's shared text layout cache, so
+ * showing the plain name afterwards is quicker.
+ * <p>
+ * Must only be used from the main thread.
+ */
+class MerchantTextPrefetcher {
+
+    /**
+     * The most merchant names kept. There are usually far fewer merchants than this.
+     */
+    private static final int MAX_ENTRIES = 512;
+
+    private final AppExecutors executors;
+
+    private final SparseArray<PrecomputedTextCompat> texts = new SparseArray<>();
+
+    /**
+     * Merchant ids being measured right now, so they aren't queued up twice.
+     */
+    private final SparseBooleanArray pending = new SparseBooleanArray();
+
+    /**
+     * The text style of the TextView the names will be shown in, or null until it's known.
+     */
+    private PrecomputedTextCompat.Params params;
+
+    /**
+     * Bumped when the cached names are thrown away, so that results still being measured with
+     * the old style are dropped.
+     */
+    private int generation;
+
+    MerchantTextPrefetcher(AppExecutors executors) {
+        this.executors = executors;
+    }
+
+    /**
+     * Sets the text style the names should be measured with. Anything measured with a
+     * different style is thrown away.
+     */
+    void setParams(PrecomputedTextCompat.Params params) {
+        if (!params.equals(this.params)) {
+            this.params = params;
+            clear();
+        }
+    }
+
+    /**
+     * Whether {@link MerchantTextPrefetcher#setParams} has been called yet.
+     */
+    boolean hasParams() {
+        return params != null;
+    }
+
+    /**
+     * The measured name of a merchant, or null if it hasn't been measured yet.
+     */
+    PrecomputedTextCompat get(int merchantId) {
+        return texts.get(merchantId);
+    }
+
+    /**
+     * Starts measuring, in one background task, the merchant names of rows {@code from}
+     * (inclusive) to {@code to} (exclusive) which haven't been measured yet. Out of range rows
+     * are ignored. Allocates nothing if every name is already measured or being measured.
+     */
+    void prefetch(TransactionList transactions, int from, int to) {
+        if (params == null) {
+            return;
+        }
+        from = Math.max(from, 0);
+        to = Math.min(to, transactions.size());
+
+        int[] merchantIds = null;
+        String[] names = null;
+        int count = 0;
+        for (int position = from; position < to; position++) {
+            int merchantId = transactions.getMerchantId(position);
+            if (texts.get(merchantId) != null || pending.get(merchantId)) {
+                continue;
+            }
+            if (merchantIds == null) {
+                merchantIds = new int[to - position];
+                names = new String[to - position];
+            }
+            pending.put(merchantId, true);
+            merchantIds[count] = merchantId;
+            names[count] = transactions.getMerchant(position);
+            count++;
+        }
+        if (count > 0) {
+            measure(merchantIds, names, count);
+        }
+    }
+
+    /**
+     * Throws away every measured name.
+     */
+    void clear() {
+        texts.clear();
+        pending.clear();
+        generation++;
+    }
+
+    private void measure(final int[] merchantIds, final String[] names, final int count) {
+        final PrecomputedTextCompat.Params params = this.params;
+        final int generation = this.generation;
+        try {
+            executors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    final PrecomputedTextCompat[] measured = new PrecomputedTextCompat[count];
+                    for (int i = 0; i < count; i++) {
+                        measured[i] = PrecomputedTextCompat.create(names[i], params);
+                    }
+                    executors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation != MerchantTextPrefetcher.this.generation) {
+                                return;
+                            }
+                            if (texts.size() + count > MAX_ENTRIES) {
+                                texts.clear();
+                            }
+                            for (int i = 0; i < count; i++) {
+                                pending.delete(merchantIds[i]);
+                                texts.put(merchantIds[i], measured[i]);
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too busy right now, so let the names be measured when their rows are shown
+            for (int i = 0; i < count; i++) {
+                pending.delete(merchantIds[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.util.Currency;
+
+/**
+ * An amount of money: a whole number of the currency's minor unit (e.g. cents for US dollars)
+ * plus the currency itself.
+ * <br>
+ * Amounts are kept as a {@code long} rather than a String or a floating point number, so adding
+ * and comparing them is exact and needs no parsing. Use {@link MoneyFormatter} to display one.
+ * <p>
+ * Immutable. Amounts in different currencies can't be added or compared.
+ */
+public final class Money implements Comparable<Money> {
+
+    private final long minorUnits;
+
+    private final Currency currency;
+
+    public Money(long minorUnits, Currency currency) {
+        if (currency == null) {
+            throw new NullPointerException("currency == null");
+        }
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    /**
+     * The amount in the currency's minor unit, e.g. 140 for $1.40.
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    /**
+     * The sum of this amount and {@code other}.
+     *
+     * @throws IllegalArgumentException if {@code other} is in a different currency.
+     * @throws ArithmeticException if the sum doesn't fit in a {@code long}.
+     */
+    public Money plus(Money other) {
+        checkSameCurrency(other);
+        return new Money(add(minorUnits, other.minorUnits), currency);
+    }
+
+    /**
+     * Adds two amounts of minor units, failing rather than silently wrapping around on overflow.
+     * For summing many amounts without creating a {@link Money} for each.
+     *
+     * @throws ArithmeticException if the sum doesn't fit in a {@code long}.
+     */
+    public static long add(long a, long b) {
+        long sum = a + b;
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            throw new ArithmeticException("Amount overflow");
+        }
+        return sum;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code other} is in a different currency.
+     */
+    @Override
+    public int compareTo(Money other) {
+        checkSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void checkSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Mixed currencies: " + currency + " and " + other.currency);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * currency.hashCode() + (int) (minorUnits ^ (minorUnits >>> 32));
+    }
+
+    /**
+     * The amount formatted for display, e.g. "$1,250.40".
+     */
+    @Override
+    public String toString() {
+        return MoneyFormatter.forCurrency(currency).format(minorUnits);
+    }
+}
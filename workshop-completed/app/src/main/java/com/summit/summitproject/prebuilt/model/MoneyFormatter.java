@@ -0,0 +1,171 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Formats amounts of a single currency for display, e.g. "$1,250.40" or "-$1.40", and reads the
+ * currency back out of the symbol in front of an amount.
+ * <br>
+ * Amounts are written straight into a {@code char[]}, so formatting a row allocates nothing.
+ * There's one shared, immutable formatter per currency (see
+ * {@link MoneyFormatter#forCurrency(Currency)}), so the symbol and number of decimal places are
+ * only looked up once.
+ * <p>
+ * Symbols are the ones used in the US, matching the server: e.g. "$" is US dollars, and other
+ * dollars have their own prefix such as "CA$".
+ */
+public final class MoneyFormatter {
+
+    /**
+     * The currency of amounts sent without a symbol.
+     */
+    static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    /**
+     * The locale symbols are written and read in.
+     */
+    private static final Locale SYMBOL_LOCALE = Locale.US;
+
+    private static final ConcurrentHashMap<Currency, MoneyFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private final String symbol;
+
+    private final int fractionDigits;
+
+    /**
+     * 10 to the power of {@link MoneyFormatter#fractionDigits}: how many minor units make up one
+     * whole unit.
+     */
+    private final long minorUnitsPerUnit;
+
+    private MoneyFormatter(Currency currency) {
+        symbol = currency.getSymbol(SYMBOL_LOCALE);
+        // Some currency codes (e.g. precious metals) have no decimal places defined
+        fractionDigits = Math.max(currency.getDefaultFractionDigits(), 0);
+        long perUnit = 1;
+        for (int i = 0; i < fractionDigits; i++) {
+            perUnit *= 10;
+        }
+        minorUnitsPerUnit = perUnit;
+    }
+
+    /**
+     * The shared formatter for {@code currency}.
+     */
+    public static MoneyFormatter forCurrency(Currency currency) {
+        MoneyFormatter formatter = FORMATTERS.get(currency);
+        if (formatter == null) {
+            formatter = new MoneyFormatter(currency);
+            MoneyFormatter existing = FORMATTERS.putIfAbsent(currency, formatter);
+            if (existing != null) {
+                formatter = existing;
+            }
+        }
+        return formatter;
+    }
+
+    /**
+     * The currency written with {@code symbol}, e.g. US dollars for "$". An empty symbol is
+     * {@link MoneyFormatter#DEFAULT_CURRENCY}.
+     *
+     * @throws NumberFormatException if no currency uses that symbol.
+     */
+    static Currency currencyForSymbol(String symbol) {
+        if (symbol.isEmpty()) {
+            return DEFAULT_CURRENCY;
+        }
+        Currency currency = SymbolTable.CURRENCIES.get(symbol);
+        if (currency == null) {
+            throw new NumberFormatException("Unsupported currency: " + symbol);
+        }
+        return currency;
+    }
+
+    /**
+     * How many digits come after the decimal point, e.g. 2 for US dollars.
+     */
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
+
+    /**
+     * Writes {@code minorUnits} formatted for display (e.g. "$1,250.40") into {@code out} and
+     * returns how many chars were written. {@code out} must hold at least
+     * {@link TransactionStore#MAX_AMOUNT_CHARS} chars.
+     */
+    public int format(long minorUnits, char[] out) {
+        int length = 0;
+
+        // Work with the magnitude as a negative number, so Long.MIN_VALUE doesn't overflow
+        long negated = minorUnits;
+        if (minorUnits < 0) {
+            out[length++] = '-';
+        } else {
+            negated = -minorUnits;
+        }
+        for (int i = 0; i < symbol.length(); i++) {
+            out[length++] = symbol.charAt(i);
+        }
+
+        // Whole units, with a comma between every group of three digits, filled in backwards
+        long whole = negated / minorUnitsPerUnit;
+        int digits = 1;
+        for (long remaining = whole / 10; remaining != 0; remaining /= 10) {
+            digits++;
+        }
+        int end = length + digits + (digits - 1) / 3;
+        int index = end;
+        int written = 0;
+        do {
+            if (written > 0 && written % 3 == 0) {
+                out[--index] = ',';
+            }
+            out[--index] = (char) ('0' - whole % 10);
+            whole /= 10;
+            written++;
+        } while (whole != 0);
+        length = end;
+
+        if (fractionDigits > 0) {
+            long fraction = negated % minorUnitsPerUnit;
+            out[length++] = '.';
+            for (int i = fractionDigits - 1; i >= 0; i--) {
+                out[length + i] = (char) ('0' - fraction % 10);
+                fraction /= 10;
+            }
+            length += fractionDigits;
+        }
+        return length;
+    }
+
+    /**
+     * {@code minorUnits} formatted for display, e.g. "$1,250.40". Allocates, so prefer
+     * {@link MoneyFormatter#format(long, char[])} for anything done per row.
+     */
+    public String format(long minorUnits) {
+        char[] out = new char[TransactionStore.MAX_AMOUNT_CHARS];
+        return new String(out, 0, format(minorUnits, out));
+    }
+
+    /**
+     * Maps each currency symbol to its currency. Built the first time a symbol is looked up.
+     */
+    private static class SymbolTable {
+
+        static final HashMap<String, Currency> CURRENCIES = new HashMap<>();
+
+        static {
+            // "$" could be one of several dollars; it's the server's own currency first
+            CURRENCIES.put(DEFAULT_CURRENCY.getSymbol(SYMBOL_LOCALE), DEFAULT_CURRENCY);
+            for (Currency currency : Currency.getAvailableCurrencies()) {
+                String symbol = currency.getSymbol(SYMBOL_LOCALE);
+                if (!CURRENCIES.containsKey(symbol)) {
+                    CURRENCIES.put(symbol, currency);
+                }
+            }
+        }
+    }
+}
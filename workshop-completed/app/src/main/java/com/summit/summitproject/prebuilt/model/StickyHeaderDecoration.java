@@ -0,0 +1,108 @@
+package com.summit.summitproject.prebuilt.model;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Keeps the header of the section at the top of a {@link TransactionAdapter}'s list pinned in
+ * place while its rows scroll underneath, until the next section's header pushes it off.
+ * <br>
+ * The pinned header is a copy which is only drawn, not part of the list: it's created once and
+ * only re-bound and measured when the section at the top changes, so scrolling within a section
+ * costs a single draw. Does nothing for lists without sections.
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    private final TransactionAdapter adapter;
+
+    /**
+     * The pinned header, or null until it's first needed.
+     */
+    private TransactionAdapter.HeaderViewHolder header;
+
+    /**
+     * What {@link StickyHeaderDecoration#header} was last bound to, so it's only re-bound when
+     * that changes.
+     */
+    private TransactionList boundTransactions;
+
+    private TransactionSections boundSections;
+
+    private int boundSection = -1;
+
+    private int boundWidth;
+
+    /**
+     * Takes in the adapter of the list to pin headers for.
+     */
+    public StickyHeaderDecoration(TransactionAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas canvas, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        TransactionSections sections = adapter.getSections();
+        if (sections.getSectionCount() == 0 || parent.getChildCount() == 0) {
+            return;
+        }
+        View first = parent.getChildAt(0);
+        int position = parent.getChildAdapterPosition(first);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int top = parent.getPaddingTop();
+        if (sections.isHeader(position) && first.getTop() >= top) {
+            // The section's own header is in place already
+            return;
+        }
+
+        int section = sections.getSection(position);
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        bind(parent, section, width);
+
+        // The next section's header pushes this one up as it reaches it
+        int headerHeight = header.itemView.getHeight();
+        int offset = 0;
+        for (int i = 1; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            if (child.getTop() >= top + headerHeight) {
+                break;
+            }
+            int childPosition = parent.getChildAdapterPosition(child);
+            if (childPosition != RecyclerView.NO_POSITION && childPosition > position && sections.isHeader(childPosition)) {
+                offset = child.getTop() - (top + headerHeight);
+                break;
+            }
+        }
+
+        int save = canvas.save();
+        canvas.translate(parent.getPaddingLeft(), top + offset);
+        header.itemView.draw(canvas);
+        canvas.restoreToCount(save);
+    }
+
+    private void bind(RecyclerView parent, int section, int width) {
+        if (header == null) {
+            header = adapter.createHeader(parent);
+        }
+        TransactionList transactions = adapter.getTransactions();
+        TransactionSections sections = adapter.getSections();
+        if (transactions == boundTransactions && sections == boundSections && section == boundSection && width == boundWidth) {
+            return;
+        }
+        adapter.bindHeader(header, section);
+        View view = header.itemView;
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+        );
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        boundTransactions = transactions;
+        boundSections = sections;
+        boundSection = section;
+        boundWidth = width;
+    }
+}
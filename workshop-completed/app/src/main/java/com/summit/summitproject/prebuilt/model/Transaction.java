@@ -1,26 +1,36 @@
 package com.summit.summitproject.prebuilt.model;
 
-import java.io.Serializable;
-
 /**
  * Represents a simple credit card transaction -- containing the merchant and the amount.
+ * <br>
+ * The amount is a {@link Money}, so it can be added up and compared without parsing it.
+ * <br>
+ * The id identifies the transaction across refreshes of the list, so the same transaction
+ * keeps the same id even if its position or details change.
  */
-public class Transaction implements Serializable {
+public class Transaction {
+
+    private final long id;
 
     private final String merchant;
 
-    private final String amount;
+    private final Money amount;
 
-    public Transaction(String merchant, String amount) {
+    public Transaction(long id, String merchant, Money amount) {
+        this.id = id;
         this.merchant = merchant;
         this.amount = amount;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public String getMerchant() {
         return merchant;
     }
 
-    public String getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
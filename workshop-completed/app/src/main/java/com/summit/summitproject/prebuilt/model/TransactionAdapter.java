@@ -1,28 +1,80 @@
 package com.summit.summitproject.prebuilt.model;
 
+import android.os.Build;
 import androidx.annotation.NonNull;
-import androidx.cardview.widget.CardView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import com.summit.summitproject.R;
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
 
-import java.util.List;
+import java.util.Currency;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A {@link RecyclerView.Adapter} is used with a {@link RecyclerView}. It takes in the data which
  * should be displayed in the list and tells the UI how each individual piece of data should be
  * rendered.
+ * <br>
+ * Rows have stable ids (see {@link TransactionList#getId(int)}), and a refreshed list is
+ * compared against the current one on a background thread with {@link DiffUtil}, so only the
+ * rows which actually changed are re-bound and the scroll position is kept.
+ * <br>
+ * Merchant names for the rows around the ones being bound are measured ahead of time on a
+ * background thread (see {@link MerchantTextPrefetcher}), so they're ready by the time they
+ * scroll into view.
+ * <br>
+ * The list can be split into {@link TransactionSections}, e.g. one per merchant, each with a
+ * header row before it. A {@link StickyHeaderDecoration} keeps the current section's header at
+ * the top of the list.
  */
-public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.ViewHolder> {
+public class TransactionAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     /**
-     * The list of credit card transactions which will be adapted to the UI.
+     * How many rows either side of a row being bound to measure merchant names for. This reaches
+     * past RecyclerView's own prefetch, which binds the next row or two before they're needed.
      */
-    private List<Transaction> transactions;
+    private static final int TEXT_PREFETCH_ROWS = 12;
+
+    /**
+     * The most rows (old and new together) which are compared row by row when the list is
+     * replaced. Comparing takes time proportional to the number of rows times the number of
+     * differences, so beyond this the whole list is simply redrawn.
+     */
+    private static final int MAX_DIFF_ROWS = 10000;
+
+    /**
+     * Section headers' ids are this plus their merchant id. Transaction ids are hashes, so one
+     * clashing with a header is vanishingly unlikely -- and would only cost an animation.
+     */
+    private static final long HEADER_ID = Long.MIN_VALUE;
+
+    /**
+     * Returned by {@link TransactionAdapter#bind} when the row's merchant needs setting.
+     */
+    static final int MERCHANT_CHANGED = 1;
+
+    /**
+     * Returned by {@link TransactionAdapter#bind} when the row's amount needs setting.
+     */
+    static final int AMOUNT_CHANGED = 2;
+
+    /**
+     * The list of credit card transactions which will be adapted to the UI. Never changed once
+     * it's handed over -- a new list is swapped in instead -- so it can also be read on other
+     * threads, and rows can be bound without allocating.
+     */
+    private TransactionList transactions;
+
+    /**
+     * The sections {@link TransactionAdapter#transactions} is split into. Swapped along with it.
+     */
+    private TransactionSections sections = TransactionSections.NONE;
 
     /**
      * A listener to deliver callbacks to whenever a transaction in the list is clicked.
@@ -30,74 +82,482 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     private TransactionClickedListener listener;
 
     /**
-     * Takes in the list of transactions that should be rendered and a listener to receive callbacks
-     * if the user clicks on a particular row.
+     * Used to compare a refreshed list against the current one off the main thread.
+     */
+    private final AppExecutors executors;
+
+    /**
+     * Measures merchant names off the main thread before their rows are shown.
      */
-    public TransactionAdapter(List<Transaction> transactions, TransactionClickedListener listener) {
+    private final MerchantTextPrefetcher merchantTexts;
+
+    /**
+     * Where rows come from, so they can be inflated ahead of time and shared between lists.
+     */
+    private final TransactionViewPool viewPool;
+
+    /**
+     * Bumped by every {@link TransactionAdapter#submitTransactions(TransactionList)}, so that
+     * only the result of the latest one is applied.
+     */
+    private int submitGeneration;
+
+    /**
+     * Bumped by every {@link TransactionAdapter#appendTransactions(TransactionList)}, so a
+     * comparison which started before rows were appended is known to be out of date.
+     */
+    private int appendGeneration;
+
+    /**
+     * Whether a list passed to {@link TransactionAdapter#submitTransactions(TransactionList)} is
+     * still being compared with the current one.
+     */
+    private boolean submitPending;
+
+    /**
+     * Takes in the list of transactions that should be rendered, the threads to compare refreshed
+     * lists on, the pool rows are shared through and a listener to receive callbacks if the user
+     * clicks on a particular row.
+     * <br>
+     * The list showing this adapter should use {@link TransactionViewPool#getPool()} as its
+     * {@link RecyclerView.RecycledViewPool}.
+     * <p>
+     * Every list given to the adapter must come from the same {@link TransactionStore} (e.g. its
+     * {@link TransactionStore#snapshot()}s, or {@link TransactionListView}s of them), so merchant
+     * ids mean the same thing in all of them, and must not change after it's handed over.
+     */
+    public TransactionAdapter(TransactionList transactions, AppExecutors executors, TransactionViewPool viewPool, TransactionClickedListener listener) {
         this.transactions = transactions;
+        this.executors = executors;
+        this.viewPool = viewPool;
+        this.merchantTexts = new MerchantTextPrefetcher(executors);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     /**
-     * Called when the UI needs the a new row (at {position}) to be <b>created</b>. In this case,
-     * all of our rows look the same, so we just inflate the same layout for all rows.
+     * Replaces every row with {@code newTransactions}, without sections, e.g. after the data has
+     * been refreshed. See {@link TransactionAdapter#submitTransactions(TransactionList, TransactionSections)}.
+     */
+    public void submitTransactions(TransactionList newTransactions) {
+        submitTransactions(newTransactions, TransactionSections.NONE);
+    }
+
+    /**
+     * Replaces every row with {@code newTransactions}, split into {@code newSections}, e.g.
+     * after the data has been refreshed or re-sorted.
      * <br>
-     * The new row isn't filled with data yet, that's done by
-     * {@link TransactionAdapter#onBindViewHolder(ViewHolder, int)}
+     * The two lists are compared on a background thread and only the rows which were added,
+     * removed or changed are updated once that finishes. Very long lists are redrawn instead.
+     * Must be called on the main thread.
+     */
+    public void submitTransactions(final TransactionList newTransactions, final TransactionSections newSections) {
+        final int generation = ++submitGeneration;
+        final int appendsAtStart = appendGeneration;
+        final TransactionList oldTransactions = transactions;
+        final TransactionSections oldSections = sections;
+        submitPending = false;
+
+        if (newTransactions == oldTransactions && newSections == oldSections) {
+            return;
+        }
+        if (oldSections.getItemCount(oldTransactions.size()) + newSections.getItemCount(newTransactions.size()) > MAX_DIFF_ROWS) {
+            transactions = newTransactions;
+            sections = newSections;
+            notifyDataSetChanged();
+            return;
+        }
+
+        try {
+            executors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    final DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new TransactionDiffCallback(oldTransactions, oldSections, newTransactions, newSections), false);
+                    executors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation != submitGeneration) {
+                                // A newer list was submitted in the meantime
+                                return;
+                            }
+                            submitPending = false;
+                            transactions = newTransactions;
+                            sections = newSections;
+                            if (appendGeneration != appendsAtStart) {
+                                // Rows were appended while comparing, so the diff no longer
+                                // matches what's on screen
+                                notifyDataSetChanged();
+                            } else {
+                                diff.dispatchUpdatesTo(TransactionAdapter.this);
+                            }
+                        }
+                    });
+                }
+            });
+            submitPending = true;
+        } catch (RejectedExecutionException e) {
+            // Too busy to compare the lists, so just redraw everything
+            transactions = newTransactions;
+            sections = newSections;
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Shows {@code newTransactions}, which must be the rows already shown with more added to the
+     * end -- e.g. after another page was loaded. Only the new rows are created and bound, the
+     * rows already on screen are left alone.
+     * <br>
+     * If a list passed to {@link TransactionAdapter#submitTransactions(TransactionList)} is still
+     * being compared, {@code newTransactions} must instead start with that list's rows, and
+     * replaces it straight away. Only lists without sections can be appended to.
+     */
+    public void appendTransactions(TransactionList newTransactions) {
+        if (submitPending) {
+            // What's on screen isn't the start of the new list yet, so redraw everything
+            submitGeneration++;
+            submitPending = false;
+            transactions = newTransactions;
+            sections = TransactionSections.NONE;
+            appendGeneration++;
+            notifyDataSetChanged();
+            return;
+        }
+        if (sections.getSectionCount() > 0) {
+            throw new IllegalStateException("Can't append to a list with sections");
+        }
+        int start = transactions.size();
+        transactions = newTransactions;
+        appendGeneration++;
+        notifyItemRangeInserted(start, newTransactions.size() - start);
+    }
+
+    /**
+     * The rows currently shown. Never changes, so it can be read on another thread.
+     */
+    public TransactionList getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * The sections the rows currently shown are split into.
+     */
+    public TransactionSections getSections() {
+        return sections;
+    }
+
+    /**
+     * Whether the item at {position} is a transaction row or a section header.
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return sections.isHeader(position) ? TransactionViewPool.VIEW_TYPE_HEADER : TransactionViewPool.VIEW_TYPE_TRANSACTION;
+    }
+
+    /**
+     * Called when the UI needs the a new row (at {position}) to be <b>created</b>. All of our
+     * transaction rows look the same, so we just inflate the same layout for all of them, and
+     * likewise for section headers.
+     * <br>
+     * Only called once the shared {@link TransactionViewPool} has run out of rows. The new row
+     * isn't filled with data yet, that's done by
+     * {@link TransactionAdapter#onBindViewHolder(RecyclerView.ViewHolder, int)}
      */
     @NonNull
     @Override
-    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.view_transaction, parent, false);
-        return new ViewHolder(view);
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == TransactionViewPool.VIEW_TYPE_HEADER) {
+            return createHeader(parent);
+        }
+        return viewPool.createRow(parent);
+    }
+
+    /**
+     * Creates a section header, either for the list or for a {@link StickyHeaderDecoration}.
+     */
+    HeaderViewHolder createHeader(ViewGroup parent) {
+        return viewPool.createHeader(parent);
+    }
+
+    /**
+     * Fills in a section header with the merchant and total of {@code section}.
+     */
+    void bindHeader(HeaderViewHolder holder, int section) {
+        int start = sections.getSectionStart(section);
+        holder.merchant.setText(transactions.getMerchant(start));
+        holder.total.setText(MoneyFormatter.forCurrency(transactions.getCurrency()).format(sections.getSectionTotal(section)));
     }
 
     /**
      * Called when the UI needs the next row (at {position}) to be <b>filled with data</b> rendered
      * and passes the {@link ViewHolder} which should be filled with data.
+     * <br>
+     * This runs for every row scrolled onto the screen, so it allocates nothing: the click
+     * listener was set up once when the row was created, the merchant name is shared by every
+     * row with that merchant, and the amount is formatted into the holder's own buffer. A row
+     * which is re-bound with what it already shows isn't touched at all. Merchant names measured
+     * ahead of time are used when they're ready.
      */
     @Override
-    public void onBindViewHolder(@NonNull final ViewHolder holder, int position) {
-        // Use the transaction at index {position} to set up the row's UI widgets
-        holder.merchant.setText(transactions.get(position).getMerchant());
-        holder.amount.setText(transactions.get(position).getAmount());
-        holder.cardView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                // Inform the click listener that this row was clicked and pass the Transaction
-                // associated with this row.
-                if (listener != null) {
-                    listener.onTransactionClicked(transactions.get(holder.getAdapterPosition()));
-                }
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position) {
+        if (viewHolder instanceof HeaderViewHolder) {
+            bindHeader((HeaderViewHolder) viewHolder, sections.getSection(position));
+            return;
+        }
+        ViewHolder holder = (ViewHolder) viewHolder;
+        holder.adapter = this;
+        if (!merchantTexts.hasParams()) {
+            // Every row styles its merchant the same, so the first one tells us how to measure
+            merchantTexts.setParams(TextViewCompat.getTextMetricsParams(holder.merchant));
+        }
+
+        // Use the transaction shown at {position} to set up the row's UI widgets
+        BoundRow bound = holder.bound;
+        int changed = bind(transactions, sections, position, bound);
+        if ((changed & MERCHANT_CHANGED) != 0) {
+            PrecomputedTextCompat measured = merchantTexts.get(bound.merchantId);
+            if (measured != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                TextViewCompat.setPrecomputedText(holder.merchant, measured);
+            } else {
+                // Before Android 10, measuring ahead only warmed up the text layout cache
+                holder.merchant.setText(transactions.getMerchant(bound.row));
             }
-        });
+        }
+        if ((changed & AMOUNT_CHANGED) != 0) {
+            holder.amount.setText(bound.amountChars, 0, bound.amountLength);
+        }
+
+        merchantTexts.prefetch(transactions, bound.row - TEXT_PREFETCH_ROWS, bound.row + TEXT_PREFETCH_ROWS + 1);
+    }
+
+    /**
+     * The data half of binding the transaction row at {@code position}: reads it into
+     * {@code bound}, formatting its amount into {@code bound}'s buffer, and returns which of
+     * {@link TransactionAdapter#MERCHANT_CHANGED} and {@link TransactionAdapter#AMOUNT_CHANGED}
+     * differ from what {@code bound} held before and so need setting on the row's views.
+     * Allocates nothing.
+     */
+    static int bind(TransactionList transactions, TransactionSections sections, int position, BoundRow bound) {
+        int row = sections.getRow(position);
+        bound.row = row;
+        int changed = 0;
+
+        int merchantId = transactions.getMerchantId(row);
+        if (merchantId != bound.merchantId) {
+            bound.merchantId = merchantId;
+            changed |= MERCHANT_CHANGED;
+        }
+
+        long amountCents = transactions.getAmountCents(row);
+        Currency currency = transactions.getCurrency();
+        if (amountCents != bound.amountCents || !currency.equals(bound.currency)) {
+            bound.amountLength = transactions.formatAmount(row, bound.amountChars);
+            bound.amountCents = amountCents;
+            bound.currency = currency;
+            changed |= AMOUNT_CHANGED;
+        }
+        return changed;
+    }
+
+    /**
+     * Called when a row scrolls out of view and goes back to the shared pool, where it may be
+     * picked up by another list. Forgets what it was showing and which adapter it belonged to.
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder viewHolder) {
+        if (viewHolder instanceof ViewHolder) {
+            ViewHolder holder = (ViewHolder) viewHolder;
+            holder.adapter = null;
+            holder.bound.reset();
+        }
+    }
+
+    /**
+     * Called by a row when it's clicked.
+     */
+    private void onRowClicked(int position) {
+        // Inform the click listener that this row was clicked and pass the Transaction
+        // associated with this row.
+        if (listener != null && position != RecyclerView.NO_POSITION) {
+            listener.onTransactionClicked(transactions.get(sections.getRow(position)));
+        }
     }
 
     /**
-     * Used to determine how many rows the list should be in total.
+     * The stable id of the row at {@code position}, so the list can keep track of a row when
+     * rows around it are added, removed or moved.
+     */
+    @Override
+    public long getItemId(int position) {
+        return getItemId(transactions, sections, position);
+    }
+
+    private static long getItemId(TransactionList transactions, TransactionSections sections, int position) {
+        int section = sections.getSection(position);
+        if (section != -1 && sections.getHeaderPosition(section) == position) {
+            return HEADER_ID + transactions.getMerchantId(sections.getSectionStart(section));
+        }
+        return transactions.getId(sections.getRow(position));
+    }
+
+    /**
+     * Used to determine how many rows the list should be in total, including section headers.
      */
     @Override
     public int getItemCount() {
-        return transactions.size();
+        return sections.getItemCount(transactions.size());
     }
 
     /**
      * Holds the UI widgets which will comprise a single row in the list (to render
      * a {@link Transaction}).
      */
-    static class ViewHolder extends RecyclerView.ViewHolder {
+    static class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+
+        /**
+         * The adapter this row is currently bound by, or null while it's in the pool.
+         */
+        TransactionAdapter adapter;
 
-        CardView cardView;
+        View container;
 
         TextView merchant;
 
         TextView amount;
 
+        /**
+         * What this row currently shows. Forgotten when the row goes back to the pool.
+         */
+        final BoundRow bound = new BoundRow();
+
         ViewHolder(View rootView) {
             super(rootView);
-            cardView = rootView.findViewById(R.id.card_container);
+            container = rootView.findViewById(R.id.card_container);
             merchant = rootView.findViewById(R.id.merchant);
             amount = rootView.findViewById(R.id.amount);
+            // Set up once here rather than on every bind
+            container.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View v) {
+            if (adapter != null) {
+                adapter.onRowClicked(getAdapterPosition());
+            }
+        }
+    }
+
+    /**
+     * What a transaction row currently shows, so binding it to the same values again can be
+     * skipped. Every list an adapter shows shares merchant ids.
+     */
+    static class BoundRow {
+
+        /**
+         * Reused for formatting the row's amount every time it is bound. Each row needs its own,
+         * since the TextView keeps pointing at the chars it was given.
+         */
+        final char[] amountChars = new char[TransactionStore.MAX_AMOUNT_CHARS];
+
+        /**
+         * How many of {@link BoundRow#amountChars} the amount takes up.
+         */
+        int amountLength;
+
+        /**
+         * The row of the list bound last.
+         */
+        int row;
+
+        int merchantId;
+
+        long amountCents;
+
+        Currency currency;
+
+        BoundRow() {
+            reset();
+        }
+
+        /**
+         * Forgets what was shown, so the next bind sets everything.
+         */
+        void reset() {
+            merchantId = -1;
+            amountCents = Long.MIN_VALUE;
+            currency = null;
+        }
+    }
+
+    /**
+     * Holds the UI widgets of a section header.
+     */
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+
+        TextView merchant;
+
+        TextView total;
+
+        HeaderViewHolder(View rootView) {
+            super(rootView);
+            merchant = rootView.findViewById(R.id.header_merchant);
+            total = rootView.findViewById(R.id.header_total);
+        }
+    }
+
+    /**
+     * Compares two lists of transactions for {@link DiffUtil}: rows are the same transaction if
+     * they have the same id, and look the same if the merchant and amount match. Headers are the
+     * same if they're for the same merchant, and look the same if the total matches.
+     */
+    private static class TransactionDiffCallback extends DiffUtil.Callback {
+
+        private final TransactionList oldTransactions;
+
+        private final TransactionSections oldSections;
+
+        private final TransactionList newTransactions;
+
+        private final TransactionSections newSections;
+
+        TransactionDiffCallback(TransactionList oldTransactions, TransactionSections oldSections, TransactionList newTransactions, TransactionSections newSections) {
+            this.oldTransactions = oldTransactions;
+            this.oldSections = oldSections;
+            this.newTransactions = newTransactions;
+            this.newSections = newSections;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldSections.getItemCount(oldTransactions.size());
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newSections.getItemCount(newTransactions.size());
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return getItemId(oldTransactions, oldSections, oldItemPosition) == getItemId(newTransactions, newSections, newItemPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            if (!oldTransactions.getCurrency().equals(newTransactions.getCurrency())) {
+                return false;
+            }
+            boolean oldHeader = oldSections.isHeader(oldItemPosition);
+            if (oldHeader != newSections.isHeader(newItemPosition)) {
+                return false;
+            }
+            if (oldHeader) {
+                return oldSections.getSectionTotal(oldSections.getSection(oldItemPosition)) == newSections.getSectionTotal(newSections.getSection(newItemPosition));
+            }
+            int oldRow = oldSections.getRow(oldItemPosition);
+            int newRow = newSections.getRow(newItemPosition);
+            return oldTransactions.getAmountCents(oldRow) == newTransactions.getAmountCents(newRow)
+                    && oldTransactions.getMerchant(oldRow).equals(newTransactions.getMerchant(newRow));
         }
     }
 
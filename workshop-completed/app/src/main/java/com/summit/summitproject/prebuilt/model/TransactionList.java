@@ -0,0 +1,73 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.util.Currency;
+
+/**
+ * A read-only list of credit card transactions, exposed column by column so that it can be
+ * read without creating a {@link Transaction} object per row.
+ */
+public interface TransactionList {
+
+    /**
+     * How many transactions are in the list.
+     */
+    int size();
+
+    /**
+     * A stable id for the transaction at {@code position}, which stays the same when the list
+     * is refreshed and the transaction moves or changes.
+     */
+    long getId(int position);
+
+    /**
+     * The merchant of the transaction at {@code position}. Rows with the same merchant return
+     * the same String instance.
+     */
+    String getMerchant(int position);
+
+    /**
+     * A small id which is the same for every row with the same merchant (within this list).
+     */
+    int getMerchantId(int position);
+
+    /**
+     * One more than the largest merchant id in this list, so merchant ids can index an array of
+     * this size.
+     */
+    int getMerchantCount();
+
+    /**
+     * The amount of the transaction at {@code position}, in minor units of
+     * {@link TransactionList#getCurrency()} -- cents for dollars. Use this rather than
+     * {@link TransactionList#getAmount(int)} for sums and comparisons over many rows.
+     */
+    long getAmountCents(int position);
+
+    /**
+     * The currency of every amount in this list.
+     */
+    Currency getCurrency();
+
+    /**
+     * The amount of the transaction at {@code position} as a {@link Money}. Allocates.
+     */
+    Money getAmount(int position);
+
+    /**
+     * The sum of every amount in this list.
+     */
+    Money getTotal();
+
+    /**
+     * Writes the amount of the transaction at {@code position}, formatted for display (e.g.
+     * "$1.40"), into {@code out} starting at index 0 and returns how many chars were written.
+     * {@code out} must hold at least {@link TransactionStore#MAX_AMOUNT_CHARS} chars.
+     */
+    int formatAmount(int position, char[] out);
+
+    /**
+     * Builds a {@link Transaction} object for a single row. Allocates, so don't use this for
+     * every row of a large list.
+     */
+    Transaction get(int position);
+}
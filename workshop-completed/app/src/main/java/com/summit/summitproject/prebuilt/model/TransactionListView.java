@@ -0,0 +1,103 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.util.Currency;
+
+/**
+ * A read-only view of some of the rows of another {@link TransactionList}, in any order -- e.g.
+ * the results of a search, or the list sorted a different way.
+ * <br>
+ * Only the row numbers are stored, so a view of a large list costs 4 bytes per row and nothing
+ * is copied. Merchant ids are the same as in the underlying list.
+ * <p>
+ * Neither the underlying list nor the row numbers may change once the view is created.
+ */
+public class TransactionListView implements TransactionList {
+
+    private final TransactionList transactions;
+
+    private final int[] rows;
+
+    private final int size;
+
+    /**
+     * Takes in the underlying list and the first {@code size} entries of {@code rows}: the row
+     * of the underlying list to show at each position.
+     */
+    public TransactionListView(TransactionList transactions, int[] rows, int size) {
+        if (size < 0 || size > rows.length) {
+            throw new IllegalArgumentException("Size " + size + ", rows " + rows.length);
+        }
+        this.transactions = transactions;
+        this.rows = rows;
+        this.size = size;
+    }
+
+    /**
+     * The row of the underlying list shown at {@code position}.
+     */
+    public int getRow(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+        return rows[position];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getId(int position) {
+        return transactions.getId(getRow(position));
+    }
+
+    @Override
+    public String getMerchant(int position) {
+        return transactions.getMerchant(getRow(position));
+    }
+
+    @Override
+    public int getMerchantId(int position) {
+        return transactions.getMerchantId(getRow(position));
+    }
+
+    @Override
+    public int getMerchantCount() {
+        return transactions.getMerchantCount();
+    }
+
+    @Override
+    public long getAmountCents(int position) {
+        return transactions.getAmountCents(getRow(position));
+    }
+
+    @Override
+    public Currency getCurrency() {
+        return transactions.getCurrency();
+    }
+
+    @Override
+    public Money getAmount(int position) {
+        return transactions.getAmount(getRow(position));
+    }
+
+    @Override
+    public Money getTotal() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total = Money.add(total, transactions.getAmountCents(rows[i]));
+        }
+        return new Money(total, getCurrency());
+    }
+
+    @Override
+    public int formatAmount(int position, char[] out) {
+        return transactions.formatAmount(getRow(position), out);
+    }
+
+    @Override
+    public Transaction get(int position) {
+        return transactions.get(getRow(position));
+    }
+}
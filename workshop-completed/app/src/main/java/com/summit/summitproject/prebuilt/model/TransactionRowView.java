@@ -0,0 +1,132 @@
+package com.summit.summitproject.prebuilt.model;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * The container for a single row in the transactions list: an icon at the start, the merchant
+ * next to it and the amount at the end, all centered vertically.
+ * <br>
+ * That's simple enough that it doesn't need a general purpose layout. This measures each child
+ * exactly once and places them directly, instead of nesting a ConstraintLayout inside a
+ * CardView, which costs an extra level of views and extra measure passes for every row.
+ * <p>
+ * Expects exactly three children, in order: the icon, the merchant and the amount. Their
+ * start / end margins are used as the gaps between them. The merchant gets whatever width is
+ * left once the icon and amount are placed.
+ */
+public class TransactionRowView extends ViewGroup {
+
+    public TransactionRowView(Context context) {
+        super(context);
+    }
+
+    public TransactionRowView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public TransactionRowView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        View icon = getChildAt(0);
+        View merchant = getChildAt(1);
+        View amount = getChildAt(2);
+
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int available = width - getPaddingLeft() - getPaddingRight();
+
+        measureChildWithMargins(icon, widthMeasureSpec, 0, heightMeasureSpec, 0);
+        int iconWidth = icon.getMeasuredWidth() + horizontalMargins(icon);
+        available -= iconWidth;
+
+        measureChildWithMargins(amount, widthMeasureSpec, iconWidth, heightMeasureSpec, 0);
+        available -= amount.getMeasuredWidth() + horizontalMargins(amount);
+
+        // The merchant takes what's left (and ellipsizes if it doesn't fit)
+        int merchantWidth = Math.max(available - horizontalMargins(merchant), 0);
+        merchant.measure(
+                MeasureSpec.makeMeasureSpec(merchantWidth, MeasureSpec.AT_MOST),
+                getChildMeasureSpec(heightMeasureSpec, getPaddingTop() + getPaddingBottom(), merchant.getLayoutParams().height)
+        );
+
+        int height;
+        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+            height = MeasureSpec.getSize(heightMeasureSpec);
+        } else {
+            int tallest = Math.max(icon.getMeasuredHeight(), Math.max(merchant.getMeasuredHeight(), amount.getMeasuredHeight()));
+            height = resolveSize(tallest + getPaddingTop() + getPaddingBottom(), heightMeasureSpec);
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        View icon = getChildAt(0);
+        View merchant = getChildAt(1);
+        View amount = getChildAt(2);
+
+        int start = getPaddingStart();
+        int end = (r - l) - getPaddingEnd();
+
+        start += margins(icon).getMarginStart();
+        place(icon, start);
+        start += icon.getMeasuredWidth() + margins(icon).getMarginEnd();
+
+        start += margins(merchant).getMarginStart();
+        place(merchant, start);
+
+        end -= margins(amount).getMarginEnd();
+        place(amount, end - amount.getMeasuredWidth());
+    }
+
+    /**
+     * Lays out {@code child} at {@code start} pixels from the start edge, centered vertically.
+     */
+    private void place(View child, int start) {
+        int width = child.getMeasuredWidth();
+        int height = child.getMeasuredHeight();
+        int top = getPaddingTop() + (getHeight() - getPaddingTop() - getPaddingBottom() - height) / 2;
+        int left = getLayoutDirection() == LAYOUT_DIRECTION_RTL ? getWidth() - start - width : start;
+        child.layout(left, top, left + width, top + height);
+    }
+
+    private static int horizontalMargins(View child) {
+        MarginLayoutParams params = margins(child);
+        return params.getMarginStart() + params.getMarginEnd();
+    }
+
+    private static MarginLayoutParams margins(View child) {
+        return (MarginLayoutParams) child.getLayoutParams();
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new MarginLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(LayoutParams params) {
+        return new MarginLayoutParams(params);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(LayoutParams params) {
+        return params instanceof MarginLayoutParams;
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        // Not scrollable, so there's no reason to delay the pressed state
+        return false;
+    }
+}
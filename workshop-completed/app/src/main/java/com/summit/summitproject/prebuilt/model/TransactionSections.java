@@ -0,0 +1,122 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.util.Arrays;
+
+/**
+ * Splits a {@link TransactionList} into consecutive sections -- e.g. one per merchant -- each
+ * shown under a header row.
+ * <br>
+ * A list with sections has more items than rows: each section's header comes just before its
+ * first row. The methods here convert between item positions (which include the headers) and
+ * row positions in the list, without allocating, so they can be used while binding.
+ * <p>
+ * Never changes once created.
+ */
+public class TransactionSections {
+
+    /**
+     * No sections: every item is a row.
+     */
+    public static final TransactionSections NONE = new TransactionSections(new int[0], new long[0]);
+
+    /**
+     * The row each section starts at, in ascending order.
+     */
+    private final int[] starts;
+
+    /**
+     * The item position of each section's header: its start plus the headers before it.
+     */
+    private final int[] headerPositions;
+
+    /**
+     * The total amount of each section, in minor units of the list's currency.
+     */
+    private final long[] totals;
+
+    /**
+     * Takes in the row each section starts at, in ascending order starting from 0 with no empty
+     * sections, and the total amount of each section in minor units. Neither array may change
+     * afterwards.
+     */
+    public TransactionSections(int[] starts, long[] totals) {
+        if (starts.length != totals.length) {
+            throw new IllegalArgumentException("Starts " + starts.length + ", totals " + totals.length);
+        }
+        if (starts.length > 0 && starts[0] != 0) {
+            throw new IllegalArgumentException("First section starts at " + starts[0]);
+        }
+        this.starts = starts;
+        this.totals = totals;
+        this.headerPositions = new int[starts.length];
+        for (int section = 0; section < starts.length; section++) {
+            if (section > 0 && starts[section] <= starts[section - 1]) {
+                throw new IllegalArgumentException("Section " + section + " is empty or out of order");
+            }
+            headerPositions[section] = starts[section] + section;
+        }
+    }
+
+    /**
+     * How many sections there are.
+     */
+    public int getSectionCount() {
+        return starts.length;
+    }
+
+    /**
+     * The row {@code section} starts at.
+     */
+    public int getSectionStart(int section) {
+        return starts[section];
+    }
+
+    /**
+     * The total amount of {@code section}, in minor units of the list's currency.
+     */
+    public long getSectionTotal(int section) {
+        return totals[section];
+    }
+
+    /**
+     * How many items there are for a list of {@code rows} rows: the rows plus the headers.
+     */
+    public int getItemCount(int rows) {
+        return rows + starts.length;
+    }
+
+    /**
+     * Whether the item at {@code position} is a section header.
+     */
+    public boolean isHeader(int position) {
+        return Arrays.binarySearch(headerPositions, position) >= 0;
+    }
+
+    /**
+     * The section the item at {@code position} belongs to (whether it's the header or a row), or
+     * -1 if there are no sections.
+     */
+    public int getSection(int position) {
+        int found = Arrays.binarySearch(headerPositions, position);
+        return found >= 0 ? found : -(found + 1) - 1;
+    }
+
+    /**
+     * The item position of the header of {@code section}.
+     */
+    public int getHeaderPosition(int section) {
+        return headerPositions[section];
+    }
+
+    /**
+     * The row shown by the item at {@code position}, which must not be a header.
+     */
+    public int getRow(int position) {
+        int found = Arrays.binarySearch(headerPositions, position);
+        if (found >= 0) {
+            throw new IllegalArgumentException("Position " + position + " is a header");
+        }
+        // Skip over the headers before it
+        return position + found + 1;
+    }
+}
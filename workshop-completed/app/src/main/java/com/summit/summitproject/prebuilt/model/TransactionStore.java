@@ -0,0 +1,615 @@
+package com.summit.summitproject.prebuilt.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Currency;
+import java.util.HashMap;
+
+/**
+ * A compact, growable list of credit card transactions.
+ * <p>
+ * Instead of a {@link Transaction} object (plus two Strings) per row, each column is kept in a
+ * primitive array: the amount as a {@code long} number of cents (or whatever the currency's
+ * minor unit is) and the merchant as an
+ * {@code int} id into a {@link MerchantDictionary}, so each distinct merchant name is stored
+ * only once. A row costs 20 bytes rather than roughly a hundred, and there are only a handful
+ * of objects no matter how many rows there are.
+ * <p>
+ * Read it through the {@link TransactionList} interface. Not thread safe: fill it on one
+ * thread, then hand it over (e.g. by posting it to the main thread) before reading it on
+ * another. To read it on another thread while it keeps changing, take a
+ * {@link TransactionStore#snapshot()}.
+ */
+public class TransactionStore implements TransactionList {
+
+    /**
+     * The most chars {@link TransactionStore#formatAmount(int, char[])} will ever write.
+     */
+    public static final int MAX_AMOUNT_CHARS = 40;
+
+    /**
+     * The longest currency symbol accepted in front of an amount.
+     */
+    private static final int MAX_SYMBOL_CHARS = 8;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The most rows {@link TransactionStore#readFrom} makes room for before reading them.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MerchantDictionary merchants = new MerchantDictionary();
+
+    private long[] ids;
+
+    private int[] merchantIds;
+
+    private long[] amountCents;
+
+    private int size;
+
+    /**
+     * The currency of every amount in this store, taken from the first amount added. Null while
+     * the store is empty.
+     */
+    private Currency currency;
+
+    /**
+     * The symbol the first amount was written with, so later amounts with the same symbol can be
+     * checked without looking it up again.
+     */
+    private String currencySymbol;
+
+    /**
+     * Set while a {@link Snapshot} shares the column arrays, so they are copied before the next
+     * change instead of being changed under the snapshot.
+     */
+    private boolean shared;
+
+    /**
+     * How many times each id derived by {@link TransactionStore#deriveId} has been handed out,
+     * so that identical transactions still get distinct ids. Only created if needed.
+     */
+    private HashMap<Long, Integer> derivedIdCounts;
+
+    /**
+     * The rows whose id was derived rather than given by the server. {@link TransactionStore#addAll}
+     * derives those again, counting the rows already here, so identical transactions on
+     * different pages don't end up with the same id. Only created if needed, and shared with
+     * snapshots like the column arrays.
+     */
+    private BitSet derivedIds;
+
+    public TransactionStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a store with room for {@code capacity} rows before it needs to grow.
+     */
+    public TransactionStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new long[capacity];
+        merchantIds = new int[capacity];
+        amountCents = new long[capacity];
+    }
+
+    /**
+     * Adds a transaction, given its amount as displayed -- e.g. "$1.40" or "-$1,250.00" -- and
+     * the id the server gave it. If {@code id} is null, a stable id is derived from the merchant
+     * and amount instead.
+     *
+     * This is the only place amounts are parsed: from then on they're kept as numbers.
+     *
+     * @throws NumberFormatException if the amount can't be read, or it's in a different currency
+     * than the amounts already in the store.
+     */
+    public void add(String id, String merchant, String amount) {
+        int start = amount.startsWith("-") ? 1 : 0;
+        int symbolEnd = start;
+        while (symbolEnd < amount.length() && !isDigit(amount.charAt(symbolEnd)) && amount.charAt(symbolEnd) != '-') {
+            symbolEnd++;
+        }
+        int symbolLength = symbolEnd - start;
+        boolean sameSymbol = currencySymbol != null
+                && symbolLength == currencySymbol.length()
+                && amount.regionMatches(start, currencySymbol, 0, symbolLength);
+        if (!sameSymbol) {
+            if (symbolLength > MAX_SYMBOL_CHARS) {
+                throw new NumberFormatException("Unsupported currency in " + amount);
+            }
+            String symbol = amount.substring(start, symbolEnd);
+            Currency amountCurrency = MoneyFormatter.currencyForSymbol(symbol);
+            if (currency == null) {
+                currency = amountCurrency;
+            } else if (!currency.equals(amountCurrency)) {
+                throw new NumberFormatException("Mixed currencies: " + amount);
+            }
+            currencySymbol = symbol;
+        }
+        long cents = parseMinorUnits(amount, symbolEnd, start == 1, MoneyFormatter.forCurrency(currency).getFractionDigits());
+        add(id, merchant, cents);
+    }
+
+    /**
+     * Adds a transaction, given the id the server gave it and its amount already in minor units
+     * of the store's currency (see {@link TransactionStore#setCurrency(Currency)}). Ids are
+     * handled exactly as by {@link TransactionStore#add(String, String, String)}.
+     */
+    public void add(String id, String merchant, long cents) {
+        if (id != null) {
+            add(hash(id), merchant, cents);
+        } else {
+            addDerived(merchant, cents);
+        }
+    }
+
+    /**
+     * Adds a transaction, given its id and its amount in minor units of the store's currency.
+     */
+    public void add(long id, String merchant, long cents) {
+        prepareWrite(size + 1);
+        ids[size] = id;
+        merchantIds[size] = merchants.intern(merchant);
+        amountCents[size] = cents;
+        size++;
+    }
+
+    /**
+     * Sets the currency of the amounts, for when they're added in minor units rather than as
+     * displayed. Must be called while the store is empty.
+     *
+     * @throws IllegalStateException if the store already holds transactions.
+     */
+    public void setCurrency(Currency currency) {
+        if (size > 0) {
+            throw new IllegalStateException("Currency must be set before adding transactions");
+        }
+        this.currency = currency;
+        currencySymbol = null;
+    }
+
+    /**
+     * Adds every row of {@code other} to the end of this store. Ids {@code other} derived are
+     * derived again here, so they stay distinct from the ones already in this store.
+     *
+     * @throws NumberFormatException if {@code other} is in a different currency.
+     */
+    public void addAll(TransactionList other) {
+        if (other.size() == 0) {
+            return;
+        }
+        if (currency == null) {
+            currency = other.getCurrency();
+        } else if (!currency.equals(other.getCurrency())) {
+            throw new NumberFormatException("Mixed currencies: " + currency + " and " + other.getCurrency());
+        }
+        prepareWrite(size + other.size());
+        BitSet otherDerivedIds = derivedIds(other);
+        for (int i = 0; i < other.size(); i++) {
+            String merchant = other.getMerchant(i);
+            long cents = other.getAmountCents(i);
+            if (otherDerivedIds != null && otherDerivedIds.get(i)) {
+                ids[size] = deriveId(merchant, cents);
+                markDerived(size);
+            } else {
+                ids[size] = other.getId(i);
+            }
+            merchantIds[size] = merchants.intern(merchant);
+            amountCents[size] = cents;
+            size++;
+        }
+    }
+
+    /**
+     * Removes every row. Merchant ids already handed out stay valid.
+     */
+    public void clear() {
+        size = 0;
+        currency = null;
+        currencySymbol = null;
+        derivedIdCounts = null;
+        derivedIds = null;
+    }
+
+    /**
+     * A read-only copy of the rows currently in the store, which can safely be read on another
+     * thread while this store keeps changing. Cheap: the arrays are shared, and only copied if
+     * the store changes afterwards.
+     */
+    public TransactionList snapshot() {
+        shared = true;
+        return new Snapshot(ids, merchantIds, amountCents, derivedIds, merchants.names(), merchants.size(), size, getCurrency());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getId(int position) {
+        return ids[checkIndex(position)];
+    }
+
+    @Override
+    public String getMerchant(int position) {
+        return merchants.getName(merchantIds[checkIndex(position)]);
+    }
+
+    @Override
+    public int getMerchantId(int position) {
+        return merchantIds[checkIndex(position)];
+    }
+
+    @Override
+    public int getMerchantCount() {
+        return merchants.size();
+    }
+
+    @Override
+    public long getAmountCents(int position) {
+        return amountCents[checkIndex(position)];
+    }
+
+    @Override
+    public Currency getCurrency() {
+        return currency != null ? currency : MoneyFormatter.DEFAULT_CURRENCY;
+    }
+
+    @Override
+    public Money getAmount(int position) {
+        return new Money(amountCents[checkIndex(position)], getCurrency());
+    }
+
+    @Override
+    public Money getTotal() {
+        return new Money(sum(amountCents, size), getCurrency());
+    }
+
+    @Override
+    public int formatAmount(int position, char[] out) {
+        return MoneyFormatter.forCurrency(getCurrency()).format(amountCents[checkIndex(position)], out);
+    }
+
+    @Override
+    public Transaction get(int position) {
+        return newTransaction(this, position);
+    }
+
+    /**
+     * Writes the whole store to {@code out}, in a form {@link TransactionStore#readFrom} can
+     * read back.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(currency != null ? currency.getCurrencyCode() : "");
+        out.writeInt(merchants.size());
+        for (int id = 0; id < merchants.size(); id++) {
+            out.writeUTF(merchants.getName(id));
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(ids[i]);
+            out.writeInt(merchantIds[i]);
+            out.writeLong(amountCents[i]);
+            out.writeBoolean(derivedIds != null && derivedIds.get(i));
+        }
+    }
+
+    /**
+     * Reads a store previously written with {@link TransactionStore#writeTo}.
+     */
+    public static TransactionStore readFrom(DataInputStream in) throws IOException {
+        String currencyCode = in.readUTF();
+        int merchantCount = in.readInt();
+        if (merchantCount < 0) {
+            throw new IOException("Corrupt merchant count " + merchantCount);
+        }
+        // Both grow as they're read, so a corrupt count fails at the end of the file instead of
+        // allocating for it up front
+        String[] names = new String[Math.min(merchantCount, MAX_INITIAL_CAPACITY)];
+        for (int id = 0; id < merchantCount; id++) {
+            if (id == names.length) {
+                names = Arrays.copyOf(names, (int) Math.min(merchantCount, names.length * 2L));
+            }
+            names[id] = in.readUTF();
+        }
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Corrupt size " + size);
+        }
+        TransactionStore store = new TransactionStore(Math.min(size, MAX_INITIAL_CAPACITY));
+        if (!currencyCode.isEmpty()) {
+            try {
+                store.currency = Currency.getInstance(currencyCode);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown currency " + currencyCode);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            long id = in.readLong();
+            int merchantId = in.readInt();
+            if (merchantId < 0 || merchantId >= merchantCount) {
+                throw new IOException("Corrupt merchant id " + merchantId);
+            }
+            long cents = in.readLong();
+            if (in.readBoolean()) {
+                // Derived again in the same order, which gives the same id and recounts it
+                store.addDerived(names[merchantId], cents);
+            } else {
+                store.add(id, names[merchantId], cents);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Makes sure the column arrays can hold {@code capacity} rows and aren't shared with a
+     * {@link Snapshot}, copying them if needed.
+     */
+    private void prepareWrite(int capacity) {
+        if (shared || capacity > merchantIds.length) {
+            int newCapacity = capacity > merchantIds.length ? Math.max(capacity, merchantIds.length * 2) : merchantIds.length;
+            ids = Arrays.copyOf(ids, newCapacity);
+            merchantIds = Arrays.copyOf(merchantIds, newCapacity);
+            amountCents = Arrays.copyOf(amountCents, newCapacity);
+            if (shared && derivedIds != null) {
+                derivedIds = (BitSet) derivedIds.clone();
+            }
+            shared = false;
+        }
+    }
+
+    private int checkIndex(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+        return position;
+    }
+
+    /**
+     * Derives a stable id for a transaction the server didn't give an id to. The same merchant
+     * and amount always give the same id; repeats of an identical transaction are told apart by
+     * how many came before them.
+     */
+    private long deriveId(String merchant, long cents) {
+        long base = hash(merchant) * 31 + cents;
+        if (derivedIdCounts == null) {
+            derivedIdCounts = new HashMap<>();
+        }
+        Integer count = derivedIdCounts.get(base);
+        int occurrence = count != null ? count : 0;
+        derivedIdCounts.put(base, occurrence + 1);
+        return base * 31 + occurrence;
+    }
+
+    /**
+     * Adds a transaction the server didn't give an id to, with an id derived from its merchant
+     * and amount.
+     */
+    private void addDerived(String merchant, long cents) {
+        add(deriveId(merchant, cents), merchant, cents);
+        markDerived(size - 1);
+    }
+
+    private void markDerived(int position) {
+        if (derivedIds == null) {
+            derivedIds = new BitSet();
+        }
+        derivedIds.set(position);
+    }
+
+    /**
+     * The rows of {@code list} whose id was derived, or null if none were or it can't tell.
+     */
+    private static BitSet derivedIds(TransactionList list) {
+        if (list instanceof TransactionStore) {
+            return ((TransactionStore) list).derivedIds;
+        }
+        if (list instanceof Snapshot) {
+            return ((Snapshot) list).derivedIds;
+        }
+        return null;
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of {@code value}.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Adds up the first {@code size} amounts, failing rather than wrapping around on overflow.
+     */
+    private static long sum(long[] amounts, int size) {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total = Money.add(total, amounts[i]);
+        }
+        return total;
+    }
+
+    private static Transaction newTransaction(TransactionList list, int position) {
+        return new Transaction(list.getId(position), list.getMerchant(position), list.getAmount(position));
+    }
+
+    /**
+     * Reads the number part of an amount (e.g. "1,250.40") starting at {@code start}, as minor
+     * units of a currency with {@code fractionDigits} decimal places.
+     *
+     * @throws NumberFormatException if it can't be read, or it doesn't fit in a {@code long}.
+     */
+    private static long parseMinorUnits(String amount, int start, boolean negative, int fractionDigits) {
+        int i = start;
+        if (i < amount.length() && amount.charAt(i) == '-') {
+            // Also accept the sign after the symbol, e.g. "$-1.40"
+            negative = true;
+            i++;
+        }
+
+        long whole = 0;
+        boolean anyDigits = false;
+        for (; i < amount.length(); i++) {
+            char c = amount.charAt(i);
+            if (isDigit(c)) {
+                whole = appendDigit(whole, c - '0', amount);
+                anyDigits = true;
+            } else if (c != ',') {
+                break;
+            }
+        }
+
+        long fraction = 0;
+        int digitsRead = 0;
+        if (i < amount.length() && amount.charAt(i) == '.') {
+            i++;
+            for (; i < amount.length() && isDigit(amount.charAt(i)); i++) {
+                if (digitsRead < fractionDigits) {
+                    fraction = fraction * 10 + (amount.charAt(i) - '0');
+                    digitsRead++;
+                }
+                anyDigits = true;
+            }
+        }
+
+        if (!anyDigits || i != amount.length()) {
+            throw new NumberFormatException("Invalid amount: " + amount);
+        }
+        long minorUnits = whole;
+        for (int digit = 0; digit < fractionDigits; digit++) {
+            minorUnits = appendDigit(minorUnits, 0, amount);
+        }
+        for (; digitsRead < fractionDigits; digitsRead++) {
+            fraction *= 10;
+        }
+        if (minorUnits > Long.MAX_VALUE - fraction) {
+            throw new NumberFormatException("Amount out of range: " + amount);
+        }
+        minorUnits += fraction;
+        return negative ? -minorUnits : minorUnits;
+    }
+
+    /**
+     * {@code value} with {@code digit} written after it, failing rather than wrapping around if
+     * that doesn't fit in a {@code long}.
+     */
+    private static long appendDigit(long value, int digit, String amount) {
+        if (value > (Long.MAX_VALUE - digit) / 10) {
+            throw new NumberFormatException("Amount out of range: " + amount);
+        }
+        return value * 10 + digit;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * A fixed, read-only view of a store's rows at the time
+     * {@link TransactionStore#snapshot()} was called.
+     */
+    private static class Snapshot implements TransactionList {
+
+        private final long[] ids;
+
+        private final int[] merchantIds;
+
+        private final long[] amountCents;
+
+        private final BitSet derivedIds;
+
+        private final String[] merchantNames;
+
+        private final int merchantCount;
+
+        private final int size;
+
+        private final Currency currency;
+
+        Snapshot(long[] ids, int[] merchantIds, long[] amountCents, BitSet derivedIds, String[] merchantNames, int merchantCount, int size, Currency currency) {
+            this.ids = ids;
+            this.merchantIds = merchantIds;
+            this.amountCents = amountCents;
+            this.derivedIds = derivedIds;
+            this.merchantNames = merchantNames;
+            this.merchantCount = merchantCount;
+            this.size = size;
+            this.currency = currency;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long getId(int position) {
+            return ids[checkIndex(position)];
+        }
+
+        @Override
+        public String getMerchant(int position) {
+            return merchantNames[merchantIds[checkIndex(position)]];
+        }
+
+        @Override
+        public int getMerchantId(int position) {
+            return merchantIds[checkIndex(position)];
+        }
+
+        @Override
+        public int getMerchantCount() {
+            return merchantCount;
+        }
+
+        @Override
+        public long getAmountCents(int position) {
+            return amountCents[checkIndex(position)];
+        }
+
+        @Override
+        public Currency getCurrency() {
+            return currency;
+        }
+
+        @Override
+        public Money getAmount(int position) {
+            return new Money(amountCents[checkIndex(position)], currency);
+        }
+
+        @Override
+        public Money getTotal() {
+            return new Money(sum(amountCents, size), currency);
+        }
+
+        @Override
+        public int formatAmount(int position, char[] out) {
+            return MoneyFormatter.forCurrency(currency).format(amountCents[checkIndex(position)], out);
+        }
+
+        @Override
+        public Transaction get(int position) {
+            return newTransaction(this, position);
+        }
+
+        private int checkIndex(int position) {
+            if (position < 0 || position >= size) {
+                throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.summit.summitproject.prebuilt.model;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.summit.summitproject.R;
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link RecyclerView.RecycledViewPool} of transaction rows, shared by every transactions list
+ * in the app.
+ * <br>
+ * Inflating a row is the most expensive part of showing one, and a freshly opened list has to
+ * inflate a screenful of rows (plus a few more on the first fling) on the main thread. Calling
+ * {@link TransactionViewPool#warm()} ahead of time -- e.g. while the login network call is in
+ * flight -- inflates them on a background thread instead, so the list can take them straight
+ * from the pool. Rows are also kept when a summary screen is closed, for the next one.
+ * <p>
+ * Rows are inflated with the application's context (and theme) rather than an Activity's, so
+ * keeping them in this app-wide pool doesn't leak the screen they were last shown on.
+ */
+public class TransactionViewPool {
+
+    /**
+     * The view type of a transaction row.
+     */
+    static final int VIEW_TYPE_TRANSACTION = 0;
+
+    /**
+     * The view type of a section header, when a list is split into sections.
+     */
+    static final int VIEW_TYPE_HEADER = 1;
+
+    /**
+     * The most rows kept in the pool -- a couple of screens' worth.
+     */
+    private static final int MAX_ROWS = 24;
+
+    /**
+     * The most section headers kept in the pool. They're never warmed, since most lists don't
+     * have any.
+     */
+    private static final int MAX_HEADERS = 8;
+
+    /**
+     * How many rows {@link TransactionViewPool#warm()} inflates -- a screenful plus a few for
+     * the first fling.
+     */
+    private static final int WARM_ROWS = 12;
+
+    private final Context context;
+
+    /**
+     * Inflates rows on the main thread. A LayoutInflater isn't thread safe, so the background
+     * thread uses its own copy.
+     */
+    private final LayoutInflater inflater;
+
+    private final AppExecutors executors;
+
+    private final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+
+    /**
+     * Whether {@link TransactionViewPool#warm()} has already been run.
+     */
+    private boolean warmed;
+
+    /**
+     * Takes in the application context, the theme to inflate rows with and the threads to
+     * inflate them on.
+     */
+    public TransactionViewPool(Context applicationContext, int theme, AppExecutors executors) {
+        this.context = new ContextThemeWrapper(applicationContext, theme);
+        this.inflater = LayoutInflater.from(context);
+        this.executors = executors;
+        pool.setMaxRecycledViews(VIEW_TYPE_TRANSACTION, MAX_ROWS);
+        pool.setMaxRecycledViews(VIEW_TYPE_HEADER, MAX_HEADERS);
+    }
+
+    /**
+     * The pool to give to a transactions list with
+     * {@link RecyclerView#setRecycledViewPool(RecyclerView.RecycledViewPool)}, after its adapter
+     * has been set. Take the adapter away with {@link RecyclerView#swapAdapter} rather than
+     * {@link RecyclerView#setAdapter}: both would otherwise empty the pool.
+     */
+    public RecyclerView.RecycledViewPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Inflates enough rows for a screen on a background thread and adds them to the pool. Only
+     * does anything the first time it's called. Must be called on the main thread.
+     */
+    public void warm() {
+        if (warmed) {
+            return;
+        }
+        warmed = true;
+
+        try {
+            executors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Rows aren't attached to anything until they're taken from the pool, so
+                    // they can be created here. The parent only supplies their layout params.
+                    FrameLayout parent = new FrameLayout(context);
+                    RowFactory rowFactory = new RowFactory(inflater.cloneInContext(context));
+                    final TransactionAdapter.ViewHolder[] rows = new TransactionAdapter.ViewHolder[WARM_ROWS];
+                    for (int i = 0; i < rows.length; i++) {
+                        rows[i] = rowFactory.createViewHolder(parent, VIEW_TYPE_TRANSACTION);
+                    }
+
+                    // The pool itself is only safe to touch on the main thread
+                    executors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (TransactionAdapter.ViewHolder row : rows) {
+                                pool.putRecycledView(row);
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too busy, so the list will inflate its own rows when it needs them
+            warmed = false;
+        }
+    }
+
+    /**
+     * Inflates a single row, attached to nothing yet, for when the pool has run out. Must be
+     * called on the main thread.
+     */
+    TransactionAdapter.ViewHolder createRow(ViewGroup parent) {
+        return createRow(inflater, parent);
+    }
+
+    /**
+     * Inflates a single section header, attached to nothing yet, for when the pool has run out.
+     * Must be called on the main thread.
+     */
+    TransactionAdapter.HeaderViewHolder createHeader(ViewGroup parent) {
+        return new TransactionAdapter.HeaderViewHolder(inflater.inflate(R.layout.view_transaction_header, parent, false));
+    }
+
+    private static TransactionAdapter.ViewHolder createRow(LayoutInflater inflater, ViewGroup parent) {
+        return new TransactionAdapter.ViewHolder(inflater.inflate(R.layout.view_transaction, parent, false));
+    }
+
+    /**
+     * Creates rows for {@link TransactionViewPool#warm()}. Never bound or attached to a list:
+     * going through an Adapter is the only way to create a ViewHolder that the pool will accept
+     * for a given view type.
+     */
+    private static class RowFactory extends RecyclerView.Adapter<TransactionAdapter.ViewHolder> {
+
+        private final LayoutInflater inflater;
+
+        RowFactory(LayoutInflater inflater) {
+            this.inflater = inflater;
+        }
+
+        @NonNull
+        @Override
+        public TransactionAdapter.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return createRow(inflater, parent);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull TransactionAdapter.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.summit.summitproject.prebuilt.network;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * Takes the lines written by an {@link HttpLoggingInterceptor} and writes them to Logcat on a
+ * background thread, so the network thread never waits on Logcat.
+ * <br>
+ * Lines go into a fixed-size ring buffer, and the first line into an empty buffer schedules a
+ * flush on {@link AppExecutors#io()}, which writes out everything buffered by the time
+ * it runs. If lines come in faster than they can be written, the oldest are dropped (and
+ * counted in the log) rather than letting the buffer grow. If the I/O pool is too busy,
+ * the lines wait in the buffer for the next one to schedule a flush.
+ * <p>
+ * Safe to call from any thread.
+ */
+public class BackgroundHttpLogger implements HttpLoggingInterceptor.Logger {
+
+    private static final String TAG = "OkHttp";
+
+    /**
+     * Logcat cuts off longer lines, so they're written in pieces of this size.
+     */
+    private static final int MAX_LOG_LENGTH = 4000;
+
+    private final AppExecutors executors;
+
+    private final Object lock = new Object();
+
+    /**
+     * The ring buffer: {@link BackgroundHttpLogger#size} lines, oldest first, starting at
+     * {@link BackgroundHttpLogger#head}.
+     */
+    private final String[] lines;
+
+    private int head;
+
+    private int size;
+
+    /**
+     * Lines dropped since the last flush because the buffer was full.
+     */
+    private int dropped;
+
+    private boolean flushScheduled;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Takes in the threads to write on and the most lines to hold while waiting to be written.
+     */
+    public BackgroundHttpLogger(AppExecutors executors, int capacity) {
+        this.executors = executors;
+        this.lines = new String[capacity];
+    }
+
+    @Override
+    public void log(@NonNull String message) {
+        synchronized (lock) {
+            if (size == lines.length) {
+                lines[head] = null;
+                head = (head + 1) % lines.length;
+                size--;
+                dropped++;
+            }
+            lines[(head + size) % lines.length] = message;
+            size++;
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        try {
+            executors.io().execute(flush);
+        } catch (RejectedExecutionException e) {
+            // Leave the lines buffered; the next one to arrive tries again
+            synchronized (lock) {
+                flushScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Runs in a background thread. Writes out lines until the buffer is empty, taking them a
+     * batch at a time so the network thread is only held up for as long as a copy takes.
+     */
+    private void flush() {
+        while (true) {
+            String[] batch;
+            int droppedLines;
+            synchronized (lock) {
+                if (size == 0) {
+                    flushScheduled = false;
+                    return;
+                }
+                batch = new String[size];
+                for (int i = 0; i < size; i++) {
+                    int index = (head + i) % lines.length;
+                    batch[i] = lines[index];
+                    lines[index] = null;
+                }
+                head = 0;
+                size = 0;
+                droppedLines = dropped;
+                dropped = 0;
+            }
+            if (droppedLines > 0) {
+                Log.w(TAG, "Dropped " + droppedLines + " lines, logging couldn't keep up");
+            }
+            for (String line : batch) {
+                write(line);
+            }
+        }
+    }
+
+    private static void write(String line) {
+        for (int start = 0; start < line.length(); start += MAX_LOG_LENGTH) {
+            Log.d(TAG, line.substring(start, Math.min(line.length(), start + MAX_LOG_LENGTH)));
+        }
+        if (line.isEmpty()) {
+            Log.d(TAG, line);
+        }
+    }
+}
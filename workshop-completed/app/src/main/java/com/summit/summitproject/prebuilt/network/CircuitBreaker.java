@@ -0,0 +1,108 @@
+package com.summit.summitproject.prebuilt.network;
+
+import android.os.SystemClock;
+
+/**
+ * Stops calls from being made while the server appears to be down, so they fail straight away
+ * instead of each one waiting out its timeouts and retries.
+ * <br>
+ * Starts out closed, letting every call through. After {@code failureThreshold} failures in a
+ * row it opens, and {@link CircuitBreaker#allowRequest()} refuses every call for
+ * {@code openMillis}. Once that has passed it lets a single trial call through (half-open): if
+ * that succeeds it closes again, and if it fails it stays open for another {@code openMillis}.
+ * <p>
+ * A failure is a call which couldn't reach the server, timed out or got a 5xx back. Answers
+ * like "404 Not Found" mean the server is up, so they count as successes.
+ * <p>
+ * Safe to use from any thread.
+ */
+public class CircuitBreaker {
+
+    private static final int CLOSED = 0;
+
+    private static final int OPEN = 1;
+
+    private static final int HALF_OPEN = 2;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private int state = CLOSED;
+
+    private int consecutiveFailures;
+
+    /**
+     * When the breaker last opened, on the {@link SystemClock#elapsedRealtime()} clock.
+     */
+    private long openedAt;
+
+    /**
+     * Takes in how many failures in a row open the breaker, and how long it stays open before
+     * a trial call is let through.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether a call may be made now. If this returns true the caller must report how the call
+     * went, with {@link CircuitBreaker#onSuccess()} or {@link CircuitBreaker#onFailure()}.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (SystemClock.elapsedRealtime() - openedAt < openMillis) {
+                    return false;
+                }
+                // Long enough has passed to see if the server is back, with a single call
+                state = HALF_OPEN;
+                return true;
+            default:
+                // The trial call is still running
+                return false;
+        }
+    }
+
+    /**
+     * Whether calls are being refused right now. Unlike {@link CircuitBreaker#allowRequest()}
+     * this only looks, so it never starts a trial call.
+     */
+    public synchronized boolean isOpen() {
+        return state == OPEN && SystemClock.elapsedRealtime() - openedAt < openMillis;
+    }
+
+    /**
+     * A call let through by {@link CircuitBreaker#allowRequest()} reached the server.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = CLOSED;
+    }
+
+    /**
+     * A call let through by {@link CircuitBreaker#allowRequest()} failed.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = OPEN;
+            openedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * A call let through by {@link CircuitBreaker#allowRequest()} was cancelled before it found
+     * out anything about the server. If it was the trial call, the next call becomes the trial.
+     */
+    public synchronized void onCancelled() {
+        if (state == HALF_OPEN) {
+            state = OPEN;
+            // Already waited long enough, so let the next call try straight away
+            openedAt = SystemClock.elapsedRealtime() - openMillis;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.summit.summitproject.prebuilt.network;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a call while the {@link CircuitBreaker} is open, because the server
+ * has been failing and is most likely still down.
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException() {
+        super("Server is unavailable, not trying again yet");
+    }
+}
@@ -0,0 +1,74 @@
+package com.summit.summitproject.prebuilt.network;
+
+import com.summit.summitproject.BuildConfig;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Where the app's API calls go.
+ * <br>
+ * The base URL comes from the build ({@link BuildConfig#BASE_URL}), rather than being hard-coded
+ * where each call is made. Debug builds can instead point every call at the bundled local
+ * server (see {@code LocalServer} in {@code src/debug}), which is started in the background when
+ * the app starts, so logins work offline and can be measured repeatably.
+ */
+public class Endpoints {
+
+    private final HttpUrl baseUrl;
+
+    /**
+     * The base URL of the local server once it has started, or null if it isn't used.
+     */
+    private final Future<HttpUrl> localServerUrl;
+
+    /**
+     * Takes in the API's base URL and, if calls should go to the local server instead, the base
+     * URL it will be listening on once started.
+     */
+    public Endpoints(String baseUrl, Future<HttpUrl> localServerUrl) {
+        this.baseUrl = HttpUrl.get(baseUrl);
+        this.localServerUrl = localServerUrl;
+    }
+
+    /**
+     * The base URL all API calls are relative to. May wait for the local server to start, so
+     * only call it from a background thread.
+     *
+     * @throws IOException if the local server couldn't be started.
+     */
+    public HttpUrl getBaseUrl() throws IOException {
+        if (localServerUrl == null) {
+            return baseUrl;
+        }
+        try {
+            return localServerUrl.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Local server failed to start", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the local server", e);
+        }
+    }
+
+    /**
+     * The URL to log in with. See {@link Endpoints#getBaseUrl()}.
+     */
+    public HttpUrl getLoginUrl() throws IOException {
+        HttpUrl url = getBaseUrl().resolve(BuildConfig.LOGIN_PATH);
+        if (url == null) {
+            throw new IOException("Bad login path: " + BuildConfig.LOGIN_PATH);
+        }
+        return url;
+    }
+
+    /**
+     * Whether calls go to the bundled local server.
+     */
+    public boolean isLocal() {
+        return localServerUrl != null;
+    }
+}
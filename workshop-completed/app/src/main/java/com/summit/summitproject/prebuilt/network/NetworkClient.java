@@ -0,0 +1,226 @@
+package com.summit.summitproject.prebuilt.network;
+
+import androidx.annotation.NonNull;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * Owns the single {@link OkHttpClient} shared by the whole app.
+ * <br>
+ * An {@link OkHttpClient} holds its own connection pool, dispatcher thread pool and TLS session
+ * cache, so building a new one per network call throws all of those away and every call pays
+ * for a cold DNS lookup, TCP connect and TLS handshake. Sharing one client lets later calls
+ * reuse warm connections to the same host.
+ * <p>
+ * Responses are stored in an on-disk HTTP cache, so a request can be answered with
+ * "304 Not Modified" (via ETag / Last-Modified) instead of downloading the same body again.
+ * <p>
+ * Every call gets its own time limits for connecting, sending, waiting on the server and the
+ * whole call, so a dead connection fails in seconds rather than hanging until the OS gives up.
+ * API calls should be made with {@link NetworkClient#newCall(Request)}, which retries
+ * failures that are likely to go away and stops calling a server which keeps failing.
+ * <p>
+ * With verbose logging (debug builds), every request and response is logged in full, bodies
+ * included. Otherwise only the headers of one call in {@link NetworkClient#LOG_SAMPLE_RATE}
+ * are logged: logging a body means reading all of it into memory before the caller sees any of
+ * it, which with a large list of transactions costs as much memory again and holds up
+ * streaming decoding until the last byte arrives. Either way the lines are written to Logcat
+ * in the background by a {@link BackgroundHttpLogger}, and credentials and session tokens are
+ * left out.
+ * <p>
+ * Headers a request marks as private with a {@link PrivateHeaders} tag are kept out of the
+ * HTTP cache.
+ * <p>
+ * Create one instance when the app starts (see
+ * {@link com.summit.summitproject.SummitApplication}) and pass it to anything which needs to
+ * make network calls.
+ */
+public class NetworkClient {
+
+    /**
+     * The most idle connections kept around in the pool for reuse.
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    /**
+     * How long an idle connection is kept alive in the pool before it is closed.
+     */
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    /**
+     * The most requests the dispatcher will run at once, across all hosts.
+     */
+    private static final int MAX_REQUESTS = 16;
+
+    /**
+     * The most requests the dispatcher will run at once against a single host.
+     */
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+
+    /**
+     * The most disk space the HTTP cache may use.
+     */
+    private static final long CACHE_MAX_BYTES = 10 * 1024 * 1024;
+
+    /**
+     * How long to wait for DNS, TCP and TLS to get a connection to the server.
+     */
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+
+    /**
+     * How long sending the request may stall for.
+     */
+    private static final long WRITE_TIMEOUT_SECONDS = 10;
+
+    /**
+     * How long to wait for the next bytes of the response: both the server's time to start
+     * answering and any stall while the body streams in. The fake login API deliberately takes
+     * a couple of seconds, which this leaves plenty of room for.
+     */
+    private static final long READ_TIMEOUT_SECONDS = 10;
+
+    /**
+     * The most a single attempt may take from start to finish, however it's spent.
+     */
+    private static final long CALL_TIMEOUT_SECONDS = 30;
+
+    /**
+     * How many times {@link NetworkClient#newCall(Request)} tries a request before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The longest wait before the first retry. Doubles for each one after that.
+     */
+    private static final long RETRY_BASE_DELAY_MILLIS = 250;
+
+    /**
+     * The longest wait before any retry.
+     */
+    private static final long RETRY_MAX_DELAY_MILLIS = 2000;
+
+    /**
+     * How many failed attempts in a row mean the server is treated as down.
+     */
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * How long calls fail straight away once the server is treated as down, before one is let
+     * through to see if it's back.
+     */
+    private static final long CIRCUIT_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Without verbose logging, one call in this many is logged.
+     */
+    private static final int LOG_SAMPLE_RATE = 20;
+
+    /**
+     * The most log lines waiting to be written before the oldest are dropped.
+     */
+    private static final int LOG_BUFFER_LINES = 512;
+
+    private final OkHttpClient httpClient;
+
+    /**
+     * Shared by every call to the API, so one screen's failures spare the next one the wait.
+     */
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS);
+
+    /**
+     * Takes in the directory to keep the HTTP cache in, the threads to write logs on, and
+     * whether to log every call in full.
+     */
+    public NetworkClient(File cacheDirectory, AppExecutors executors, boolean verboseLogging) {
+        // Prepare logging for the request / response so you can see them in Logcat
+        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(new BackgroundHttpLogger(executors, LOG_BUFFER_LINES));
+        logging.redactHeader("Authorization");
+        // The header the server hands session tokens out in
+        logging.redactHeader("Session-Token");
+        Interceptor logger;
+        if (verboseLogging) {
+            logging.level(HttpLoggingInterceptor.Level.BODY);
+            logger = logging;
+        } else {
+            logging.level(HttpLoggingInterceptor.Level.HEADERS);
+            logger = new SampledInterceptor(logging, LOG_SAMPLE_RATE);
+        }
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .cache(new Cache(cacheDirectory, CACHE_MAX_BYTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .retryOnConnectionFailure(true)
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .callTimeout(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addInterceptor(logger)
+                .addNetworkInterceptor(new PrivateHeaders.NetworkInterceptor())
+                .build();
+    }
+
+    /**
+     * The shared client. Use {@link OkHttpClient#newBuilder()} if a caller needs slightly
+     * different settings -- the derived client still shares this client's pool and dispatcher.
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Prepares an API call through the shared client which retries GETs that fail in a way
+     * likely to go away, and fails fast while the server appears to be down. See
+     * {@link RetryingCall}.
+     */
+    public RetryingCall newCall(Request request) {
+        return new RetryingCall(httpClient, circuitBreaker, request, MAX_ATTEMPTS, RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Only sends one call in every {@code rate} through {@code delegate}; the rest skip it.
+     */
+    private static class SampledInterceptor implements Interceptor {
+
+        private final Interceptor delegate;
+
+        private final int rate;
+
+        private final AtomicLong calls = new AtomicLong();
+
+        SampledInterceptor(Interceptor delegate, int rate) {
+            this.delegate = delegate;
+            this.rate = rate;
+        }
+
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            if (calls.getAndIncrement() % rate == 0) {
+                return delegate.intercept(chain);
+            }
+            return chain.proceed(chain.request());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.summit.summitproject.prebuilt.network;
+
+import android.util.Log;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Gets a connection to the API ready before it's needed, so the first real call doesn't pay for
+ * the DNS lookup, TCP connect and TLS handshake.
+ * <br>
+ * {@link Preconnector#preconnect()} sends a HEAD request to the API's base URL through the
+ * shared {@link OkHttpClient}. Whatever the server answers, the connection then sits in the
+ * client's pool (see {@link NetworkClient}) for the next call to the same host to reuse. The
+ * login screen calls it as soon as the user starts typing, since a sign in is likely to follow
+ * within seconds.
+ * <p>
+ * It's speculative, so it only ever happens once per process, never retries, and failures are
+ * ignored: the real call will simply connect as it would have anyway. Safe to call from any
+ * thread.
+ */
+public class Preconnector {
+
+    private static final String TAG = "Preconnector";
+
+    private final OkHttpClient client;
+
+    private final Endpoints endpoints;
+
+    private final AppExecutors executors;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Takes in the shared client to warm up, where the API lives, and the threads to use.
+     */
+    public Preconnector(OkHttpClient client, Endpoints endpoints, AppExecutors executors) {
+        this.client = client;
+        this.endpoints = endpoints;
+        this.executors = executors;
+    }
+
+    /**
+     * Starts connecting to the API in the background, the first time it's called. Later calls
+     * do nothing.
+     */
+    public void preconnect() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executors.io().execute(new Runnable() {
+                @Override
+                public void run() {
+                    connect();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too busy to bother; the real call will connect as usual
+        }
+    }
+
+    /**
+     * Whether {@link Preconnector#preconnect()} has been called yet.
+     */
+    public boolean hasStarted() {
+        return started.get();
+    }
+
+    /**
+     * Runs in a background thread, since finding the base URL may mean waiting for the local
+     * server to start.
+     */
+    private void connect() {
+        long start = System.nanoTime();
+        try {
+            HttpUrl url = endpoints.getBaseUrl();
+            Request request = new Request.Builder()
+                    .head()
+                    .url(url)
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                Log.d(TAG, "Connected to " + url.host() + " in " + (System.nanoTime() - start) / 1_000_000 + "ms (HTTP " + response.code() + ")");
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Couldn't connect ahead of time", e);
+        }
+    }
+}
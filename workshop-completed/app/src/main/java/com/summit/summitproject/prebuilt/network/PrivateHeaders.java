@@ -0,0 +1,75 @@
+package com.summit.summitproject.prebuilt.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Response headers a caller wants to read but which must never be written to the HTTP cache --
+ * e.g. a session token, which would otherwise be stored on disk with the response and handed
+ * back again, long after it was revoked, with a later "304 Not Modified".
+ * <br>
+ * Attach one to a request as its tag (see {@link Request.Builder#tag(Class, Object)}). As each
+ * response comes in from the network, before the cache sees it, the named headers are taken off
+ * it and kept here instead. A response answered from the cache without asking the server leaves
+ * nothing here, and a retried call keeps what its last attempt received.
+ * <p>
+ * Read it once the call has finished; safe to read from any thread.
+ */
+public class PrivateHeaders {
+
+    private final String[] names;
+
+    /**
+     * The named headers of the last response from the network, or null if there was none.
+     */
+    private volatile Headers received;
+
+    /**
+     * Takes in the names of the headers to keep out of the cache.
+     */
+    public PrivateHeaders(String... names) {
+        this.names = names.clone();
+    }
+
+    /**
+     * The last value the network sent for {@code name}, or null.
+     */
+    public String get(String name) {
+        Headers headers = received;
+        return headers != null ? headers.get(name) : null;
+    }
+
+    /**
+     * Takes the headers a request's {@link PrivateHeaders} asks for off each response from the
+     * network. Installed by {@link NetworkClient} as a network interceptor, so it runs before the
+     * cache stores the response.
+     */
+    static class NetworkInterceptor implements Interceptor {
+
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            PrivateHeaders wanted = chain.request().tag(PrivateHeaders.class);
+            if (wanted == null) {
+                return response;
+            }
+            Headers.Builder received = new Headers.Builder();
+            Response.Builder stripped = response.newBuilder();
+            for (String name : wanted.names) {
+                for (String value : response.headers(name)) {
+                    received.add(name, value);
+                }
+                stripped.removeHeader(name);
+            }
+            wanted.received = received.build();
+            return stripped.build();
+        }
+    }
+}
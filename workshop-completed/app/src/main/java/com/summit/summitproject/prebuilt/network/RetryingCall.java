@@ -0,0 +1,186 @@
+package com.summit.summitproject.prebuilt.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Makes a request like {@link Call#execute()}, but tries again if it fails in a way which may
+ * well go away by itself: the server couldn't be reached, the call timed out, or the server
+ * answered with a 5xx, "408 Request Timeout" or "429 Too Many Requests".
+ * <br>
+ * Only GET and HEAD requests are retried, since sending them twice does no harm. Between
+ * attempts it waits a random time between zero and an exponentially growing limit ("full
+ * jitter"), so that many clients failing at once don't all come back at the same moment.
+ * <p>
+ * Every attempt goes through the {@link CircuitBreaker}: while it's open no call is made and
+ * {@link CircuitOpenException} is thrown straight away. Once the breaker opens part way through,
+ * no more attempts are made and the last real failure is passed on instead, so callers see
+ * what actually went wrong.
+ * <p>
+ * Get one from {@link NetworkClient#newCall(Request)}. {@link RetryingCall#execute()} blocks,
+ * so only call it from a background thread; {@link RetryingCall#cancel()} may be called from
+ * any thread.
+ */
+public class RetryingCall {
+
+    private static final String TAG = "RetryingCall";
+
+    private final OkHttpClient client;
+
+    private final CircuitBreaker breaker;
+
+    private final Request request;
+
+    private final int maxAttempts;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    /**
+     * Guards {@link RetryingCall#cancelled} and {@link RetryingCall#call}, and is waited on
+     * between attempts so that {@link RetryingCall#cancel()} can cut the wait short.
+     */
+    private final Object lock = new Object();
+
+    private boolean cancelled;
+
+    /**
+     * The attempt currently running, if any.
+     */
+    private Call call;
+
+    RetryingCall(OkHttpClient client, CircuitBreaker breaker, Request request, int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.client = client;
+        this.breaker = breaker;
+        this.request = request;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public Request request() {
+        return request;
+    }
+
+    /**
+     * Makes the request, retrying as described above, and returns the last response. Like
+     * {@link Call#execute()}, an unsuccessful response is returned rather than thrown, once
+     * there are no attempts left.
+     *
+     * @throws CircuitOpenException if the circuit breaker wouldn't let the call be made at all.
+     * @throws IOException if the last attempt failed, or the call was cancelled. If the breaker
+     * opened while waiting to retry, the {@link CircuitOpenException} is attached to it as
+     * suppressed.
+     */
+    public Response execute() throws IOException {
+        boolean idempotent = "GET".equals(request.method()) || "HEAD".equals(request.method());
+        // Why the previous attempt failed, to throw if the breaker won't allow another
+        IOException lastFailure = null;
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.allowRequest()) {
+                CircuitOpenException open = new CircuitOpenException();
+                if (lastFailure == null) {
+                    throw open;
+                }
+                lastFailure.addSuppressed(open);
+                throw lastFailure;
+            }
+
+            Call attemptCall;
+            synchronized (lock) {
+                if (cancelled) {
+                    breaker.onCancelled();
+                    throw new IOException("Canceled");
+                }
+                attemptCall = client.newCall(request);
+                call = attemptCall;
+            }
+
+            boolean lastAttempt = !idempotent || attempt >= maxAttempts;
+            Response response;
+            try {
+                response = attemptCall.execute();
+            } catch (IOException e) {
+                if (isCancelled()) {
+                    breaker.onCancelled();
+                    throw e;
+                }
+                breaker.onFailure();
+                // No point waiting to retry if the breaker has just opened, it'd only refuse
+                if (lastAttempt || breaker.isOpen()) {
+                    throw e;
+                }
+                backOff(attempt, e.toString());
+                lastFailure = e;
+                continue;
+            }
+
+            int code = response.code();
+            if (code >= 500) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            if (lastAttempt || !(code >= 500 || code == 408 || code == 429) || breaker.isOpen()) {
+                return response;
+            }
+            response.close();
+            backOff(attempt, "HTTP " + code);
+            lastFailure = new IOException("Server answered with HTTP " + code);
+        }
+    }
+
+    /**
+     * Stops the attempt in progress, or the wait before the next one, and makes sure no more
+     * attempts are made. {@link RetryingCall#execute()} then throws an {@link IOException}.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            cancelled = true;
+            if (call != null) {
+                call.cancel();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isCancelled() {
+        synchronized (lock) {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Waits before attempt number {@code attempt + 1}, returning early if cancelled.
+     */
+    private void backOff(int attempt, String reason) throws IOException {
+        long limit = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 16));
+        long delay = ThreadLocalRandom.current().nextLong(limit + 1);
+        Log.d(TAG, request.method() + " " + request.url() + " failed (" + reason + "), retrying in " + delay + "ms");
+
+        long deadline = System.nanoTime() + delay * 1_000_000L;
+        synchronized (lock) {
+            try {
+                long remaining;
+                while (!cancelled && (remaining = deadline - System.nanoTime()) > 0) {
+                    lock.wait(Math.max(1, remaining / 1_000_000L));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+            if (cancelled) {
+                throw new IOException("Canceled");
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.summit.summitproject.prebuilt.paging;
+
+import com.summit.summitproject.prebuilt.model.TransactionList;
+
+/**
+ * One page of a card's transactions, plus a link to the page after it.
+ */
+public class TransactionPage {
+
+    private final TransactionList transactions;
+
+    private final String nextPage;
+
+    public TransactionPage(TransactionList transactions, String nextPage) {
+        this.transactions = transactions;
+        this.nextPage = nextPage;
+    }
+
+    public TransactionList getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * The URL of the next page of transactions, or null if this is the last page.
+     */
+    public String getNextPage() {
+        return nextPage;
+    }
+}
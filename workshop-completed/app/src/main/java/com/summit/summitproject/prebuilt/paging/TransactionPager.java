@@ -0,0 +1,198 @@
+package com.summit.summitproject.prebuilt.paging;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.login.LoginResponseParser;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+import com.summit.summitproject.prebuilt.network.RetryingCall;
+
+import java.util.Currency;
+import java.util.concurrent.RejectedExecutionException;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Fetches a card's transactions one page at a time, by following the {@code nextPage} link
+ * (a cursor) that each page carries to the page after it.
+ * <p>
+ * The login response only needs to hold the first page, so the summary screen can be drawn as
+ * soon as that arrives, and later pages are only downloaded if the user actually scrolls down
+ * to them.
+ * <p>
+ * Every page must be in the same currency as the rows already loaded. A page which isn't is
+ * turned away on the background thread, as an error, rather than handed to the listener.
+ * <p>
+ * Pages are fetched with {@link NetworkClient#newCall(Request)}, so a page which fails to load
+ * for a moment is retried before the user sees an error.
+ * <p>
+ * Only one page is loaded at a time: {@link TransactionPager#loadNextPage()} does nothing while
+ * a page is already on its way. Must be used from the main thread; results are delivered to
+ * the {@link Listener} on the main thread too.
+ */
+public class TransactionPager {
+
+    private final NetworkClient client;
+
+    private final AppExecutors executors;
+
+    private final Listener listener;
+
+    /**
+     * The URL of the next page to fetch, or null once the last page has been loaded.
+     */
+    private String nextPage;
+
+    /**
+     * The currency of the rows loaded so far, or null while there are none.
+     */
+    private Currency currency;
+
+    /**
+     * The page currently being fetched, or null if no page is loading.
+     */
+    private RetryingCall call;
+
+    /**
+     * Takes in the networking client and threads to use, the link to the first page to fetch
+     * (null if there's nothing more to load), the currency of the rows already shown (null if
+     * there are none) and the listener to deliver pages to.
+     */
+    public TransactionPager(NetworkClient client, AppExecutors executors, String nextPage, Currency currency, Listener listener) {
+        this.client = client;
+        this.executors = executors;
+        this.nextPage = nextPage;
+        this.currency = currency;
+        this.listener = listener;
+    }
+
+    /**
+     * Whether there are more pages which haven't been loaded yet.
+     */
+    public boolean hasMore() {
+        return nextPage != null;
+    }
+
+    /**
+     * Whether a page is currently being fetched.
+     */
+    public boolean isLoading() {
+        return call != null;
+    }
+
+    /**
+     * Starts fetching the next page, unless one is already loading or there are no more pages.
+     */
+    public void loadNextPage() {
+        if (isLoading() || !hasMore()) {
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .get()
+                .header("Accept", LoginResponseParser.ACCEPT)
+                .url(nextPage)
+                .build();
+        final RetryingCall pageCall = client.newCall(request);
+        final Currency expectedCurrency = currency;
+        call = pageCall;
+        try {
+            executors.io().execute(new Runnable() {
+                @Override
+                public void run() {
+                    fetch(pageCall, expectedCurrency);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            call = null;
+            listener.onPageError(e);
+        }
+    }
+
+    /**
+     * Stops any page which is still loading. The listener won't be called for it.
+     */
+    public void cancel() {
+        if (call != null) {
+            call.cancel();
+            call = null;
+        }
+    }
+
+    /**
+     * Runs in a background thread, fetching and decoding a single page, and checking it's in
+     * {@code expectedCurrency} (if not null).
+     */
+    private void fetch(final RetryingCall pageCall, Currency expectedCurrency) {
+        try {
+            Response response = pageCall.execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                response.close();
+                deliverError(pageCall, new Exception("Failed to get a page from the server."));
+                return;
+            }
+            TransactionPage page;
+            try {
+                page = new LoginResponseParser().parsePage(body);
+            } finally {
+                body.close();
+            }
+            TransactionList transactions = page.getTransactions();
+            if (expectedCurrency != null && transactions.size() > 0 && !expectedCurrency.equals(transactions.getCurrency())) {
+                throw new NumberFormatException("Mixed currencies: " + expectedCurrency + " and " + transactions.getCurrency());
+            }
+            deliverPage(pageCall, page);
+        } catch (Exception e) {
+            deliverError(pageCall, e);
+        }
+    }
+
+    private void deliverPage(final RetryingCall pageCall, final TransactionPage page) {
+        executors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                // Ignore the page if it was cancelled while it was loading
+                if (call != pageCall) {
+                    return;
+                }
+                call = null;
+                nextPage = page.getNextPage();
+                if (currency == null && page.getTransactions().size() > 0) {
+                    currency = page.getTransactions().getCurrency();
+                }
+                listener.onPageLoaded(page);
+            }
+        });
+    }
+
+    private void deliverError(final RetryingCall pageCall, final Exception exception) {
+        executors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (call != pageCall) {
+                    return;
+                }
+                call = null;
+                listener.onPageError(exception);
+            }
+        });
+    }
+
+    /**
+     * Receives pages as they are loaded.
+     */
+    public interface Listener {
+        /**
+         * A page of transactions has been loaded. Called on the main thread.
+         */
+        void onPageLoaded(TransactionPage page);
+
+        /**
+         * Loading a page failed. {@link TransactionPager#loadNextPage()} can be called again
+         * to retry. Called on the main thread.
+         */
+        void onPageError(Exception exception);
+    }
+}
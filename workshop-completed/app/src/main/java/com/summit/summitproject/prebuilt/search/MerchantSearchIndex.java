@@ -0,0 +1,214 @@
+package com.summit.summitproject.prebuilt.search;
+
+import com.summit.summitproject.prebuilt.model.TransactionList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Finds the transactions whose merchant name contains some text, without looking at every row.
+ * <br>
+ * There are far fewer merchants than transactions, so the index works on merchants:
+ * <ul>
+ *     <li>Every three-letter sequence (trigram) of every merchant name maps to the merchants
+ *     whose name contains it, so a query only has to check merchants which share all of its
+ *     trigrams. Queries shorter than three letters check every merchant name directly.</li>
+ *     <li>Each merchant maps to the rows it appears in, so once the matching merchants are known
+ *     their rows are collected straight away.</li>
+ * </ul>
+ * Rows are indexed incrementally: {@link MerchantSearchIndex#update(TransactionList)} only
+ * looks at rows added since the last call.
+ * <p>
+ * Not thread safe. Only use it from one thread at a time.
+ */
+class MerchantSearchIndex {
+
+    private static final int INITIAL_MERCHANTS = 16;
+
+    /**
+     * The list that has been indexed, or null if there is none yet.
+     */
+    private TransactionList transactions;
+
+    /**
+     * How many rows of {@link MerchantSearchIndex#transactions} have been indexed.
+     */
+    private int indexedRows;
+
+    /**
+     * The lower case name of each merchant id, or null if it hasn't been seen yet.
+     */
+    private String[] names = new String[INITIAL_MERCHANTS];
+
+    /**
+     * The rows each merchant id appears in, in ascending order.
+     */
+    private IntList[] rows = new IntList[INITIAL_MERCHANTS];
+
+    /**
+     * The merchant ids whose name contains each trigram (see
+     * {@link MerchantSearchIndex#trigram(String, int)}).
+     */
+    private final HashMap<Long, IntList> trigramMerchants = new HashMap<>();
+
+    /**
+     * Indexes the rows of {@code transactions} added since the last update. It must start with
+     * the same rows as the list given last time, unless the index has been
+     * {@link MerchantSearchIndex#reset()}.
+     */
+    void update(TransactionList transactions) {
+        this.transactions = transactions;
+        ensureMerchantCapacity(transactions.getMerchantCount());
+        for (int row = indexedRows; row < transactions.size(); row++) {
+            int merchantId = transactions.getMerchantId(row);
+            if (names[merchantId] == null) {
+                addMerchant(merchantId, transactions.getMerchant(row));
+            }
+            if (rows[merchantId] == null) {
+                rows[merchantId] = new IntList();
+            }
+            rows[merchantId].add(row);
+        }
+        indexedRows = transactions.size();
+    }
+
+    /**
+     * Forgets every indexed row, e.g. because the list was replaced. Merchant names are kept,
+     * since merchant ids don't change.
+     */
+    void reset() {
+        transactions = null;
+        indexedRows = 0;
+        Arrays.fill(rows, null);
+    }
+
+    /**
+     * The list that has been indexed.
+     */
+    TransactionList getTransactions() {
+        if (transactions == null) {
+            throw new IllegalStateException("Nothing indexed yet");
+        }
+        return transactions;
+    }
+
+    /**
+     * The indexed rows whose merchant name contains {@code query}, ignoring case, in ascending
+     * order -- or null for an empty query, which matches every row.
+     */
+    int[] search(String query) {
+        if (transactions == null) {
+            throw new IllegalStateException("Nothing indexed yet");
+        }
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+
+        // Find the matching merchants, then gather up their rows
+        int[] merchants = findMerchants(normalized);
+        int total = 0;
+        for (int merchantId : merchants) {
+            total += rows[merchantId] != null ? rows[merchantId].size : 0;
+        }
+        int[] matches = new int[total];
+        int count = 0;
+        for (int merchantId : merchants) {
+            IntList merchantRows = rows[merchantId];
+            if (merchantRows != null) {
+                System.arraycopy(merchantRows.values, 0, matches, count, merchantRows.size);
+                count += merchantRows.size;
+            }
+        }
+        if (merchants.length > 1) {
+            // Each merchant's rows are in order, but not the merchants' rows together
+            Arrays.sort(matches);
+        }
+        return matches;
+    }
+
+    private int[] findMerchants(String query) {
+        IntList matches = new IntList();
+        if (query.length() < 3) {
+            for (int merchantId = 0; merchantId < names.length; merchantId++) {
+                if (names[merchantId] != null && names[merchantId].contains(query)) {
+                    matches.add(merchantId);
+                }
+            }
+            return matches.toArray();
+        }
+
+        // Only merchants sharing the query's rarest trigram can match
+        IntList candidates = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            IntList merchants = trigramMerchants.get(trigram(query, i));
+            if (merchants == null) {
+                return new int[0];
+            }
+            if (candidates == null || merchants.size < candidates.size) {
+                candidates = merchants;
+            }
+        }
+        for (int i = 0; i < candidates.size; i++) {
+            int merchantId = candidates.values[i];
+            if (names[merchantId].contains(query)) {
+                matches.add(merchantId);
+            }
+        }
+        return matches.toArray();
+    }
+
+    private void addMerchant(int merchantId, String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        names[merchantId] = normalized;
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            Long key = trigram(normalized, i);
+            IntList merchants = trigramMerchants.get(key);
+            if (merchants == null) {
+                merchants = new IntList();
+                trigramMerchants.put(key, merchants);
+            }
+            // A name may contain the same trigram more than once
+            if (merchants.size == 0 || merchants.values[merchants.size - 1] != merchantId) {
+                merchants.add(merchantId);
+            }
+        }
+    }
+
+    private void ensureMerchantCapacity(int merchantCount) {
+        if (merchantCount > names.length) {
+            int capacity = Math.max(merchantCount, names.length * 2);
+            names = Arrays.copyOf(names, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+        }
+    }
+
+    /**
+     * The three chars of {@code text} starting at {@code start}, packed into one number.
+     */
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * A growable list of ints, without boxing each one.
+     */
+    private static class IntList {
+
+        int[] values = new int[4];
+
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.summit.summitproject.prebuilt.search;
+
+/**
+ * The ways transactions can be ordered in the list.
+ */
+public enum TransactionOrder {
+
+    /**
+     * The order the transactions were loaded in, most recent first.
+     */
+    RECENT,
+
+    /**
+     * Biggest amount first. Transactions with the same amount keep their recent-first order.
+     */
+    AMOUNT,
+
+    /**
+     * Merchant name from A to Z. Each merchant's transactions keep their recent-first order.
+     */
+    MERCHANT,
+
+    /**
+     * A section for each merchant under a header with the merchant's total, the biggest total
+     * first. Each merchant's transactions keep their recent-first order.
+     */
+    GROUPED_BY_MERCHANT
+}
@@ -0,0 +1,291 @@
+package com.summit.summitproject.prebuilt.search;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.concurrent.SerialExecutor;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.model.TransactionSections;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Searches a list of transactions by merchant as the user types, and puts the matches into the
+ * chosen {@link TransactionOrder}.
+ * <br>
+ * The list is indexed in the background (see {@link MerchantSearchIndex}) as it's given and as
+ * more rows are appended, so answering a query only touches the matching merchants and rows.
+ * Typing is debounced, so a query only runs once the user pauses, and a query which has been
+ * overtaken by a newer one -- or by a change to the list -- is skipped or its results dropped.
+ * Sorting also happens in the background (see {@link TransactionSorter}), so changing the order
+ * of a long list doesn't hold up the UI.
+ * <p>
+ * Indexing and searching run one at a time in order on a background thread, so the index is
+ * never touched by two threads at once. Must be used from the main thread; the listener is
+ * called on the main thread.
+ */
+public class TransactionSearch {
+
+    private static final String TAG = "TransactionSearch";
+
+    /**
+     * How long typing must pause before the query runs.
+     */
+    private static final long DEBOUNCE_MILLIS = 150;
+
+    private final AppExecutors executors;
+
+    private final Listener listener;
+
+    /**
+     * Runs indexing and searches one at a time, in order.
+     */
+    private final SerialExecutor worker;
+
+    /**
+     * Only touched on the {@link TransactionSearch#worker}.
+     */
+    private final MerchantSearchIndex index = new MerchantSearchIndex();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Runnable runQuery = new Runnable() {
+        @Override
+        public void run() {
+            search();
+        }
+    };
+
+    private String query = "";
+
+    private TransactionOrder order = TransactionOrder.RECENT;
+
+    /**
+     * Bumped by every new query or list, so that older results are dropped.
+     */
+    private int generation;
+
+    /**
+     * The latest {@link TransactionSearch#generation}, for the worker to skip searches which have
+     * already been overtaken.
+     */
+    private volatile int latestGeneration;
+
+    /**
+     * Whether a list has been given to search yet.
+     */
+    private boolean hasTransactions;
+
+    /**
+     * Bumped whenever the list is replaced or appended to, so results can tell whether they were
+     * found in the same rows as the ones before them.
+     */
+    private int listVersion;
+
+    /**
+     * The query and {@link TransactionSearch#listVersion} of the last results delivered, or null
+     * and 0 if none have been.
+     */
+    private String deliveredQuery;
+
+    private int deliveredListVersion;
+
+    /**
+     * Whether the last results delivered were the whole list, unfiltered and in its original
+     * order, and no newer search is running.
+     */
+    private boolean showingEverything;
+
+    private boolean cancelled;
+
+    /**
+     * Takes in the threads to index and search on, and a listener to receive the results.
+     */
+    public TransactionSearch(AppExecutors executors, Listener listener) {
+        this.executors = executors;
+        this.listener = listener;
+        this.worker = new SerialExecutor(executors.background());
+    }
+
+    /**
+     * Searches a new list, e.g. after the data was refreshed. {@code transactions} must not
+     * change afterwards, so pass a snapshot. The current query is run against it straight away.
+     */
+    public void setTransactions(final TransactionList transactions) {
+        hasTransactions = true;
+        listVersion++;
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                index.reset();
+                index.update(transactions);
+            }
+        });
+        handler.removeCallbacks(runQuery);
+        search();
+    }
+
+    /**
+     * Adds rows appended to the end of the list given last time. {@code transactions} must
+     * start with the same rows as before, and must not change afterwards.
+     * <br>
+     * If the whole list is already being shown, the listener is told straight away that
+     * {@code transactions} was appended. Otherwise the query is run again to pick up any new
+     * matches.
+     */
+    public void appendTransactions(final TransactionList transactions) {
+        listVersion++;
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                index.update(transactions);
+            }
+        });
+        if (cancelled) {
+            return;
+        }
+        if (showingEverything && isShowingEverything(query, order)) {
+            // Everything matches in its original order, so there's nothing to search or sort
+            latestGeneration = ++generation;
+            deliveredListVersion = listVersion;
+            listener.onSearchResults(transactions, TransactionSections.NONE, true, false);
+        } else {
+            handler.removeCallbacks(runQuery);
+            search();
+        }
+    }
+
+    /**
+     * Changes what's being searched for. The search runs once the user stops typing, or straight
+     * away if the query was cleared. Does nothing but remember the query until
+     * {@link TransactionSearch#setTransactions(TransactionList)} is called.
+     */
+    public void setQuery(String query) {
+        if (query.equals(this.query)) {
+            return;
+        }
+        this.query = query;
+        handler.removeCallbacks(runQuery);
+        if (query.trim().isEmpty()) {
+            search();
+        } else {
+            handler.postDelayed(runQuery, DEBOUNCE_MILLIS);
+        }
+    }
+
+    /**
+     * The current query.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Changes the order of the results. They're sorted again straight away.
+     */
+    public void setOrder(TransactionOrder order) {
+        if (order == this.order) {
+            return;
+        }
+        this.order = order;
+        handler.removeCallbacks(runQuery);
+        search();
+    }
+
+    /**
+     * The current order.
+     */
+    public TransactionOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Stops delivering results.
+     */
+    public void cancel() {
+        cancelled = true;
+        handler.removeCallbacks(runQuery);
+    }
+
+    private void search() {
+        if (!hasTransactions) {
+            // Runs once there's something to search
+            return;
+        }
+        final int searchGeneration = ++generation;
+        latestGeneration = searchGeneration;
+        // Until the results arrive, appended rows can't simply be added to what's shown
+        showingEverything = false;
+        final String searchQuery = query;
+        final TransactionOrder searchOrder = order;
+        final int searchListVersion = listVersion;
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                if (searchGeneration != latestGeneration) {
+                    // Already overtaken by a newer query, so don't bother
+                    return;
+                }
+                long start = SystemClock.elapsedRealtimeNanos();
+                int[] rows = index.search(searchQuery);
+                TransactionSorter.Result sorted;
+                try {
+                    sorted = TransactionSorter.sort(index.getTransactions(), rows, searchOrder);
+                } catch (ArithmeticException e) {
+                    Log.w(TAG, "Unable to sort transactions", e);
+                    sorted = TransactionSorter.sort(index.getTransactions(), rows, TransactionOrder.RECENT);
+                }
+                final TransactionSorter.Result results = sorted;
+                Log.d(TAG, "Found " + results.transactions.size() + " rows for \"" + searchQuery + "\" by " + searchOrder + " in " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + "us");
+
+                executors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!cancelled && searchGeneration == generation) {
+                            showingEverything = isShowingEverything(searchQuery, searchOrder);
+                            // The same query over the same rows only changes the order
+                            boolean sameRows = searchQuery.equals(deliveredQuery) && searchListVersion == deliveredListVersion;
+                            deliveredQuery = searchQuery;
+                            deliveredListVersion = searchListVersion;
+                            listener.onSearchResults(results.transactions, results.sections, false, sameRows);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Whether searching for {@code query} in {@code order} gives back the whole list as it is.
+     */
+    private static boolean isShowingEverything(String query, TransactionOrder order) {
+        return query.trim().isEmpty() && order == TransactionOrder.RECENT;
+    }
+
+    private void submit(Runnable work) {
+        try {
+            worker.execute(work);
+        } catch (RejectedExecutionException e) {
+            // Still queued, and runs along with the next piece of work
+            Log.w(TAG, "Background threads are busy", e);
+        }
+    }
+
+    /**
+     * Receives search results.
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread with the transactions matching the current query, in the
+         * current order, and the sections they're split into (if any). If {@code appended} is
+         * true, they're the previous results with more rows added to the end; otherwise they
+         * replace the previous results. If {@code sameRows} is true, they hold exactly the same
+         * rows as the previous results, only in a different order, so anything worked out from
+         * the rows alone still holds.
+         */
+        void onSearchResults(TransactionList results, TransactionSections sections, boolean appended, boolean sameRows);
+    }
+}
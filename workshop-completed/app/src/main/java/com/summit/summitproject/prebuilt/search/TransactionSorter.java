@@ -0,0 +1,184 @@
+package com.summit.summitproject.prebuilt.search;
+
+import com.summit.summitproject.prebuilt.model.Money;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.model.TransactionListView;
+import com.summit.summitproject.prebuilt.model.TransactionSections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Puts rows of a {@link TransactionList} into a {@link TransactionOrder}.
+ * <br>
+ * Rows are never compared as objects. Each one is given a primitive sort key up front -- its
+ * rank (by amount, or by its merchant's name or total) in the high 32 bits and its position in
+ * the low 32 bits -- and the keys are sorted as plain longs. Only the merchants, of which there
+ * are far fewer than rows, are ranked with a comparator. Keeping the position in the key keeps
+ * rows which rank the same in their original order.
+ * <p>
+ * Slow for long lists, so only call it on a background thread.
+ */
+class TransactionSorter {
+
+    private TransactionSorter() {
+    }
+
+    /**
+     * Puts {@code rows} of {@code transactions} (or all of its rows, if {@code rows} is null)
+     * into {@code order}.
+     *
+     * @throws ArithmeticException if a merchant's total is too big to hold.
+     */
+    static Result sort(TransactionList transactions, int[] rows, TransactionOrder order) {
+        if (order == TransactionOrder.RECENT) {
+            TransactionList results = rows == null ? transactions : new TransactionListView(transactions, rows, rows.length);
+            return new Result(results, TransactionSections.NONE);
+        }
+
+        if (rows == null) {
+            rows = new int[transactions.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+            }
+        }
+        int count = rows.length;
+        long[] keys = new long[count];
+        long[] merchantTotals = null;
+
+        switch (order) {
+            case AMOUNT: {
+                long[] amounts = new long[count];
+                for (int i = 0; i < count; i++) {
+                    amounts[i] = transactions.getAmountCents(rows[i]);
+                }
+                long[] sortedAmounts = amounts.clone();
+                Arrays.sort(sortedAmounts);
+                for (int i = 0; i < count; i++) {
+                    // Equal amounts find the same index, so they rank the same
+                    int rank = count - 1 - Arrays.binarySearch(sortedAmounts, amounts[i]);
+                    keys[i] = key(rank, i);
+                }
+                break;
+            }
+            case MERCHANT: {
+                int[] merchantRanks = rankMerchants(transactions, rows, null);
+                for (int i = 0; i < count; i++) {
+                    keys[i] = key(merchantRanks[transactions.getMerchantId(rows[i])], i);
+                }
+                break;
+            }
+            case GROUPED_BY_MERCHANT: {
+                merchantTotals = new long[transactions.getMerchantCount()];
+                for (int row : rows) {
+                    int merchantId = transactions.getMerchantId(row);
+                    merchantTotals[merchantId] = Money.add(merchantTotals[merchantId], transactions.getAmountCents(row));
+                }
+                int[] merchantRanks = rankMerchants(transactions, rows, merchantTotals);
+                for (int i = 0; i < count; i++) {
+                    keys[i] = key(merchantRanks[transactions.getMerchantId(rows[i])], i);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown order " + order);
+        }
+
+        Arrays.sort(keys);
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = rows[(int) keys[i]];
+        }
+
+        TransactionSections sections = TransactionSections.NONE;
+        if (merchantTotals != null) {
+            sections = sectionsByMerchant(transactions, sorted, merchantTotals);
+        }
+        return new Result(new TransactionListView(transactions, sorted, count), sections);
+    }
+
+    /**
+     * Ranks the merchants of {@code rows}: biggest total first if {@code totals} is given, and
+     * otherwise (or for equal totals) by name from A to Z. Returns each merchant id's rank;
+     * merchants with no rows aren't ranked.
+     */
+    private static int[] rankMerchants(TransactionList transactions, int[] rows, final long[] totals) {
+        // Merchants are named by their first row, since that's all a list can look names up by
+        int[] firstRows = new int[transactions.getMerchantCount()];
+        Arrays.fill(firstRows, -1);
+        int merchantCount = 0;
+        for (int row : rows) {
+            int merchantId = transactions.getMerchantId(row);
+            if (firstRows[merchantId] == -1) {
+                firstRows[merchantId] = row;
+                merchantCount++;
+            }
+        }
+
+        final String[] names = new String[firstRows.length];
+        Integer[] merchants = new Integer[merchantCount];
+        int next = 0;
+        for (int merchantId = 0; merchantId < firstRows.length; merchantId++) {
+            if (firstRows[merchantId] != -1) {
+                names[merchantId] = transactions.getMerchant(firstRows[merchantId]);
+                merchants[next++] = merchantId;
+            }
+        }
+
+        Arrays.sort(merchants, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                if (totals != null && totals[first] != totals[second]) {
+                    return totals[first] > totals[second] ? -1 : 1;
+                }
+                int byName = String.CASE_INSENSITIVE_ORDER.compare(names[first], names[second]);
+                return byName != 0 ? byName : first.compareTo(second);
+            }
+        });
+
+        int[] ranks = new int[firstRows.length];
+        for (int rank = 0; rank < merchants.length; rank++) {
+            ranks[merchants[rank]] = rank;
+        }
+        return ranks;
+    }
+
+    /**
+     * A section for each run of rows with the same merchant in {@code sorted}.
+     */
+    private static TransactionSections sectionsByMerchant(TransactionList transactions, int[] sorted, long[] merchantTotals) {
+        int[] starts = new int[sorted.length];
+        long[] totals = new long[sorted.length];
+        int sectionCount = 0;
+        int previousMerchantId = -1;
+        for (int i = 0; i < sorted.length; i++) {
+            int merchantId = transactions.getMerchantId(sorted[i]);
+            if (merchantId != previousMerchantId) {
+                starts[sectionCount] = i;
+                totals[sectionCount] = merchantTotals[merchantId];
+                sectionCount++;
+                previousMerchantId = merchantId;
+            }
+        }
+        return new TransactionSections(Arrays.copyOf(starts, sectionCount), Arrays.copyOf(totals, sectionCount));
+    }
+
+    private static long key(int rank, int position) {
+        return ((long) rank << 32) | position;
+    }
+
+    /**
+     * Sorted transactions, and the sections they're split into (if any).
+     */
+    static class Result {
+
+        final TransactionList transactions;
+
+        final TransactionSections sections;
+
+        Result(TransactionList transactions, TransactionSections sections) {
+            this.transactions = transactions;
+            this.sections = sections;
+        }
+    }
+}
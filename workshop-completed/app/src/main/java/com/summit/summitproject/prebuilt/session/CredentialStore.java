@@ -0,0 +1,298 @@
+package com.summit.summitproject.prebuilt.session;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.concurrent.SerialExecutor;
+import com.summit.summitproject.prebuilt.login.SessionToken;
+
+import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Remembers the user's credentials when they check "Remember Me", so the login screen can be
+ * filled in next time. Along with them it keeps the {@link SessionToken} from the last login and
+ * the key of the session it fetched (see {@link SessionRepository}), so a relaunch can go
+ * straight back to that session while the token is still valid.
+ * <br>
+ * Reading {@link SharedPreferences} for the first time loads and parses its whole XML file,
+ * and blocks whichever thread asks first until that's done -- at app start, that would be the
+ * main thread, before the login screen's first frame. Instead the preferences are loaded on a
+ * background thread as soon as this is created (when the app starts, see
+ * {@link com.summit.summitproject.SummitApplication}), and kept in memory from then on. The
+ * login screen is drawn straight away and asks to be called back with
+ * {@link CredentialStore#load(Callback)} once the credentials are ready.
+ * <p>
+ * Changes are made in memory straight away and written to disk in the background, in order.
+ * Must be used from the main thread; callbacks are called on the main thread.
+ */
+public class CredentialStore {
+
+    /**
+     * The key under which the <b>username</b> will be stored in {@link SharedPreferences}.
+     */
+    private static final String PREF_USERNAME = "USERNAME";
+
+    /**
+     * The key under which the <b>password</b> will be stored in {@link SharedPreferences}.
+     */
+    private static final String PREF_PASSWORD = "PASSWORD";
+
+    private static final String PREF_SESSION_TOKEN = "SESSION_TOKEN";
+
+    private static final String PREF_SESSION_EXPIRES_AT = "SESSION_EXPIRES_AT";
+
+    private static final String PREF_SESSION_KEY = "SESSION_KEY";
+
+    private final Context context;
+
+    private final String name;
+
+    private final AppExecutors executors;
+
+    /**
+     * Runs the writes one at a time, so they reach the disk in the order they were made.
+     */
+    private final SerialExecutor writes;
+
+    /**
+     * Callbacks waiting for the load to finish.
+     */
+    private final ArrayList<Callback> waiting = new ArrayList<>();
+
+    private boolean loaded;
+
+    /**
+     * Set once the credentials are saved or cleared, after which what's on disk is older than
+     * what's in memory.
+     */
+    private boolean changed;
+
+    /**
+     * The same as {@link CredentialStore#changed}, for the session.
+     */
+    private boolean sessionChanged;
+
+    private String username = "";
+
+    private String password = "";
+
+    private boolean hasCredentials;
+
+    private SessionToken sessionToken;
+
+    private String sessionKey;
+
+    /**
+     * Starts loading the preferences file called {@code name} in the background straight away.
+     */
+    public CredentialStore(Context context, String name, AppExecutors executors) {
+        this.context = context;
+        this.name = name;
+        this.executors = executors;
+        writes = new SerialExecutor(executors.io());
+
+        Runnable load = new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences preferences = preferences();
+                final boolean storedHasCredentials = preferences.contains(PREF_USERNAME);
+                final String storedUsername = preferences.getString(PREF_USERNAME, "");
+                final String storedPassword = preferences.getString(PREF_PASSWORD, "");
+                String token = preferences.getString(PREF_SESSION_TOKEN, null);
+                final SessionToken storedToken = token != null
+                        ? new SessionToken(token, preferences.getLong(PREF_SESSION_EXPIRES_AT, 0))
+                        : null;
+                final String storedSessionKey = preferences.getString(PREF_SESSION_KEY, null);
+                CredentialStore.this.executors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(storedHasCredentials, storedUsername, storedPassword, storedToken, storedSessionKey);
+                    }
+                });
+            }
+        };
+        try {
+            executors.io().execute(load);
+        } catch (RejectedExecutionException e) {
+            // The login screen is waiting for this, so load here rather than not at all
+            load.run();
+        }
+    }
+
+    /**
+     * Calls {@code callback} once the credentials have been loaded: straight away if they
+     * already have been.
+     */
+    public void load(Callback callback) {
+        if (loaded) {
+            callback.onCredentialsLoaded(this);
+        } else {
+            waiting.add(callback);
+        }
+    }
+
+    /**
+     * Whether the credentials have been loaded yet. Until they have, this store looks empty.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Whether credentials are being remembered.
+     */
+    public boolean hasCredentials() {
+        return hasCredentials;
+    }
+
+    /**
+     * The remembered username, or an empty String if there is none.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * The remembered password, or an empty String if there is none.
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * The session token from the last login, or null if there is none. It may have expired, see
+     * {@link SessionToken#isValid()}.
+     */
+    public SessionToken getSessionToken() {
+        return sessionToken;
+    }
+
+    /**
+     * The key of the session the last login fetched, or null if there is none.
+     */
+    public String getSessionKey() {
+        return sessionKey;
+    }
+
+    /**
+     * Remembers the session token from a login and the key of the session it fetched. They're
+     * written to disk in the background.
+     */
+    public void saveSession(final SessionToken token, final String key) {
+        sessionToken = token;
+        sessionKey = key;
+        sessionChanged = true;
+        write(new Runnable() {
+            @Override
+            public void run() {
+                preferences().edit()
+                        .putString(PREF_SESSION_TOKEN, token.getToken())
+                        .putLong(PREF_SESSION_EXPIRES_AT, token.getExpiresAt())
+                        .putString(PREF_SESSION_KEY, key)
+                        .apply();
+            }
+        });
+    }
+
+    /**
+     * Forgets the session token, e.g. once the server has stopped accepting it.
+     */
+    public void clearSession() {
+        sessionToken = null;
+        sessionKey = null;
+        sessionChanged = true;
+        write(new Runnable() {
+            @Override
+            public void run() {
+                preferences().edit()
+                        .remove(PREF_SESSION_TOKEN)
+                        .remove(PREF_SESSION_EXPIRES_AT)
+                        .remove(PREF_SESSION_KEY)
+                        .apply();
+            }
+        });
+    }
+
+    /**
+     * Remembers the credentials. They're written to disk in the background.
+     */
+    public void save(final String username, final String password) {
+        this.username = username;
+        this.password = password;
+        hasCredentials = true;
+        changed = true;
+        write(new Runnable() {
+            @Override
+            public void run() {
+                preferences().edit()
+                        .putString(PREF_USERNAME, username)
+                        .putString(PREF_PASSWORD, password)
+                        .apply();
+            }
+        });
+    }
+
+    /**
+     * Forgets the credentials, and the session token along with them.
+     */
+    public void clear() {
+        username = "";
+        password = "";
+        hasCredentials = false;
+        changed = true;
+        sessionToken = null;
+        sessionKey = null;
+        sessionChanged = true;
+        write(new Runnable() {
+            @Override
+            public void run() {
+                preferences().edit().clear().apply();
+            }
+        });
+    }
+
+    private void onLoaded(boolean storedHasCredentials, String storedUsername, String storedPassword, SessionToken storedToken, String storedSessionKey) {
+        // Anything saved or cleared since the load started is newer than what was on disk
+        if (!changed) {
+            hasCredentials = storedHasCredentials;
+            username = storedUsername;
+            password = storedPassword;
+        }
+        if (!sessionChanged) {
+            sessionToken = storedToken;
+            sessionKey = storedSessionKey;
+        }
+        loaded = true;
+        ArrayList<Callback> callbacks = new ArrayList<>(waiting);
+        waiting.clear();
+        for (Callback callback : callbacks) {
+            callback.onCredentialsLoaded(this);
+        }
+    }
+
+    /**
+     * The preferences file. Reading it waits for it to load, so only call this from a background
+     * thread.
+     */
+    private SharedPreferences preferences() {
+        return context.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    private void write(Runnable work) {
+        try {
+            writes.execute(work);
+        } catch (RejectedExecutionException e) {
+            // The write stays queued and runs when more work is next submitted. Nothing is
+            // waiting on it, as memory is already up to date.
+        }
+    }
+
+    /**
+     * Called on the main thread once the credentials have been loaded.
+     */
+    public interface Callback {
+        void onCredentialsLoaded(CredentialStore store);
+    }
+}
@@ -0,0 +1,312 @@
+package com.summit.summitproject.prebuilt.session;
+
+import android.util.Log;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.concurrent.SerialExecutor;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Keeps the last successful login result for each user on disk, so the summary screen can be
+ * shown straight away on the next sign in while a fresh copy is fetched in the background
+ * ("stale-while-revalidate").
+ * <p>
+ * Entries are keyed by the username <b>and</b> password, so a cached summary is only ever shown
+ * to someone who typed the same credentials that fetched it. Neither is stored: an entry is
+ * named after an HMAC of them under a random key made for this install, so the names on disk
+ * can't be checked against password guesses without the key as well.
+ * <p>
+ * The cache is bounded: entries older than the maximum age are treated as missing and deleted,
+ * and the least recently written entries are evicted once there are too many or they take up
+ * too much space. Hit and miss counts are kept for monitoring.
+ * <p>
+ * Writes and trimming run one at a time in order, so an entry always ends up holding the
+ * latest result for its user.
+ */
+public class LoginCache {
+
+    private static final String TAG = "LoginCache";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String KEY_ALGORITHM = "HmacSHA256";
+
+    private static final int KEY_BYTES = 32;
+
+    private final File directory;
+
+    /**
+     * Where this install's key for naming entries is kept, outside {@link LoginCache#directory}
+     * so trimming never deletes it.
+     */
+    private final File keyFile;
+
+    private final Object keyLock = new Object();
+
+    /**
+     * The key entries are named with, once it's been loaded or created.
+     */
+    private byte[] key;
+
+    private final AppExecutors executors;
+
+    /**
+     * Writes and trims the entries one at a time, on {@link AppExecutors#io()}.
+     */
+    private final SerialExecutor writes;
+
+    private final long maxAgeMillis;
+
+    private final long maxBytes;
+
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Takes in the directory to store entries in, the file to keep the key for naming them in
+     * (which should be in private storage, and not in {@code directory}), the threads to use for
+     * disk access, and the limits on how old, how large and how many entries may be kept.
+     */
+    public LoginCache(File directory, File keyFile, AppExecutors executors, long maxAgeMillis, long maxBytes, int maxEntries) {
+        this.directory = directory;
+        this.keyFile = keyFile;
+        this.executors = executors;
+        this.writes = new SerialExecutor(executors.io());
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Looks up the cached result for a user on a background thread. The callback is called on
+     * the main thread, with null if nothing fresh enough is cached. Must be called from the main
+     * thread: if the background threads are too busy, the callback is called straight away
+     * with null.
+     */
+    public void get(final String username, final String password, final Callback callback) {
+        try {
+            executors.io().execute(new Runnable() {
+                @Override
+                public void run() {
+                    LoginResult cached;
+                    try {
+                        cached = read(fileFor(username, password));
+                    } catch (IOException e) {
+                        Log.w(TAG, "Unable to load the cache key", e);
+                        cached = null;
+                    }
+                    final LoginResult result = cached;
+                    logLookup(result);
+
+                    executors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onCacheLoaded(result);
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Not worth holding up the main thread for: the login goes ahead without it
+            logLookup(null);
+            callback.onCacheLoaded(null);
+        }
+    }
+
+    /**
+     * Stores a user's latest result on a background thread, then trims the cache back within its
+     * limits.
+     */
+    public void put(final String username, final String password, final LoginResult result) {
+        try {
+            writes.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        LoginResultFile.write(fileFor(username, password), result);
+                    } catch (IOException e) {
+                        Log.w(TAG, "Unable to cache login result", e);
+                    }
+                    trim();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The write stays queued and runs when more work is next submitted
+        }
+    }
+
+    /**
+     * How many lookups found a fresh entry.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * How many lookups found nothing, or only an expired entry.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void logLookup(LoginResult result) {
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        Log.d(TAG, "Lookup " + (result != null ? "hit" : "miss") + " (hits: " + hits.get() + ", misses: " + misses.get() + ")");
+    }
+
+    /**
+     * Reads an entry, deleting it instead if it has expired. Runs on a background thread.
+     */
+    private LoginResult read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        if (isExpired(file, System.currentTimeMillis())) {
+            file.delete();
+            return null;
+        }
+        try {
+            return LoginResultFile.read(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read cached login result", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Deletes expired entries, then the oldest entries until the cache is within its size and
+     * count limits. Runs on a background thread.
+     */
+    private void trim() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                // Newest first
+                return Long.compare(b.lastModified(), a.lastModified());
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        long totalBytes = 0;
+        int kept = 0;
+        for (File file : files) {
+            long length = file.length();
+            if (isExpired(file, now) || kept >= maxEntries || totalBytes + length > maxBytes) {
+                file.delete();
+            } else {
+                totalBytes += length;
+                kept++;
+            }
+        }
+    }
+
+    private boolean isExpired(File file, long now) {
+        return now - file.lastModified() > maxAgeMillis;
+    }
+
+    /**
+     * The entry for a user's credentials. Runs on a background thread.
+     */
+    private File fileFor(String username, String password) throws IOException {
+        return new File(directory, hmac(loadKey(), username + '\n' + password));
+    }
+
+    /**
+     * Reads this install's key, creating it first if there isn't one yet. Entries made before
+     * there was a key were named after a plain hash of the credentials, so they're all deleted
+     * when it's created. Runs on a background thread.
+     */
+    private byte[] loadKey() throws IOException {
+        synchronized (keyLock) {
+            if (key != null) {
+                return key;
+            }
+            if (keyFile.length() == KEY_BYTES) {
+                byte[] stored = new byte[KEY_BYTES];
+                try (InputStream in = new FileInputStream(keyFile)) {
+                    new DataInputStream(in).readFully(stored);
+                }
+                key = stored;
+                return key;
+            }
+
+            File[] entries = directory.listFiles();
+            if (entries != null) {
+                for (File entry : entries) {
+                    entry.delete();
+                }
+            }
+            byte[] created = new byte[KEY_BYTES];
+            new SecureRandom().nextBytes(created);
+            File parent = keyFile.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Unable to create " + parent);
+            }
+            try (OutputStream out = new FileOutputStream(keyFile)) {
+                out.write(created);
+            }
+            key = created;
+            return key;
+        }
+    }
+
+    /**
+     * An HMAC-SHA256 of {@code value} under {@code key}, as hex.
+     */
+    private static String hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance(KEY_ALGORITHM);
+            mac.init(new SecretKeySpec(key, KEY_ALGORITHM));
+            byte[] digest = mac.doFinal(value.getBytes(UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            // Every Android device is required to support HMAC-SHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Receives the result of a cache lookup.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread with the cached result, or null on a miss.
+         */
+        void onCacheLoaded(LoginResult result);
+    }
+}
@@ -0,0 +1,90 @@
+package com.summit.summitproject.prebuilt.session;
+
+import com.summit.summitproject.prebuilt.login.LoginResult;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link LoginResult} as a small binary file. Used by both the
+ * {@link SessionRepository} and the {@link LoginCache}.
+ * <p>
+ * Does blocking I/O, so it must be used from a background thread.
+ */
+class LoginResultFile {
+
+    /**
+     * Bumped whenever the layout of the files changes, so old files are ignored.
+     */
+    private static final int FILE_VERSION = 4;
+
+    private LoginResultFile() {
+    }
+
+    /**
+     * Writes {@code result} to {@code file}, replacing whatever was there. Writes to a temporary
+     * file first, so a half-written file is never read back. The temporary file's name is fixed,
+     * so callers must never write the same file from two threads at once.
+     */
+    static void write(File file, LoginResult result) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeUTF(result.getName());
+            out.writeUTF(result.getCardNum());
+            out.writeBoolean(result.getNextPage() != null);
+            if (result.getNextPage() != null) {
+                out.writeUTF(result.getNextPage());
+            }
+            TransactionList transactions = result.getTransactions();
+            TransactionStore store;
+            if (transactions instanceof TransactionStore) {
+                store = (TransactionStore) transactions;
+            } else {
+                store = new TransactionStore(transactions.size());
+                store.addAll(transactions);
+            }
+            store.writeTo(out);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * Reads a result previously written with {@link LoginResultFile#write}, or returns null if
+     * the file doesn't exist or was written by an older version of the app.
+     */
+    static LoginResult read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                return null;
+            }
+            String name = in.readUTF();
+            String cardNum = in.readUTF();
+            String nextPage = in.readBoolean() ? in.readUTF() : null;
+            TransactionStore transactions = TransactionStore.readFrom(in);
+            return new LoginResult(name, cardNum, transactions, nextPage);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.summit.summitproject.prebuilt.session;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.concurrent.SerialExecutor;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Holds the result of each login inside the app's process, so that screens only need to pass
+ * a short session key to each other instead of the whole {@link LoginResult}.
+ * <p>
+ * Putting a large list of transactions into an {@link android.content.Intent} means Java
+ * serialization through Binder, which is slow, allocates a lot and crashes with a
+ * {@link android.os.TransactionTooLargeException} at around 1 MB.
+ * <p>
+ * Sessions are kept in memory and also written to disk in the background, so a screen
+ * recreated after the system killed the app's process can still find its session. Writes run
+ * one at a time in order, so a session's file always ends up holding its latest data.
+ * <p>
+ * A session's data can be replaced with fresher data using
+ * {@link SessionRepository#update(String, LoginResult)}; screens showing it are told through
+ * their {@link Listener}. If fetching fresher data fails instead, the screen showing the session
+ * finds out through {@link SessionRepository#getRefreshFailures()}.
+ */
+public class SessionRepository {
+
+    private static final String TAG = "SessionRepository";
+
+    /**
+     * How many sessions are kept in memory and on disk. Older ones are dropped.
+     */
+    private static final int MAX_SESSIONS = 3;
+
+    private final File directory;
+
+    private final AppExecutors executors;
+
+    /**
+     * Writes and trims the session files one at a time, on {@link AppExecutors#io()}.
+     */
+    private final SerialExecutor writes;
+
+    /**
+     * The most recently used sessions, oldest first. Only touched from the main thread.
+     */
+    private final LinkedHashMap<String, LoginResult> memory =
+            new LinkedHashMap<String, LoginResult>(MAX_SESSIONS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LoginResult> eldest) {
+                    return size() > MAX_SESSIONS;
+                }
+            };
+
+    /**
+     * Screens to tell when a session's data changes. Only touched from the main thread.
+     */
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+
+    private final MutableLiveData<RefreshFailure> refreshFailures = new MutableLiveData<>();
+
+    /**
+     * Takes in the directory to store session files in and the threads to use for disk access.
+     */
+    public SessionRepository(File directory, AppExecutors executors) {
+        this.directory = directory;
+        this.executors = executors;
+        this.writes = new SerialExecutor(executors.io());
+    }
+
+    /**
+     * Stores a login result and returns the key to look it up with. Must be called from the
+     * main thread. The result can be read back straight away; it's written to disk in the
+     * background.
+     */
+    public String put(final LoginResult result) {
+        final String key = UUID.randomUUID().toString();
+        memory.put(key, result);
+        queueWrite(new Runnable() {
+            @Override
+            public void run() {
+                write(key, result);
+                trimDisk();
+            }
+        });
+        return key;
+    }
+
+    /**
+     * Replaces the data held by an existing session, e.g. once a background refresh has
+     * finished, and tells every {@link Listener}. Must be called from the main thread.
+     */
+    public void update(final String key, final LoginResult result) {
+        memory.put(key, result);
+        queueWrite(new Runnable() {
+            @Override
+            public void run() {
+                write(key, result);
+            }
+        });
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onSessionUpdated(key, result);
+        }
+    }
+
+    /**
+     * Records that fresher data for an existing session couldn't be fetched, so the screen
+     * showing it can tell the user it may be out of date. Must be called from the main thread.
+     */
+    public void refreshFailed(String key) {
+        refreshFailures.setValue(new RefreshFailure(key));
+    }
+
+    /**
+     * The last refresh which failed (see {@link SessionRepository#refreshFailed(String)}).
+     * Observers see it again when they start observing, so check
+     * {@link RefreshFailure#consume()} first.
+     */
+    public LiveData<RefreshFailure> getRefreshFailures() {
+        return refreshFailures;
+    }
+
+    /**
+     * Starts telling {@code listener} about session updates. Must be called from the main thread.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling {@code listener} about session updates. Must be called from the main thread.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Looks up a session, first in memory and then on disk. The callback is always called on
+     * the main thread -- straight away if the session is in memory, otherwise once it has been
+     * read from disk. It receives null if the session couldn't be found.
+     */
+    public void get(final String key, final Callback callback) {
+        LoginResult result = key != null ? memory.get(key) : null;
+        if (result != null || key == null) {
+            callback.onSessionLoaded(result);
+            return;
+        }
+
+        try {
+            executors.io().execute(new Runnable() {
+                @Override
+                public void run() {
+                    final LoginResult fromDisk = read(key);
+                    executors.mainThread().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoaded(key, fromDisk, callback);
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // A screen is waiting for this, so read it here rather than not at all
+            onLoaded(key, read(key), callback);
+        }
+    }
+
+    /**
+     * Called on the main thread once a session has been read from disk.
+     */
+    private void onLoaded(String key, LoginResult fromDisk, Callback callback) {
+        if (fromDisk != null) {
+            memory.put(key, fromDisk);
+        }
+        callback.onSessionLoaded(fromDisk);
+    }
+
+    private void queueWrite(Runnable work) {
+        try {
+            writes.execute(work);
+        } catch (RejectedExecutionException e) {
+            // The write stays queued and runs when more work is next submitted. Nothing is
+            // waiting on it, as memory is already up to date.
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key);
+    }
+
+    /**
+     * Writes a session to disk. Runs on a background thread.
+     */
+    private void write(String key, LoginResult result) {
+        try {
+            LoginResultFile.write(fileFor(key), result);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write session " + key, e);
+        }
+    }
+
+    /**
+     * Reads a session from disk, or returns null if it isn't there. Runs on a background thread.
+     */
+    private LoginResult read(String key) {
+        try {
+            return LoginResultFile.read(fileFor(key));
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read session " + key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes all but the newest {@link SessionRepository#MAX_SESSIONS} session files. Runs on a
+     * background thread.
+     */
+    private void trimDisk() {
+        File[] files = directory.listFiles();
+        if (files == null || files.length <= MAX_SESSIONS) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                // Newest first
+                return Long.compare(b.lastModified(), a.lastModified());
+            }
+        });
+        for (int i = MAX_SESSIONS; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Receives a session once it has been looked up.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread with the session, or null if it couldn't be found.
+         */
+        void onSessionLoaded(LoginResult result);
+    }
+
+    /**
+     * Receives a session's new data whenever it is updated.
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread after {@link SessionRepository#update(String, LoginResult)}.
+         */
+        void onSessionUpdated(String key, LoginResult result);
+    }
+
+    /**
+     * A refresh of one session which failed. To be handled once, by the screen showing it.
+     */
+    public static class RefreshFailure {
+
+        private final String key;
+
+        private boolean consumed;
+
+        RefreshFailure(String key) {
+            this.key = key;
+        }
+
+        /**
+         * The key of the session which couldn't be refreshed.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns true the first time it's called, and false after that.
+         */
+        public boolean consume() {
+            if (consumed) {
+                return false;
+            }
+            consumed = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.summit.summitproject.prebuilt.network;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+
+import java.util.concurrent.Future;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Release builds don't bundle the local server (see the debug version of this class), so API
+ * calls always go to {@link com.summit.summitproject.BuildConfig#BASE_URL}.
+ */
+public final class LocalServer {
+
+    private LocalServer() {
+    }
+
+    /**
+     * Does nothing, and returns null.
+     */
+    public static Future<HttpUrl> start(AppExecutors executors) {
+        return null;
+    }
+}
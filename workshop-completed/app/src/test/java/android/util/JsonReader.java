@@ -0,0 +1,108 @@
+package android.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Stands in for the platform's JsonReader when unit tests run on the JVM, where android.jar
+ * only has a stub of it. The platform's was forked from Gson's, so this hands each call to
+ * Gson's and translates its exceptions and tokens.
+ */
+public final class JsonReader implements Closeable {
+
+    private final com.google.gson.stream.JsonReader reader;
+
+    public JsonReader(Reader in) {
+        reader = new com.google.gson.stream.JsonReader(in);
+    }
+
+    public void beginArray() throws IOException {
+        try {
+            reader.beginArray();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public void endArray() throws IOException {
+        try {
+            reader.endArray();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public void beginObject() throws IOException {
+        try {
+            reader.beginObject();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public void endObject() throws IOException {
+        try {
+            reader.endObject();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        try {
+            return reader.hasNext();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public JsonToken peek() throws IOException {
+        try {
+            return JsonToken.valueOf(reader.peek().name());
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public String nextName() throws IOException {
+        try {
+            return reader.nextName();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public String nextString() throws IOException {
+        try {
+            return reader.nextString();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public void nextNull() throws IOException {
+        try {
+            reader.nextNull();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    public void skipValue() throws IOException {
+        try {
+            reader.skipValue();
+        } catch (com.google.gson.stream.MalformedJsonException e) {
+            throw malformed(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static MalformedJsonException malformed(com.google.gson.stream.MalformedJsonException e) {
+        return new MalformedJsonException(e.getMessage());
+    }
+}
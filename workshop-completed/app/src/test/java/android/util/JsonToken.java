@@ -0,0 +1,17 @@
+package android.util;
+
+/**
+ * Stands in for the platform's JsonToken when unit tests run on the JVM (see {@link JsonReader}).
+ */
+public enum JsonToken {
+    BEGIN_ARRAY,
+    END_ARRAY,
+    BEGIN_OBJECT,
+    END_OBJECT,
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    END_DOCUMENT
+}
@@ -0,0 +1,14 @@
+package android.util;
+
+import java.io.IOException;
+
+/**
+ * Stands in for the platform's MalformedJsonException when unit tests run on the JVM (see
+ * {@link JsonReader}).
+ */
+public final class MalformedJsonException extends IOException {
+
+    public MalformedJsonException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,138 @@
+package com.summit.summitproject.prebuilt.analytics;
+
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times adding up spending per merchant at 10k, 100k and 1M rows: from scratch on one thread,
+ * from scratch across every core as {@link SpendingAnalyzer} does, and incrementally when a page
+ * of new rows arrives. Prints the median of each, and checks every way gives the same totals.
+ * <br>
+ * The times are printed rather than asserted on, as they depend on the machine.
+ */
+public class SpendingAnalyzerBenchmarkTest {
+
+    private static final int MERCHANTS = 1000;
+
+    /**
+     * How many rows arrive at once when adding incrementally, as from one page.
+     */
+    private static final int PAGE_ROWS = 1000;
+
+    private static ForkJoinPool sequential;
+
+    private static ForkJoinPool parallel;
+
+    @BeforeClass
+    public static void setUpClass() {
+        sequential = new ForkJoinPool(1);
+        parallel = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        sequential.shutdown();
+        parallel.shutdown();
+    }
+
+    @Test
+    public void tenThousandRows() {
+        benchmark(10_000, 200);
+    }
+
+    @Test
+    public void oneHundredThousandRows() {
+        benchmark(100_000, 50);
+    }
+
+    @Test
+    public void oneMillionRows() {
+        benchmark(1_000_000, 10);
+    }
+
+    private static void benchmark(int rows, int iterations) {
+        TransactionStore store = store(rows);
+        MerchantTotals expected = MerchantTotals.EMPTY.plus(store, 0, rows, sequential);
+        assertEquals(rows, expected.rows);
+
+        // Everything but the last page, to add it to each time
+        int earlierRows = rows - PAGE_ROWS;
+        MerchantTotals earlier = MerchantTotals.EMPTY.plus(store, 0, earlierRows, parallel);
+
+        long[] sequentialNanos = new long[iterations];
+        long[] parallelNanos = new long[iterations];
+        long[] incrementalNanos = new long[iterations];
+        long[] summaryNanos = new long[iterations];
+        for (int i = -iterations; i < iterations; i++) {
+            // The first half of the iterations only warm up
+            long start = System.nanoTime();
+            MerchantTotals fromScratch = MerchantTotals.EMPTY.plus(store, 0, rows, sequential);
+            long sequentialTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            MerchantTotals inParallel = MerchantTotals.EMPTY.plus(store, 0, rows, parallel);
+            long parallelTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            MerchantTotals incremental = earlier.plus(store, earlierRows, rows, parallel);
+            long incrementalTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            SpendingSummary summary = SpendingSummary.from(inParallel, store);
+            long summaryTime = System.nanoTime() - start;
+
+            assertSameTotals(expected, fromScratch);
+            assertSameTotals(expected, inParallel);
+            assertSameTotals(expected, incremental);
+            assertEquals(MERCHANTS, summary.getMerchants().size());
+            if (i >= 0) {
+                sequentialNanos[i] = sequentialTime;
+                parallelNanos[i] = parallelTime;
+                incrementalNanos[i] = incrementalTime;
+                summaryNanos[i] = summaryTime;
+            }
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%,d rows: one thread %.2fms, %d-thread pool %.2fms, adding %,d rows %.2fms, summary %.2fms",
+                rows,
+                Benchmarks.median(sequentialNanos) / 1_000_000.0,
+                parallel.getParallelism(),
+                Benchmarks.median(parallelNanos) / 1_000_000.0,
+                PAGE_ROWS,
+                Benchmarks.median(incrementalNanos) / 1_000_000.0,
+                Benchmarks.median(summaryNanos) / 1_000_000.0));
+    }
+
+    private static void assertSameTotals(MerchantTotals expected, MerchantTotals actual) {
+        assertEquals(expected.rows, actual.rows);
+        assertEquals(expected.total, actual.total);
+        assertArrayEquals(expected.merchantTotals, actual.merchantTotals);
+        assertArrayEquals(expected.merchantCounts, actual.merchantCounts);
+        assertArrayEquals(expected.merchantRows, actual.merchantRows);
+    }
+
+    private static TransactionStore store(int rows) {
+        String[] names = new String[MERCHANTS];
+        for (int i = 0; i < MERCHANTS; i++) {
+            names[i] = "Merchant " + i;
+        }
+        TransactionStore store = new TransactionStore(rows);
+        for (int i = 0; i < rows; i++) {
+            // Some refunds among the purchases
+            long cents = 100 + (i * 7919L) % 100_000;
+            store.add((long) i, names[(i * 31) % MERCHANTS], i % 20 == 0 ? -cents : cents);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,38 @@
+package com.summit.summitproject.prebuilt.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AppExecutors} for tests, which have no Android main thread: a single thread of their
+ * own stands in for it, so main thread work still runs one piece at a time and in order.
+ */
+public final class TestExecutors {
+
+    private final ExecutorService background = Executors.newFixedThreadPool(2);
+
+    private final ExecutorService io = Executors.newCachedThreadPool();
+
+    private final ExecutorService mainThread = Executors.newSingleThreadExecutor();
+
+    private final AppExecutors executors = new AppExecutors(background, io, ForkJoinPool.commonPool(), mainThread);
+
+    public AppExecutors get() {
+        return executors;
+    }
+
+    /**
+     * Runs {@code work} on the stand-in main thread and waits for it to finish.
+     */
+    public void runOnMainThread(Runnable work) throws Exception {
+        mainThread.submit(work).get(10, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        background.shutdownNow();
+        io.shutdownNow();
+        mainThread.shutdownNow();
+    }
+}
@@ -0,0 +1,122 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.paging.TransactionPage;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.EOFException;
+
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Decodes responses written by {@link BinaryResponses}, and some which are broken on purpose.
+ */
+public class BinaryResponseParserTest {
+
+    @Test
+    public void readsALoginResponse() throws Exception {
+        LoginResult result = new BinaryResponseParser().parse(BinaryResponses.login(
+                "Nick C.",
+                "7890",
+                "https://example.com/page/2",
+                new String[]{"Starbucks", "Macy's", "Starbucks"},
+                new long[]{140, 3500, -250}
+        ));
+        assertEquals("Nick C.", result.getName());
+        assertEquals("7890", result.getCardNum());
+        assertEquals("https://example.com/page/2", result.getNextPage());
+
+        TransactionList transactions = result.getTransactions();
+        assertEquals(3, transactions.size());
+        assertEquals("Macy's", transactions.getMerchant(1));
+        assertEquals(-250, transactions.getAmountCents(2));
+        // The dictionary is kept: same merchant, same id
+        assertEquals(transactions.getMerchantId(0), transactions.getMerchantId(2));
+    }
+
+    @Test
+    public void readsPagesLargerThanWhatIsAllocatedUpFront() throws Exception {
+        int rows = 5000;
+        String[] merchants = new String[rows];
+        long[] cents = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            merchants[i] = "Merchant " + (i % 1500);
+            cents[i] = i;
+        }
+        TransactionPage page = new BinaryResponseParser().parsePage(BinaryResponses.page(null, merchants, cents));
+        assertNull(page.getNextPage());
+        assertEquals(rows, page.getTransactions().size());
+        assertEquals("Merchant 1499", page.getTransactions().getMerchant(4499));
+        assertEquals(4999, page.getTransactions().getAmountCents(4999));
+    }
+
+    @Test
+    public void hugeRowCountWithoutTheRowsFailsAtTheEnd() throws Exception {
+        Buffer body = new Buffer();
+        body.writeInt(BinaryResponseParser.MAGIC);
+        body.writeByte(BinaryResponseParser.KIND_PAGE);
+        BinaryResponses.writeString(body, null);
+        BinaryResponses.writeString(body, "");
+        BinaryResponses.writeVarint(body, 1);
+        BinaryResponses.writeString(body, "Starbucks");
+        // Claims four million rows, then ends after three ids
+        BinaryResponses.writeVarint(body, 1 << 22);
+        for (int i = 0; i < 3; i++) {
+            BinaryResponses.writeString(body, null);
+        }
+
+        try {
+            new BinaryResponseParser().parsePage(body);
+            fail("A truncated response should fail");
+        } catch (EOFException expected) {
+        }
+    }
+
+    @Test
+    public void hugeMerchantCountWithoutTheMerchantsFailsAtTheEnd() throws Exception {
+        Buffer body = new Buffer();
+        body.writeInt(BinaryResponseParser.MAGIC);
+        body.writeByte(BinaryResponseParser.KIND_PAGE);
+        BinaryResponses.writeString(body, null);
+        BinaryResponses.writeString(body, "");
+        BinaryResponses.writeVarint(body, 1 << 22);
+        BinaryResponses.writeString(body, "Starbucks");
+
+        try {
+            new BinaryResponseParser().parsePage(body);
+            fail("A truncated response should fail");
+        } catch (EOFException expected) {
+        }
+    }
+
+    @Test
+    public void countAboveTheLimitIsRejected() throws Exception {
+        Buffer body = new Buffer();
+        body.writeInt(BinaryResponseParser.MAGIC);
+        body.writeByte(BinaryResponseParser.KIND_PAGE);
+        BinaryResponses.writeString(body, null);
+        BinaryResponses.writeString(body, "");
+        BinaryResponses.writeVarint(body, (1 << 22) + 1);
+
+        try {
+            new BinaryResponseParser().parsePage(body);
+            fail("The count should have been rejected");
+        } catch (JSONException expected) {
+        }
+    }
+
+    @Test
+    public void wrongKindIsRejected() throws Exception {
+        try {
+            new BinaryResponseParser().parsePage(BinaryResponses.login("Nick C.", "7890", null, new String[0], new long[0]));
+            fail("A login response isn't a page");
+        } catch (JSONException expected) {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.summit.summitproject.prebuilt.login;
+
+import java.util.ArrayList;
+
+import okio.Buffer;
+import okio.Utf8;
+
+/**
+ * Writes responses in the form {@link BinaryResponseParser} reads, for tests to serve.
+ */
+public final class BinaryResponses {
+
+    private BinaryResponses() {
+    }
+
+    /**
+     * A login response for {@code name} with one transaction per entry of {@code merchants} and
+     * {@code cents}, in the default currency and without ids.
+     */
+    public static Buffer login(String name, String cardLastFour, String nextPage, String[] merchants, long[] cents) {
+        Buffer buffer = new Buffer();
+        buffer.writeInt(BinaryResponseParser.MAGIC);
+        buffer.writeByte(BinaryResponseParser.KIND_LOGIN);
+        writeString(buffer, name);
+        writeString(buffer, cardLastFour);
+        writeString(buffer, nextPage);
+        writeTransactions(buffer, "", merchants, cents);
+        return buffer;
+    }
+
+    /**
+     * A page of transactions, as for {@link BinaryResponses#login}.
+     */
+    public static Buffer page(String nextPage, String[] merchants, long[] cents) {
+        Buffer buffer = new Buffer();
+        buffer.writeInt(BinaryResponseParser.MAGIC);
+        buffer.writeByte(BinaryResponseParser.KIND_PAGE);
+        writeString(buffer, nextPage);
+        writeTransactions(buffer, "", merchants, cents);
+        return buffer;
+    }
+
+    private static void writeTransactions(Buffer buffer, String currencyCode, String[] merchants, long[] cents) {
+        writeString(buffer, currencyCode);
+        ArrayList<String> dictionary = new ArrayList<>();
+        int[] indexes = new int[merchants.length];
+        for (int i = 0; i < merchants.length; i++) {
+            int index = dictionary.indexOf(merchants[i]);
+            if (index < 0) {
+                index = dictionary.size();
+                dictionary.add(merchants[i]);
+            }
+            indexes[i] = index;
+        }
+        writeVarint(buffer, dictionary.size());
+        for (String merchant : dictionary) {
+            writeString(buffer, merchant);
+        }
+        writeVarint(buffer, merchants.length);
+        for (int i = 0; i < merchants.length; i++) {
+            writeString(buffer, null);
+        }
+        for (int index : indexes) {
+            writeVarint(buffer, index);
+        }
+        for (long amount : cents) {
+            writeVarint(buffer, (amount << 1) ^ (amount >> 63));
+        }
+    }
+
+    public static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            writeVarint(buffer, 0);
+            return;
+        }
+        writeVarint(buffer, Utf8.size(value) + 1);
+        buffer.writeUtf8(value);
+    }
+
+    public static void writeVarint(Buffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.writeByte((int) value);
+    }
+}
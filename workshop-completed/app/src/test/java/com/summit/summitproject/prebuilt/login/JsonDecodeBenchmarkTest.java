@@ -0,0 +1,128 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times decoding a JSON login response at 100, 10k and 100k rows: streamed by
+ * {@link LoginResponseParser}, against reading the whole body into a String and building an
+ * org.json tree from it first, as the login used to. Prints the median time and what each
+ * allocated, and checks streaming allocates less once the response is large.
+ * <br>
+ * The times are printed rather than asserted on, as they depend on the machine.
+ */
+public class JsonDecodeBenchmarkTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private static final int MERCHANTS = 200;
+
+    @Test
+    public void oneHundredRows() throws Exception {
+        benchmark(100, 500);
+    }
+
+    @Test
+    public void tenThousandRows() throws Exception {
+        benchmark(10_000, 30);
+    }
+
+    @Test
+    public void oneHundredThousandRows() throws Exception {
+        benchmark(100_000, 5);
+    }
+
+    private static void benchmark(int rows, int iterations) throws Exception {
+        byte[] response = response(rows);
+
+        long[] streamingNanos = new long[iterations];
+        long[] treeNanos = new long[iterations];
+        long[] streamingBytes = new long[iterations];
+        long[] treeBytes = new long[iterations];
+        for (int i = -iterations; i < iterations; i++) {
+            // The first half of the iterations only warm up
+            long allocated = Benchmarks.allocatedBytes();
+            long start = System.nanoTime();
+            LoginResult streamed = new LoginResponseParser().parse(ResponseBody.create(response, JSON).charStream());
+            long streamingTime = System.nanoTime() - start;
+            long streamingAllocated = Benchmarks.allocatedBytes() - allocated;
+
+            allocated = Benchmarks.allocatedBytes();
+            start = System.nanoTime();
+            LoginResult fromTree = parseTree(ResponseBody.create(response, JSON));
+            long treeTime = System.nanoTime() - start;
+            long treeAllocated = Benchmarks.allocatedBytes() - allocated;
+
+            assertEquals(rows, streamed.getTransactions().size());
+            assertEquals(rows, fromTree.getTransactions().size());
+            assertEquals(fromTree.getTransactions().getAmountCents(rows - 1), streamed.getTransactions().getAmountCents(rows - 1));
+            if (i >= 0) {
+                streamingNanos[i] = streamingTime;
+                treeNanos[i] = treeTime;
+                streamingBytes[i] = streamingAllocated;
+                treeBytes[i] = treeAllocated;
+            }
+        }
+
+        long streamingAllocated = Benchmarks.median(streamingBytes);
+        long treeAllocated = Benchmarks.median(treeBytes);
+        System.out.println(String.format(Locale.US,
+                "%,d rows (%,d bytes): streaming %.2fms, %,d bytes allocated; org.json %.2fms, %,d bytes allocated",
+                rows,
+                response.length,
+                Benchmarks.median(streamingNanos) / 1_000_000.0,
+                streamingAllocated,
+                Benchmarks.median(treeNanos) / 1_000_000.0,
+                treeAllocated));
+        if (rows >= 10_000 && Benchmarks.allocatedBytes() >= 0) {
+            assertTrue("Streaming allocated " + streamingAllocated + " bytes, org.json " + treeAllocated,
+                    streamingAllocated < treeAllocated);
+        }
+    }
+
+    /**
+     * Decodes the way the login used to: the whole body as a String, then an org.json tree of
+     * it, then the rows copied out of the tree.
+     */
+    private static LoginResult parseTree(ResponseBody body) throws Exception {
+        JSONObject root = new JSONObject(body.string());
+        JSONArray rows = root.getJSONArray("transactions");
+        TransactionStore transactions = new TransactionStore(rows.length());
+        for (int i = 0; i < rows.length(); i++) {
+            JSONObject row = rows.getJSONObject(i);
+            transactions.add(row.optString("id", null), row.getString("merchant"), row.getString("amount"));
+        }
+        return new LoginResult(root.getString("name"), root.getString("cardLastFour"), transactions, root.optString("nextPage", null));
+    }
+
+    private static byte[] response(int rows) {
+        StringBuilder json = new StringBuilder(rows * 64);
+        json.append("{\"name\":\"Nick C.\",\"cardLastFour\":\"7890\",\"transactions\":[");
+        for (int i = 0; i < rows; i++) {
+            long cents = 100 + (i * 7919L) % 100_000;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(i)
+                    .append("\",\"merchant\":\"Merchant ").append(i % MERCHANTS)
+                    .append("\",\"amount\":\"$").append(cents / 100).append('.')
+                    .append(String.format(Locale.US, "%02d", cents % 100))
+                    .append("\"}");
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,221 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.network.Endpoints;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Logs in against a local server to check how {@link LoginManager} revalidates the login
+ * response it already has, and that the session token never comes from the HTTP cache.
+ */
+public class LoginManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    private TestExecutors executors;
+
+    private File httpCache;
+
+    private NetworkClient client;
+
+    private Endpoints endpoints;
+
+    private Metrics metrics;
+
+    /**
+     * The token the last {@link #login} was handed, if any.
+     */
+    private SessionToken lastToken;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executors = new TestExecutors();
+        httpCache = folder.newFolder("http");
+        client = new NetworkClient(httpCache, executors.get(), false);
+        endpoints = new Endpoints(server.url("/").toString(), null);
+        metrics = new Metrics();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        executors.shutdown();
+    }
+
+    @Test
+    public void notModifiedHandsBackTheCachedResultWithoutDecoding() throws Exception {
+        server.enqueue(loginResponse("Nick C.", "a"));
+        LoginResult first = login(null);
+        assertEquals("Nick C.", first.getName());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"a\""));
+        LoginResult second = login(first);
+
+        // The very same object: the response wasn't decoded again
+        assertSame(first, second);
+        assertEquals("\"a\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void changedResponseIsDecodedAndReplacesTheCachedOne() throws Exception {
+        server.enqueue(loginResponse("Nick C.", "a"));
+        LoginResult first = login(null);
+        server.takeRequest();
+
+        // A revalidation the server answers with a new body
+        server.enqueue(loginResponse("Nick Capurso", "b"));
+        LoginResult second = login(first);
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"a\"", revalidation.getHeader("If-None-Match"));
+        assertNotSame(first, second);
+        assertEquals("Nick Capurso", second.getName());
+        assertEquals(2, second.getTransactions().size());
+
+        // The HTTP cache now holds the new response, so it's what gets revalidated next
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"b\""));
+        LoginResult third = login(second);
+        assertSame(second, third);
+        assertEquals("\"b\"", server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void notModifiedWithoutACachedResultDecodesTheCachedBody() throws Exception {
+        server.enqueue(loginResponse("Nick C.", "a"));
+        login(null);
+        server.takeRequest();
+
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"a\""));
+        LoginResult result = login(null);
+        assertEquals("Nick C.", result.getName());
+        assertNotNull(server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void binaryResponseIsDecodedWhenTheServerPrefersIt() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", BinaryResponseParser.MEDIA_TYPE)
+                .setBody(BinaryResponses.login(
+                        "Nick C.",
+                        "7890",
+                        null,
+                        new String[]{"Starbucks", "Macy's"},
+                        new long[]{140, 3500}
+                )));
+        LoginResult result = login(null);
+        assertEquals(LoginResponseParser.ACCEPT, server.takeRequest().getHeader("Accept"));
+        assertEquals("Nick C.", result.getName());
+        assertEquals(2, result.getTransactions().size());
+        assertEquals("Macy's", result.getTransactions().getMerchant(1));
+        assertEquals(3500, result.getTransactions().getAmountCents(1));
+    }
+
+    @Test
+    public void sessionTokenIsNeverTakenFromTheHttpCache() throws Exception {
+        server.enqueue(loginResponse("Nick C.", "a")
+                .setHeader(SessionToken.HEADER_TOKEN, "secret-token")
+                .setHeader(SessionToken.HEADER_EXPIRES_IN, "600"));
+        LoginResult first = login(null);
+        server.takeRequest();
+        assertNotNull(lastToken);
+        assertEquals("secret-token", lastToken.getToken());
+
+        // Revalidated without a new token: the stored response mustn't supply the old one
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"a\""));
+        login(first);
+        server.takeRequest();
+        assertNull(lastToken);
+
+        for (File file : httpCache.listFiles()) {
+            String contents = new String(readAll(file), "ISO-8859-1");
+            assertFalse(file.getName() + " holds the token", contents.contains("secret-token"));
+        }
+    }
+
+    private static byte[] readAll(File file) throws Exception {
+        try (FileInputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static MockResponse loginResponse(String name, String etag) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("ETag", "\"" + etag + "\"")
+                .setBody("{\"name\":\"" + name + "\",\"cardLastFour\":\"7890\",\"transactions\":["
+                        + "{\"merchant\":\"Starbucks\",\"amount\":\"$1.40\"},"
+                        + "{\"merchant\":\"Macy's\",\"amount\":\"$35.00\"}]}");
+    }
+
+    /**
+     * Logs in, handing {@code cached} to the {@link LoginManager}, and waits for the result.
+     */
+    private LoginResult login(final LoginResult cached) throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<LoginResult> result = new AtomicReference<>();
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                LoginManager manager = new LoginManager(client, endpoints, executors.get(), metrics, "user", "password", new LoginListener() {
+                    @Override
+                    public void onLoginSuccess(LoginResult loginResult, SessionToken token) {
+                        lastToken = token;
+                        result.set(loginResult);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onLoginError(LoginException exception) {
+                        error.set(exception);
+                        done.countDown();
+                    }
+                });
+                manager.setCachedResult(cached);
+                manager.execute();
+            }
+        });
+        assertTrue("Login didn't finish", done.await(10, TimeUnit.SECONDS));
+        if (error.get() != null) {
+            throw new AssertionError("Login failed", error.get());
+        }
+        return result.get();
+    }
+}
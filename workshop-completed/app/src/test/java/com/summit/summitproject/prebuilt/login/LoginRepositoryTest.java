@@ -0,0 +1,237 @@
+package com.summit.summitproject.prebuilt.login;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.metrics.Metrics;
+import com.summit.summitproject.prebuilt.network.Endpoints;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link LoginRepository} shares one network call between identical logins.
+ */
+public class LoginRepositoryTest {
+
+    private static final int CALLERS = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    private TestExecutors executors;
+
+    private LoginRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executors = new TestExecutors();
+        NetworkClient client = new NetworkClient(folder.newFolder("http"), executors.get(), false);
+        Endpoints endpoints = new Endpoints(server.url("/").toString(), null);
+        repository = new LoginRepository(client, endpoints, executors.get(), new Metrics());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        executors.shutdown();
+    }
+
+    @Test
+    public void concurrentIdenticalLoginsMakeOneRequest() throws Exception {
+        server.enqueue(slowLoginResponse());
+        final RecordingListener listener = new RecordingListener(CALLERS);
+
+        // Every caller asks from its own thread at the same moment; the repository gets them on
+        // the main thread, as the screens would
+        final CyclicBarrier start = new CyclicBarrier(CALLERS);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Thread caller = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        executors.get().mainThread().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                repository.login("user", "password", null, listener);
+                            }
+                        });
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            caller.start();
+            callers.add(caller);
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        listener.await();
+        assertEquals(CALLERS, listener.successes.get());
+        assertEquals(0, listener.errors.get());
+        assertEquals(1, server.getRequestCount());
+        assertSame(listener.results.get(0), listener.results.get(CALLERS - 1));
+        assertEquals(0, repository.getInFlightCount());
+    }
+
+    @Test
+    public void differentCredentialsAreNotShared() throws Exception {
+        server.enqueue(slowLoginResponse());
+        server.enqueue(slowLoginResponse());
+        final RecordingListener listener = new RecordingListener(2);
+
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                repository.login("user", "password", null, listener);
+                repository.login("other", "password", null, listener);
+                assertEquals(2, repository.getInFlightCount());
+            }
+        });
+
+        listener.await();
+        assertEquals(2, listener.successes.get());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void cancellingOneCallerKeepsTheCallForTheOthers() throws Exception {
+        server.enqueue(slowLoginResponse());
+        final RecordingListener listener = new RecordingListener(1);
+
+        // Joining again before cancelling the earlier subscription, as the login screen does
+        // when "Sign In" is tapped twice
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                LoginRepository.Subscription first = repository.login("user", "password", null, listener);
+                repository.login("user", "password", null, listener);
+                first.cancel();
+            }
+        });
+
+        listener.await();
+        assertEquals(1, listener.successes.get());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancellingTheOnlyCallerStopsTheCall() throws Exception {
+        server.enqueue(slowLoginResponse());
+        server.enqueue(slowLoginResponse());
+        final RecordingListener cancelled = new RecordingListener(1);
+        final RecordingListener later = new RecordingListener(1);
+
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                repository.login("user", "password", null, cancelled).cancel();
+                assertEquals(0, repository.getInFlightCount());
+                // Nothing left to join, so this is a new call
+                repository.login("user", "password", null, later);
+            }
+        });
+
+        later.await();
+        assertEquals(1, later.successes.get());
+        assertEquals(0, cancelled.successes.get() + cancelled.errors.get());
+    }
+
+    @Test
+    public void cachedResultSuppliedAfterStartingIsHandedBack() throws Exception {
+        server.enqueue(slowLoginResponse().setHeader("ETag", "\"a\""));
+        final RecordingListener first = new RecordingListener(1);
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                repository.login("user", "password", null, first);
+            }
+        });
+        first.await();
+        final LoginResult cached = first.results.get(0);
+
+        // As the login screen does when its cache lookup finishes after the login started
+        server.enqueue(new MockResponse()
+                .setResponseCode(304)
+                .setHeader("ETag", "\"a\"")
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        final RecordingListener second = new RecordingListener(1);
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                repository.login("user", "password", null, second).setCachedResult(cached);
+            }
+        });
+        second.await();
+        assertSame(cached, second.results.get(0));
+    }
+
+    private static MockResponse slowLoginResponse() {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS)
+                .setBody("{\"name\":\"Nick C.\",\"cardLastFour\":\"7890\",\"transactions\":["
+                        + "{\"merchant\":\"Starbucks\",\"amount\":\"$1.40\"}]}");
+    }
+
+    /**
+     * Counts what it's told, and lets the test wait for an expected number of results.
+     */
+    private static class RecordingListener implements LoginListener {
+
+        final AtomicInteger successes = new AtomicInteger();
+
+        final AtomicInteger errors = new AtomicInteger();
+
+        final List<LoginResult> results = new ArrayList<>();
+
+        private final CountDownLatch done;
+
+        RecordingListener(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onLoginSuccess(LoginResult result, SessionToken token) {
+            synchronized (results) {
+                results.add(result);
+            }
+            successes.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onLoginError(LoginException exception) {
+            errors.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("Logins didn't finish", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
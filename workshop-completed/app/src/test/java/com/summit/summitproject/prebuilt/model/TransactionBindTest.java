@@ -0,0 +1,148 @@
+package com.summit.summitproject.prebuilt.model;
+
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that the data half of binding a row, {@link TransactionAdapter#bind} -- reading it
+ * through {@link TransactionSections}, into the row's reused char buffer -- doesn't allocate, so
+ * scrolling doesn't make garbage for the collector to pause on.
+ * <br>
+ * Setting the text on the views is left to the device. Skipped where the JVM can't count
+ * allocations.
+ */
+public class TransactionBindTest {
+
+    private static final int ROWS = 10_000;
+
+    private static final int WARMUP = 20;
+
+    private static final int PASSES = 5;
+
+    /**
+     * How many rows each section has, so there's a header every few rows as in a busy list.
+     */
+    private static final int SECTION_ROWS = 7;
+
+    @Test
+    public void bindingStoreRowsDoesNotAllocate() {
+        checkNoAllocations("store", store(), TransactionSections.NONE);
+    }
+
+    @Test
+    public void bindingSnapshotRowsDoesNotAllocate() {
+        checkNoAllocations("snapshot", store().snapshot(), TransactionSections.NONE);
+    }
+
+    @Test
+    public void bindingSectionedViewRowsDoesNotAllocate() {
+        // Newest first, as the list is shown sorted a different way than it was loaded
+        TransactionStore store = store();
+        int[] rows = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = ROWS - 1 - i;
+        }
+        TransactionListView view = new TransactionListView(store, rows, ROWS);
+        checkNoAllocations("sectioned view", view, sections(view));
+    }
+
+    @Test
+    public void rebindingTheSameRowChangesNothing() {
+        TransactionStore store = store();
+        TransactionAdapter.BoundRow bound = new TransactionAdapter.BoundRow();
+        assertEquals(TransactionAdapter.MERCHANT_CHANGED | TransactionAdapter.AMOUNT_CHANGED,
+                TransactionAdapter.bind(store, TransactionSections.NONE, 3, bound));
+        assertEquals(store.get(3).getAmount().toString(), new String(bound.amountChars, 0, bound.amountLength));
+        assertEquals(0, TransactionAdapter.bind(store, TransactionSections.NONE, 3, bound));
+
+        bound.reset();
+        assertEquals(TransactionAdapter.MERCHANT_CHANGED | TransactionAdapter.AMOUNT_CHANGED,
+                TransactionAdapter.bind(store, TransactionSections.NONE, 3, bound));
+    }
+
+    /**
+     * Binds every row of {@code transactions} a few times to warm up, then a few more while
+     * counting what this thread allocates, and checks the best pass allocated nothing. (Only
+     * the best, as the JIT compiling the loop part way through can allocate a little once.)
+     */
+    private static void checkNoAllocations(String name, TransactionList transactions, TransactionSections sections) {
+        assumeTrue("The JVM can't count allocations", Benchmarks.allocatedBytes() >= 0);
+
+        TransactionAdapter.BoundRow bound = new TransactionAdapter.BoundRow();
+        int items = sections.getItemCount(transactions.size());
+        for (int i = 0; i < WARMUP; i++) {
+            bound.reset();
+            bindAll(transactions, sections, items, bound);
+        }
+
+        // Whatever reading the counter itself costs, so it can be taken off
+        long overhead = Benchmarks.allocatedBytes();
+        overhead = Benchmarks.allocatedBytes() - overhead;
+
+        long allocated = Long.MAX_VALUE;
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < PASSES; i++) {
+            bound.reset();
+            long before = Benchmarks.allocatedBytes();
+            long start = System.nanoTime();
+            long checksum = bindAll(transactions, sections, items, bound);
+            nanos = Math.min(nanos, System.nanoTime() - start);
+            allocated = Math.min(allocated, Benchmarks.allocatedBytes() - before - overhead);
+            assertTrue(checksum > 0);
+        }
+
+        System.out.println(String.format(Locale.US, "Binding %,d %s rows: %d bytes allocated, %.0fns per row",
+                transactions.size(), name, allocated, (double) nanos / transactions.size()));
+        assertEquals("Bytes allocated binding " + name + " rows", 0, allocated);
+    }
+
+    /**
+     * Binds every row item the way {@link TransactionAdapter#onBindViewHolder} does, skipping
+     * headers, and returns a sum of what was read so none of it is optimized away.
+     */
+    private static long bindAll(TransactionList transactions, TransactionSections sections, int items, TransactionAdapter.BoundRow bound) {
+        long checksum = 0;
+        for (int position = 0; position < items; position++) {
+            if (sections.isHeader(position)) {
+                continue;
+            }
+            int changed = TransactionAdapter.bind(transactions, sections, position, bound);
+            if ((changed & TransactionAdapter.MERCHANT_CHANGED) != 0) {
+                checksum += transactions.getMerchant(bound.row).length();
+            }
+            if ((changed & TransactionAdapter.AMOUNT_CHANGED) != 0) {
+                checksum += bound.amountLength + bound.amountChars[bound.amountLength - 1];
+            }
+        }
+        return checksum;
+    }
+
+    private static TransactionStore store() {
+        TransactionStore store = new TransactionStore();
+        for (int i = 0; i < ROWS; i++) {
+            store.add((long) i, "Merchant " + (i % 50), 100 + (i * 7919L) % 100_000);
+        }
+        return store;
+    }
+
+    private static TransactionSections sections(TransactionList transactions) {
+        int count = (transactions.size() + SECTION_ROWS - 1) / SECTION_ROWS;
+        int[] starts = new int[count];
+        long[] totals = new long[count];
+        for (int section = 0; section < count; section++) {
+            starts[section] = section * SECTION_ROWS;
+            int end = Math.min(starts[section] + SECTION_ROWS, transactions.size());
+            for (int row = starts[section]; row < end; row++) {
+                totals[section] += transactions.getAmountCents(row);
+            }
+        }
+        return new TransactionSections(starts, totals);
+    }
+}
@@ -0,0 +1,123 @@
+package com.summit.summitproject.prebuilt.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how much heap a {@link TransactionStore} takes per row, next to a list of
+ * {@link Transaction} objects holding the same rows, and checks it stays close to the 20 bytes
+ * per row its columns need.
+ * <br>
+ * The heap is measured after garbage collection, so the numbers are approximate: several copies
+ * are kept alive at once for the smaller sizes to average out the noise.
+ */
+public class TransactionStoreFootprintTest {
+
+    /**
+     * How many distinct merchants the rows are spread over.
+     */
+    private static final int MERCHANTS = 500;
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    private static final String[] NAMES = new String[MERCHANTS];
+
+    static {
+        for (int i = 0; i < MERCHANTS; i++) {
+            NAMES[i] = "Merchant " + i;
+        }
+    }
+
+    @Test
+    public void tenThousandRows() {
+        // The columns grow by doubling, so 10k rows sit in arrays with room for 16k
+        checkFootprint(10_000, 20, 40);
+    }
+
+    @Test
+    public void oneMillionRows() {
+        checkFootprint(1_000_000, 1, 32);
+    }
+
+    /**
+     * Fills {@code copies} stores and lists with {@code rows} rows each, prints what each costs
+     * per row, and checks the store costs at most {@code maxBytesPerRow}, and well under half of
+     * what the list does.
+     */
+    private static void checkFootprint(final int rows, int copies, double maxBytesPerRow) {
+        double store = bytesPerRow(rows, copies, new Builder() {
+            @Override
+            public Object build() {
+                TransactionStore store = new TransactionStore();
+                for (int i = 0; i < rows; i++) {
+                    store.add((long) i, NAMES[i % MERCHANTS], amountOf(i));
+                }
+                return store;
+            }
+        });
+        double objects = bytesPerRow(rows, copies, new Builder() {
+            @Override
+            public Object build() {
+                // As a JSON parser would build them: a new merchant String for every row
+                List<Transaction> list = new ArrayList<>();
+                for (int i = 0; i < rows; i++) {
+                    String merchant = new String(NAMES[i % MERCHANTS].toCharArray());
+                    list.add(new Transaction(i, merchant, new Money(amountOf(i), USD)));
+                }
+                return list;
+            }
+        });
+
+        System.out.println(String.format(Locale.US,
+                "%,d rows: TransactionStore %.1f bytes/row, List<Transaction> %.1f bytes/row",
+                rows, store, objects));
+        assertTrue("TransactionStore took " + store + " bytes/row", store <= maxBytesPerRow);
+        assertTrue("TransactionStore took " + store + " bytes/row, the list " + objects,
+                store < objects / 2);
+    }
+
+    private static long amountOf(int row) {
+        return 100 + (row * 7919L) % 100_000;
+    }
+
+    /**
+     * Builds {@code copies} objects with {@code builder}, keeping them all alive, and returns how
+     * much the heap grew per row.
+     */
+    private static double bytesPerRow(int rows, int copies, Builder builder) {
+        Object[] kept = new Object[copies];
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            kept[i] = builder.build();
+        }
+        long after = usedHeap();
+        double perRow = (after - before) / ((double) rows * copies);
+        // Only read after measuring, so the copies can't be collected early
+        assertTrue(kept[copies - 1] != null);
+        return perRow;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface Builder {
+
+        Object build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.summit.summitproject.prebuilt.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the ids {@link TransactionStore} gives transactions, especially ones the server sent
+ * without an id.
+ */
+public class TransactionStoreTest {
+
+    @Test
+    public void identicalTransactionsGetDistinctIds() {
+        TransactionStore store = new TransactionStore();
+        store.add(null, "Starbucks", "$1.40");
+        store.add(null, "Starbucks", "$1.40");
+        assertNotEquals(store.getId(0), store.getId(1));
+    }
+
+    @Test
+    public void derivedIdsStayDistinctAcrossPages() {
+        TransactionStore all = new TransactionStore();
+        all.addAll(page("Starbucks", "Macy's"));
+        all.addAll(page("Starbucks", "Macy's"));
+        all.addAll(page("Starbucks"));
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            ids.add(all.getId(i));
+        }
+        assertEquals(all.size(), ids.size());
+    }
+
+    @Test
+    public void pagedIdsMatchTheIdsOfOneBigPage() {
+        TransactionStore paged = new TransactionStore();
+        paged.addAll(page("Starbucks", "Macy's"));
+        paged.addAll(page("Starbucks"));
+
+        TransactionStore whole = page("Starbucks", "Macy's", "Starbucks");
+        for (int i = 0; i < whole.size(); i++) {
+            assertEquals(whole.getId(i), paged.getId(i));
+        }
+    }
+
+    @Test
+    public void serverIdsAreKeptAsTheyAre() {
+        TransactionStore page = new TransactionStore();
+        page.add("t1", "Starbucks", "$1.40");
+        TransactionStore all = new TransactionStore();
+        all.addAll(page);
+        all.addAll(page);
+        assertEquals(page.getId(0), all.getId(0));
+        assertEquals(page.getId(0), all.getId(1));
+    }
+
+    @Test
+    public void snapshotsKeepTrackOfDerivedIds() {
+        TransactionStore all = new TransactionStore();
+        all.addAll(page("Starbucks").snapshot());
+        all.addAll(page("Starbucks").snapshot());
+        assertNotEquals(all.getId(0), all.getId(1));
+    }
+
+    @Test
+    public void derivedIdsSurviveBeingWrittenAndReadBack() throws Exception {
+        TransactionStore saved = new TransactionStore();
+        saved.addAll(page("Starbucks"));
+        saved.addAll(page("Starbucks"));
+
+        TransactionStore restored = readBack(saved);
+        assertEquals(saved.getId(0), restored.getId(0));
+        assertEquals(saved.getId(1), restored.getId(1));
+
+        // The next page is counted against the restored rows too
+        restored.addAll(page("Starbucks"));
+        assertNotEquals(restored.getId(0), restored.getId(2));
+        assertNotEquals(restored.getId(1), restored.getId(2));
+    }
+
+    @Test
+    public void largestAmountsAreRead() {
+        TransactionStore store = new TransactionStore();
+        store.add(null, "Bank", "$92,233,720,368,547,758.07");
+        store.add(null, "Bank", "-$92,233,720,368,547,758.07");
+        assertEquals(Long.MAX_VALUE, store.getAmountCents(0));
+        assertEquals(-Long.MAX_VALUE, store.getAmountCents(1));
+    }
+
+    @Test
+    public void amountTooLargeForALongIsRejected() {
+        assertRejected("$92,233,720,368,547,758.08");
+        assertRejected("$92,233,720,368,547,759");
+        assertRejected("$99999999999999999999");
+        assertRejected("-$1000000000000000000000.00");
+    }
+
+    @Test
+    public void corruptSizeFailsAtTheEndOfTheFile() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("USD");
+            out.writeInt(1);
+            out.writeUTF("Starbucks");
+            // Claims far more rows than follow
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeLong(1);
+            out.writeInt(0);
+            out.writeLong(140);
+            out.writeBoolean(false);
+        }
+        try {
+            TransactionStore.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail("A truncated file should fail");
+        } catch (EOFException expected) {
+        }
+    }
+
+    private static void assertRejected(String amount) {
+        TransactionStore store = new TransactionStore();
+        try {
+            store.add(null, "Bank", amount);
+            fail("Should have rejected " + amount);
+        } catch (NumberFormatException expected) {
+        }
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * A page as a parser would build it: every transaction $1.40, and no ids from the server.
+     */
+    private static TransactionStore page(String... merchants) {
+        TransactionStore page = new TransactionStore();
+        for (String merchant : merchants) {
+            page.add(null, merchant, "$1.40");
+        }
+        return page;
+    }
+
+    private static TransactionStore readBack(TransactionStore store) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            store.writeTo(out);
+        }
+        return TransactionStore.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
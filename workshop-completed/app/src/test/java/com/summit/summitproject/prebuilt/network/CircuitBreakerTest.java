@@ -0,0 +1,90 @@
+package com.summit.summitproject.prebuilt.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Walks a {@link CircuitBreaker} through its states. The clock doesn't move in unit tests, so a
+ * long open time means "still open" and zero means "ready for a trial call".
+ */
+public class CircuitBreakerTest {
+
+    private static final long LONG_TIME = 60_000;
+
+    @Test
+    public void opensAfterEnoughFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, LONG_TIME);
+        fail(breaker, 2);
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successStartsTheCountAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(3, LONG_TIME);
+        fail(breaker, 2);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        fail(breaker, 2);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void onlyOneTrialCallOnceOpenTimeHasPassed() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        fail(breaker, 1);
+        assertTrue(breaker.allowRequest());
+        // The trial call is still running
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successfulTrialCloses() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        fail(breaker, 1);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 0);
+        fail(breaker, 5);
+        assertTrue(breaker.allowRequest());
+        // One failure is enough while half-open: open again, so the next call is a new trial
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void cancelledTrialLetsTheNextCallTry() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        fail(breaker, 1);
+        assertTrue(breaker.allowRequest());
+        breaker.onCancelled();
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void cancellingWhileClosedChangesNothing() {
+        CircuitBreaker breaker = new CircuitBreaker(2, LONG_TIME);
+        breaker.onFailure();
+        breaker.onCancelled();
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+    }
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+    }
+}
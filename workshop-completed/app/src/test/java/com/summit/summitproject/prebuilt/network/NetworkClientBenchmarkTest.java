@@ -0,0 +1,207 @@
+package com.summit.summitproject.prebuilt.network;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Locale;
+
+import javax.net.ServerSocketFactory;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares logging in with a fresh {@link NetworkClient} every time ("cold", as when each login
+ * built its own OkHttpClient) against reusing one ("warm"), against a local server. Prints the
+ * median latency and bytes allocated per login, and checks the warm logins really do reuse the
+ * connection.
+ * <br>
+ * The numbers are printed rather than asserted on, as they depend on the machine. Allocations
+ * are measured on the calling thread, which does all of a synchronous call's work, and only
+ * where the JVM can count them.
+ */
+public class NetworkClientBenchmarkTest {
+
+    private static final int WARMUP = 20;
+
+    private static final int ITERATIONS = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    private TestExecutors executors;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("{\"name\":\"Nick C.\",\"cardLastFour\":\"7890\",\"transactions\":["
+                                + "{\"merchant\":\"Starbucks\",\"amount\":\"$1.40\"},"
+                                + "{\"merchant\":\"Macy's\",\"amount\":\"$35.00\"},"
+                                + "{\"merchant\":\"Target\",\"amount\":\"$12.99\"}]}");
+            }
+        });
+        // MockWebServer writes a response in several small pieces, which on a reused connection
+        // runs into Nagle's algorithm and delayed ACKs and adds ~40ms to every warm call. A real
+        // server doesn't, so turn Nagle off to measure the client rather than that.
+        server.setServerSocketFactory(new ServerSocketFactory() {
+            @Override
+            public ServerSocket createServerSocket() throws IOException {
+                return new NoDelayServerSocket();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port) throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+                throw new UnsupportedOperationException();
+            }
+        });
+        server.start();
+        executors = new TestExecutors();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        executors.shutdown();
+    }
+
+    @Test
+    public void warmLoginsReuseTheConnection() throws Exception {
+        NetworkClient client = newClient();
+        login(client);
+        int firstConnection = server.takeRequest().getSequenceNumber();
+        for (int i = 0; i < 5; i++) {
+            login(client);
+            // Later requests on the same connection are numbered on from the first
+            assertTrue(server.takeRequest().getSequenceNumber() > firstConnection);
+        }
+    }
+
+    @Test
+    public void coldLoginsEachOpenAConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            NetworkClient client = newClient();
+            login(client);
+            close(client);
+            assertEquals(0, server.takeRequest().getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void coldVersusWarm() throws Exception {
+        NetworkClient warmClient = newClient();
+        for (int i = 0; i < WARMUP; i++) {
+            coldLogin();
+            login(warmClient);
+        }
+
+        long[] coldNanos = new long[ITERATIONS];
+        long[] coldBytes = new long[ITERATIONS];
+        long[] warmNanos = new long[ITERATIONS];
+        long[] warmBytes = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long bytes = Benchmarks.allocatedBytes();
+            long start = System.nanoTime();
+            coldLogin();
+            coldNanos[i] = System.nanoTime() - start;
+            coldBytes[i] = Benchmarks.allocatedBytes() - bytes;
+
+            bytes = Benchmarks.allocatedBytes();
+            start = System.nanoTime();
+            login(warmClient);
+            warmNanos[i] = System.nanoTime() - start;
+            warmBytes[i] = Benchmarks.allocatedBytes() - bytes;
+        }
+
+        report("cold", coldNanos, coldBytes);
+        report("warm", warmNanos, warmBytes);
+    }
+
+    private NetworkClient newClient() throws Exception {
+        return new NetworkClient(folder.newFolder(), executors.get(), false);
+    }
+
+    private void coldLogin() throws Exception {
+        NetworkClient client = newClient();
+        try {
+            login(client);
+        } finally {
+            close(client);
+        }
+    }
+
+    /**
+     * Makes the same request as {@link com.summit.summitproject.prebuilt.login.LoginManager} and
+     * decodes the answer, on this thread.
+     */
+    private void login(NetworkClient client) throws Exception {
+        Request request = new Request.Builder()
+                .get()
+                .url(server.url("/login"))
+                .build();
+        try (Response response = client.getHttpClient().newCall(request).execute()) {
+            JSONObject result = new JSONObject(response.body().string());
+            assertEquals(3, result.getJSONArray("transactions").length());
+        }
+    }
+
+    private static void close(NetworkClient client) throws Exception {
+        client.getHttpClient().connectionPool().evictAll();
+        client.getHttpClient().dispatcher().executorService().shutdown();
+        client.getHttpClient().cache().close();
+    }
+
+    private static void report(String name, long[] nanos, long[] bytes) {
+        System.out.println(String.format(Locale.US, "%s login: median %.2fms, %s per login",
+                name,
+                Benchmarks.median(nanos) / 1_000_000.0,
+                bytes[0] >= 0 ? String.format(Locale.US, "%.1fKB allocated", Benchmarks.median(bytes) / 1024.0) : "allocations not measured"));
+    }
+
+    private static class NoDelayServerSocket extends ServerSocket {
+
+        NoDelayServerSocket() throws IOException {
+        }
+
+        @Override
+        public Socket accept() throws IOException {
+            Socket socket = super.accept();
+            socket.setTcpNoDelay(true);
+            return socket;
+        }
+    }
+}
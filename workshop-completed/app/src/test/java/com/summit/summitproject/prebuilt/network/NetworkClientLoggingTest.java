@@ -0,0 +1,119 @@
+package com.summit.summitproject.prebuilt.network;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that, without verbose logging, a response's body is handed over as a stream rather
+ * than read into memory for the log first -- whether or not the call is one of those whose
+ * headers get logged.
+ */
+public class NetworkClientLoggingTest {
+
+    private static final int BODY_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The most of the body that may have been read by the time the response is handed over:
+     * whatever arrived along with the headers.
+     */
+    private static final int MAX_BUFFERED_BYTES = BODY_BYTES / 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    private TestExecutors executors;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executors = new TestExecutors();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        executors.shutdown();
+    }
+
+    @Test
+    public void bodyIsStreamedWithoutVerboseLogging() throws Exception {
+        NetworkClient client = new NetworkClient(folder.newFolder("http"), executors.get(), false);
+        // The first call is one of the sampled ones whose headers are logged; the others aren't
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(largeResponse());
+            long allocated = Benchmarks.allocatedBytes();
+            try (Response response = client.newCall(request()).execute()) {
+                allocated = Benchmarks.allocatedBytes() - allocated;
+                BufferedSource source = response.body().source();
+                long buffered = source.getBuffer().size();
+                assertTrue("Call " + i + " buffered " + buffered + " bytes", buffered <= MAX_BUFFERED_BYTES);
+                if (allocated >= 0) {
+                    assertTrue("Call " + i + " allocated " + allocated + " bytes", allocated < BODY_BYTES);
+                }
+                assertEquals(BODY_BYTES, drain(source));
+            }
+        }
+    }
+
+    @Test
+    public void verboseLoggingReadsTheWholeBodyFirst() throws Exception {
+        // The other way round, to show the check above would catch a copy
+        NetworkClient client = new NetworkClient(folder.newFolder("http"), executors.get(), true);
+        server.enqueue(largeResponse());
+        try (Response response = client.newCall(request()).execute()) {
+            BufferedSource source = response.body().source();
+            assertEquals(BODY_BYTES, source.getBuffer().size());
+            assertEquals(BODY_BYTES, drain(source));
+        }
+    }
+
+    private Request request() {
+        return new Request.Builder()
+                .get()
+                .url(server.url("/transactions"))
+                .build();
+    }
+
+    private static MockResponse largeResponse() {
+        Buffer body = new Buffer();
+        for (int i = 0; i < BODY_BYTES; i++) {
+            body.writeByte('a' + i % 26);
+        }
+        return new MockResponse()
+                .setHeader("Content-Type", "text/plain")
+                .setBody(body);
+    }
+
+    /**
+     * Reads the rest of {@code source}, a piece at a time, and returns how many bytes there were.
+     */
+    private static long drain(BufferedSource source) throws Exception {
+        Buffer sink = new Buffer();
+        long total = 0;
+        long read;
+        while ((read = source.read(sink, 64 * 1024)) != -1) {
+            total += read;
+            sink.clear();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,236 @@
+package com.summit.summitproject.prebuilt.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link RetryingCall}s against a local server which fails on purpose: 5xx answers,
+ * dropped connections and answers which never come.
+ */
+public class RetryingCallTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private MockWebServer server;
+
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .readTimeout(250, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        server.shutdown();
+    }
+
+    @Test
+    public void serverErrorsAreRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = newCall(get(), new CircuitBreaker(10, 60_000)).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void droppedConnectionIsRetried() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = newCall(get(), new CircuitBreaker(10, 60_000)).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void stalledResponseIsRetried() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = newCall(get(), new CircuitBreaker(10, 60_000)).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void lastServerErrorIsReturnedOnceAttemptsRunOut() throws Exception {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        try (Response response = newCall(get(), new CircuitBreaker(10, 60_000)).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(MAX_ATTEMPTS, server.getRequestCount());
+    }
+
+    @Test
+    public void tooManyRequestsIsRetriedButNotFound() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        try (Response response = newCall(get(), new CircuitBreaker(10, 60_000)).execute()) {
+            assertEquals(404, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void postIsNeverRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        Request post = new Request.Builder()
+                .url(server.url("/login"))
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .build();
+        try (Response response = newCall(post, new CircuitBreaker(10, 60_000)).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void openBreakerFailsWithoutCallingTheServer() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(MAX_ATTEMPTS, 60_000);
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        newCall(get(), breaker).execute().close();
+        assertEquals(MAX_ATTEMPTS, server.getRequestCount());
+
+        try {
+            newCall(get(), breaker).execute();
+            fail("The breaker should be open");
+        } catch (CircuitOpenException expected) {
+        }
+        assertEquals(MAX_ATTEMPTS, server.getRequestCount());
+    }
+
+    @Test
+    public void breakerOpeningStopsRetriesAndKeepsTheRealError() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        // Opens on the second failure, one attempt before they would run out
+        try {
+            newCall(get(), new CircuitBreaker(2, 60_000)).execute();
+            fail("The call should have failed");
+        } catch (CircuitOpenException e) {
+            fail("The real failure was hidden: " + e);
+        } catch (IOException expected) {
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void breakerOpeningReturnsTheLastServerError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = newCall(get(), new CircuitBreaker(2, 60_000)).execute()) {
+            assertEquals(502, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void breakerOpenedElsewhereWhileWaitingKeepsTheRealError() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        // Lets the first attempt through, then refuses, as if other calls had opened it while
+        // this one waited to retry
+        CircuitBreaker breaker = new CircuitBreaker(10, 60_000) {
+            private int requests;
+
+            @Override
+            public synchronized boolean allowRequest() {
+                return ++requests == 1;
+            }
+        };
+
+        try {
+            newCall(get(), breaker).execute();
+            fail("The call should have failed");
+        } catch (CircuitOpenException e) {
+            fail("The real failure was hidden: " + e);
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("503"));
+            assertEquals(1, expected.getSuppressed().length);
+            assertTrue(expected.getSuppressed()[0] instanceof CircuitOpenException);
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelStopsTheWaitBeforeRetrying() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        // Long enough that the test would time out if the wait weren't cut short
+        final RetryingCall call = new RetryingCall(client, new CircuitBreaker(10, 60_000), get(), MAX_ATTEMPTS, 60_000, 60_000);
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Once the first attempt has been answered
+                    server.takeRequest();
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                call.cancel();
+            }
+        });
+        canceller.start();
+
+        long start = System.nanoTime();
+        try {
+            call.execute();
+            fail("A cancelled call should throw");
+        } catch (IOException expected) {
+            assertTrue(call.isCancelled());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private Request get() {
+        return new Request.Builder().url(server.url("/transactions")).build();
+    }
+
+    private RetryingCall newCall(Request request, CircuitBreaker breaker) {
+        return new RetryingCall(client, breaker, request, MAX_ATTEMPTS, 1, 5);
+    }
+}
@@ -0,0 +1,243 @@
+package com.summit.summitproject.prebuilt.paging;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.network.NetworkClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Currency;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pages through transactions served by a local server with a {@link TransactionPager}.
+ */
+public class TransactionPagerTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    private TestExecutors executors;
+
+    private NetworkClient client;
+
+    /**
+     * Every page and error delivered, in order.
+     */
+    private final BlockingQueue<Object> delivered = new LinkedBlockingQueue<>();
+
+    private final TransactionPager.Listener listener = new TransactionPager.Listener() {
+        @Override
+        public void onPageLoaded(TransactionPage page) {
+            delivered.add(page);
+        }
+
+        @Override
+        public void onPageError(Exception exception) {
+            delivered.add(exception);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        executors = new TestExecutors();
+        client = new NetworkClient(folder.newFolder("http"), executors.get(), false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        executors.shutdown();
+    }
+
+    @Test
+    public void followsTheCursorToTheLastPage() throws Exception {
+        server.enqueue(page(server.url("/page/3").toString(), "Starbucks", "Macy's"));
+        server.enqueue(page(null, "Target"));
+        TransactionPager pager = newPager(server.url("/page/2").toString());
+
+        loadNextPage(pager);
+        TransactionPage second = (TransactionPage) next();
+        assertEquals(2, second.getTransactions().size());
+        assertEquals("/page/2", server.takeRequest().getPath());
+        assertTrue(hasMore(pager));
+
+        loadNextPage(pager);
+        TransactionPage third = (TransactionPage) next();
+        assertEquals("Target", third.getTransactions().get(0).getMerchant());
+        assertEquals("/page/3", server.takeRequest().getPath());
+        assertFalse(hasMore(pager));
+
+        // Nothing left, so nothing more is asked for
+        loadNextPage(pager);
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void onlyOnePageLoadsAtATime() throws Exception {
+        server.enqueue(page(server.url("/page/3").toString(), "Starbucks")
+                .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        final TransactionPager pager = newPager(server.url("/page/2").toString());
+
+        // As when every scroll event near the end of the list asks for the next page
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    pager.loadNextPage();
+                }
+            }
+        });
+        assertTrue(next() instanceof TransactionPage);
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelledPageIsNotDelivered() throws Exception {
+        server.enqueue(page(null, "Starbucks")
+                .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        final TransactionPager pager = newPager(server.url("/page/2").toString());
+
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                pager.loadNextPage();
+                pager.cancel();
+            }
+        });
+        assertNull(delivered.poll(500, TimeUnit.MILLISECONDS));
+        assertTrue(hasMore(pager));
+    }
+
+    @Test
+    public void failedPageCanBeTriedAgain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(page(null, "Starbucks"));
+        TransactionPager pager = newPager(server.url("/page/2").toString());
+
+        loadNextPage(pager);
+        assertTrue(next() instanceof Exception);
+        loadNextPage(pager);
+        assertTrue(next() instanceof TransactionPage);
+        assertEquals("/page/2", server.takeRequest().getPath());
+        assertEquals("/page/2", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void pageInAnotherCurrencyIsAnError() throws Exception {
+        server.enqueue(pageIn("\u20ac", null, "Starbucks"));
+        TransactionPager pager = newPager(server.url("/page/2").toString(), USD);
+
+        loadNextPage(pager);
+        assertTrue(next() instanceof NumberFormatException);
+        // Still there to be tried again
+        assertTrue(hasMore(pager));
+    }
+
+    @Test
+    public void emptyPageInAnotherCurrencyIsFine() throws Exception {
+        server.enqueue(pageIn("\u20ac", null));
+        TransactionPager pager = newPager(server.url("/page/2").toString(), USD);
+
+        loadNextPage(pager);
+        assertTrue(next() instanceof TransactionPage);
+    }
+
+    @Test
+    public void firstRowsSetTheCurrencyForLaterPages() throws Exception {
+        server.enqueue(pageIn("\u20ac", server.url("/page/3").toString(), "Starbucks"));
+        server.enqueue(page(null, "Macy's"));
+        // Nothing shown yet, so any currency will do for the first page
+        TransactionPager pager = newPager(server.url("/page/2").toString(), null);
+
+        loadNextPage(pager);
+        TransactionPage first = (TransactionPage) next();
+        assertEquals(Currency.getInstance("EUR"), first.getTransactions().getCurrency());
+
+        loadNextPage(pager);
+        assertTrue(next() instanceof NumberFormatException);
+    }
+
+    private boolean hasMore(final TransactionPager pager) throws Exception {
+        final boolean[] hasMore = new boolean[1];
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                hasMore[0] = pager.hasMore();
+            }
+        });
+        return hasMore[0];
+    }
+
+    private TransactionPager newPager(String nextPage) {
+        return newPager(nextPage, USD);
+    }
+
+    private TransactionPager newPager(String nextPage, Currency currency) {
+        return new TransactionPager(client, executors.get(), nextPage, currency, listener);
+    }
+
+    private void loadNextPage(final TransactionPager pager) throws Exception {
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                pager.loadNextPage();
+            }
+        });
+    }
+
+    private Object next() throws InterruptedException {
+        Object next = delivered.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Nothing was delivered", next);
+        return next;
+    }
+
+    /**
+     * A page holding a $1.40 transaction at each of the given merchants.
+     */
+    private static MockResponse page(String nextPage, String... merchants) {
+        return pageIn("$", nextPage, merchants);
+    }
+
+    /**
+     * A page holding a 1.40 transaction in the currency with {@code symbol} at each of the
+     * given merchants.
+     */
+    private static MockResponse pageIn(String symbol, String nextPage, String... merchants) {
+        StringBuilder json = new StringBuilder("{\"transactions\":[");
+        for (int i = 0; i < merchants.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"merchant\":\"").append(merchants[i]).append("\",\"amount\":\"").append(symbol).append("1.40\"}");
+        }
+        json.append("],\"nextPage\":");
+        json.append(nextPage == null ? "null" : "\"" + nextPage + "\"");
+        json.append('}');
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(json.toString());
+    }
+}
@@ -0,0 +1,143 @@
+package com.summit.summitproject.prebuilt.search;
+
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times searching a million synthetic transactions as the user types, one keystroke at a time,
+ * as {@link TransactionSearch} does on its background thread: finding the matching rows with
+ * the {@link MerchantSearchIndex}, then sorting them for display. Prints the median time per
+ * keystroke and how many rows matched.
+ * <br>
+ * Keystrokes which narrow the results down to a few thousand rows must take under a millisecond
+ * to find. The first letter or two, or a word most merchants share, can match hundreds of
+ * thousands of rows; those are only printed, as copying and sorting that many rows is the cost
+ * rather than the index, and the search waits for the user to pause typing anyway.
+ */
+public class MerchantSearchIndexBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+
+    /**
+     * Results of up to this many rows count as narrowed down.
+     */
+    private static final int NARROW_ROWS = 10_000;
+
+    private static final int ITERATIONS = 21;
+
+    private static final String[] FIRST_WORDS = {
+            "Golden", "Blue", "Green", "Corner", "City", "Red", "Main Street", "Sunrise", "River",
+            "Union", "Harbor", "Maple", "Summit", "Oak", "Pine", "Silver", "Lucky", "Park",
+            "Station", "Village", "Liberty", "Central", "Star", "Bay", "Hill"
+    };
+
+    private static final String[] SECOND_WORDS = {
+            "Cafe", "Market", "Books", "Deli", "Pharmacy", "Gas", "Grill", "Bakery", "Hardware",
+            "Pizza", "Florist", "Cinema", "Fitness", "Tailor", "Diner", "Garage", "Salon", "Sushi",
+            "Outfitters", "Liquors"
+    };
+
+    private static final int BRANCHES = 10;
+
+    private static TransactionStore transactions;
+
+    private static MerchantSearchIndex index;
+
+    @BeforeClass
+    public static void setUpClass() {
+        List<String> merchants = new ArrayList<>();
+        for (String first : FIRST_WORDS) {
+            for (String second : SECOND_WORDS) {
+                for (int branch = 1; branch <= BRANCHES; branch++) {
+                    merchants.add(first + " " + second + " #" + branch);
+                }
+            }
+        }
+
+        transactions = new TransactionStore(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add((long) i, merchants.get((int) ((i * 7919L) % merchants.size())), 100 + (i * 31L) % 100_000);
+        }
+
+        index = new MerchantSearchIndex();
+        long start = System.nanoTime();
+        index.update(transactions);
+        System.out.println(String.format(Locale.US, "Indexed %,d rows of %,d merchants in %.1fms",
+                ROWS, merchants.size(), (System.nanoTime() - start) / 1_000_000.0));
+    }
+
+    @Test
+    public void typingOneMerchant() {
+        type("Golden Grill #7");
+    }
+
+    @Test
+    public void typingAWordManyMerchantsShare() {
+        type("pharmacy");
+    }
+
+    @Test
+    public void typingTheMiddleOfAName() {
+        type("n bak");
+    }
+
+    /**
+     * Searches for each prefix of {@code text} in turn, as if it was typed.
+     */
+    private static void type(String text) {
+        System.out.println("Typing \"" + text + "\":");
+        for (int length = 1; length <= text.length(); length++) {
+            String query = text.substring(0, length);
+            long[] searchNanos = new long[ITERATIONS];
+            long[] totalNanos = new long[ITERATIONS];
+            int[] rows = null;
+            // The first round only warms up
+            for (int i = -1; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                rows = index.search(query);
+                long searched = System.nanoTime();
+                TransactionSorter.sort(transactions, rows, TransactionOrder.RECENT);
+                long sorted = System.nanoTime();
+                if (i >= 0) {
+                    searchNanos[i] = searched - start;
+                    totalNanos[i] = sorted - start;
+                }
+            }
+
+            long search = Benchmarks.median(searchNanos);
+            System.out.println(String.format(Locale.US, "  %-16s %,9d rows: search %.3fms, with sorting %.3fms",
+                    "\"" + query + "\"", rows.length, search / 1_000_000.0, Benchmarks.median(totalNanos) / 1_000_000.0));
+            if (rows.length <= NARROW_ROWS) {
+                assertArrayEquals(scan(query), rows);
+                assertTrue("Searching for \"" + query + "\" took " + search + "ns", search < 1_000_000);
+            }
+        }
+    }
+
+    /**
+     * The rows whose merchant contains {@code query}, found by looking at every one.
+     */
+    private static int[] scan(String query) {
+        String lowerCase = query.toLowerCase(Locale.ROOT);
+        int[] rows = new int[ROWS];
+        int count = 0;
+        for (int row = 0; row < ROWS; row++) {
+            if (transactions.getMerchant(row).toLowerCase(Locale.ROOT).contains(lowerCase)) {
+                rows[count++] = row;
+            }
+        }
+        int[] matches = new int[count];
+        System.arraycopy(rows, 0, matches, 0, count);
+        return matches;
+    }
+}
@@ -0,0 +1,193 @@
+package com.summit.summitproject.prebuilt.search;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.model.TransactionList;
+import com.summit.summitproject.prebuilt.model.TransactionSections;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks what {@link TransactionSearch} tells its listener about each set of results.
+ * <br>
+ * Nothing posted to a {@link android.os.Handler} runs in unit tests, so a typed query only takes
+ * effect with the next change of order or list.
+ */
+public class TransactionSearchTest {
+
+    private TestExecutors executors;
+
+    private final BlockingQueue<Results> results = new LinkedBlockingQueue<>();
+
+    private TransactionSearch search;
+
+    private final TransactionStore transactions = new TransactionStore();
+
+    @Before
+    public void setUp() throws Exception {
+        executors = new TestExecutors();
+        transactions.add("1", "Starbucks", "$1.40");
+        transactions.add("2", "Macy's", "$35.00");
+        transactions.add("3", "Starbucks", "$4.20");
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                search = new TransactionSearch(executors.get(), new TransactionSearch.Listener() {
+                    @Override
+                    public void onSearchResults(TransactionList list, TransactionSections sections, boolean appended, boolean sameRows) {
+                        results.add(new Results(list, appended, sameRows));
+                    }
+                });
+                search.setTransactions(transactions.snapshot());
+            }
+        });
+        Results first = next();
+        assertEquals(3, first.list.size());
+        assertFalse(first.appended);
+        assertFalse(first.sameRows);
+    }
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    public void rowsAppendedToEverythingAreAppended() throws Exception {
+        transactions.add("4", "Target", "$12.00");
+        append();
+        Results appended = next();
+        assertTrue(appended.appended);
+        assertFalse(appended.sameRows);
+        assertEquals(4, appended.list.size());
+    }
+
+    @Test
+    public void rowsAppendedWhileSearchingAreSearchedAgain() throws Exception {
+        setQuery("star");
+        transactions.add("4", "Target", "$12.00");
+        transactions.add("5", "Starbucks", "$3.00");
+        append();
+        Results matches = next();
+        assertFalse(matches.appended);
+        assertEquals(3, matches.list.size());
+        for (int i = 0; i < matches.list.size(); i++) {
+            assertEquals("Starbucks", matches.list.getMerchant(i));
+        }
+    }
+
+    @Test
+    public void clearingTheQueryShowsEverythingAgain() throws Exception {
+        setQuery("macy");
+        transactions.add("4", "Target", "$12.00");
+        append();
+        assertEquals(1, next().list.size());
+
+        setQuery("");
+        Results everything = next();
+        assertFalse(everything.appended);
+        assertEquals(4, everything.list.size());
+
+        // Showing everything again, so later pages are simply appended
+        transactions.add("5", "Target", "$3.00");
+        append();
+        assertTrue(next().appended);
+    }
+
+    @Test
+    public void reorderingKeepsTheSameRows() throws Exception {
+        setOrder(TransactionOrder.AMOUNT);
+        Results sorted = next();
+        assertEquals(3, sorted.list.size());
+        assertTrue(sorted.sameRows);
+    }
+
+    @Test
+    public void newQueryChangesTheRows() throws Exception {
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                search.setQuery("star");
+                search.setOrder(TransactionOrder.AMOUNT);
+            }
+        });
+        Results matches = next();
+        assertEquals(2, matches.list.size());
+        assertFalse(matches.sameRows);
+
+        setOrder(TransactionOrder.MERCHANT);
+        assertTrue(next().sameRows);
+    }
+
+    @Test
+    public void rowsAppendedWhileSortedAreNotTheSameRows() throws Exception {
+        // Searched again rather than appended while sorted, but over more rows than before
+        setOrder(TransactionOrder.AMOUNT);
+        assertTrue(next().sameRows);
+        transactions.add("4", "Target", "$3.00");
+        append();
+        Results resorted = next();
+        assertFalse(resorted.appended);
+        assertFalse(resorted.sameRows);
+        assertEquals(4, resorted.list.size());
+    }
+
+    private void setOrder(final TransactionOrder order) throws Exception {
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                search.setOrder(order);
+            }
+        });
+    }
+
+    private void setQuery(final String query) throws Exception {
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                search.setQuery(query);
+            }
+        });
+    }
+
+    private void append() throws Exception {
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                search.appendTransactions(transactions.snapshot());
+            }
+        });
+    }
+
+    private Results next() throws InterruptedException {
+        Results next = results.poll(10, TimeUnit.SECONDS);
+        assertNotNull("No results", next);
+        return next;
+    }
+
+    private static class Results {
+
+        final TransactionList list;
+
+        final boolean appended;
+
+        final boolean sameRows;
+
+        Results(TransactionList list, boolean appended, boolean sameRows) {
+            this.list = list;
+            this.appended = appended;
+            this.sameRows = sameRows;
+        }
+    }
+}
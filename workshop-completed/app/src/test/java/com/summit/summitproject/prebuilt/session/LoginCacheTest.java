@@ -0,0 +1,205 @@
+package com.summit.summitproject.prebuilt.session;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stores and looks up login results in a {@link LoginCache} kept in a temporary directory.
+ */
+public class LoginCacheTest {
+
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    private static final int MAX_ENTRIES = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestExecutors executors;
+
+    private File directory;
+
+    private File keyFile;
+
+    @Before
+    public void setUp() throws Exception {
+        executors = new TestExecutors();
+        directory = folder.newFolder("login-cache");
+        keyFile = new File(folder.getRoot(), "login-cache.key");
+    }
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    public void lastPutIsWhatEndsUpCached() throws Exception {
+        final LoginCache cache = newCache(executors.get());
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    cache.put("user", "password", result("Login " + i));
+                }
+            }
+        });
+
+        // Writes finish in the background, so wait for the entry to settle on the last one
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String name = null;
+        while (System.nanoTime() < deadline) {
+            LoginResult cached = get(newCache(executors.get()), "user", "password");
+            name = cached != null ? cached.getName() : null;
+            if ("Login 99".equals(name)) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals("Login 99", name);
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void otherCredentialsMiss() throws Exception {
+        final LoginCache cache = newCache(executors.get());
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                cache.put("user", "password", result("Nick C."));
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (get(cache, "user", "password") == null && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertNull(get(cache, "user", "wrong password"));
+        assertTrue(cache.getHitCount() > 0);
+        assertTrue(cache.getMissCount() > 0);
+    }
+
+    @Test
+    public void entriesAreNotNamedAfterAPlainHashOfTheCredentials() throws Exception {
+        // Named like this, anyone who could read the directory could check password guesses
+        // against it
+        String plainHash = sha256("user\npassword");
+        assertTrue(new File(directory, plainHash).createNewFile());
+
+        putAndWait(newCache(executors.get()), "user", "password", "Nick C.");
+
+        File[] entries = directory.listFiles();
+        assertEquals(1, entries.length);
+        assertNotEquals(plainHash, entries[0].getName());
+        assertEquals(32, keyFile.length());
+    }
+
+    @Test
+    public void anotherInstallsKeyMisses() throws Exception {
+        putAndWait(newCache(executors.get()), "user", "password", "Nick C.");
+        assertTrue(keyFile.delete());
+
+        // Same credentials, but a new key names them differently
+        assertNull(get(newCache(executors.get()), "user", "password"));
+    }
+
+    @Test
+    public void busyIoThreadsAreAMiss() throws Exception {
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        io.shutdown();
+        ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        try {
+            // Every piece of I/O work is turned away
+            AppExecutors busy = new AppExecutors(mainThread, io, ForkJoinPool.commonPool(), mainThread);
+            final LoginCache cache = newCache(busy);
+            mainThread.submit(new Runnable() {
+                @Override
+                public void run() {
+                    cache.put("user", "password", result("Nick C."));
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            assertNull(get(cache, "user", "password"));
+            assertEquals(1, cache.getMissCount());
+        } finally {
+            mainThread.shutdownNow();
+        }
+    }
+
+    private LoginCache newCache(AppExecutors appExecutors) {
+        return new LoginCache(directory, keyFile, appExecutors, MAX_AGE_MILLIS, MAX_BYTES, MAX_ENTRIES);
+    }
+
+    /**
+     * Looks a user up in {@code cache} and waits for the answer.
+     */
+    private static LoginResult get(LoginCache cache, String username, String password) throws Exception {
+        final AtomicReference<LoginResult> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        cache.get(username, password, new LoginCache.Callback() {
+            @Override
+            public void onCacheLoaded(LoginResult cached) {
+                result.set(cached);
+                done.countDown();
+            }
+        });
+        assertTrue("Lookup didn't finish", done.await(10, TimeUnit.SECONDS));
+        return result.get();
+    }
+
+    /**
+     * Stores a result for a user in {@code cache} and waits until it can be looked up.
+     */
+    private void putAndWait(final LoginCache cache, final String username, final String password, final String name) throws Exception {
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                cache.put(username, password, result(name));
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (get(cache, username, password) == null) {
+            assertTrue("Entry was never written", System.nanoTime() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static String sha256(String value) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes("UTF-8"));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static LoginResult result(String name) {
+        TransactionStore transactions = new TransactionStore();
+        transactions.add("1", "Starbucks", "$1.40");
+        return new LoginResult(name, "7890", transactions, null);
+    }
+}
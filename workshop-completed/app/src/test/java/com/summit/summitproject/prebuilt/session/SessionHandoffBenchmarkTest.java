@@ -0,0 +1,222 @@
+package com.summit.summitproject.prebuilt.session;
+
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+import com.summit.summitproject.prebuilt.metrics.Benchmarks;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times handing the login result to the summary screen at 100, 1k and 10k rows, the old way and
+ * the new: putting the transactions in the launch {@link android.content.Intent}, which Java
+ * serializes them on one side and deserializes them on the other, against putting the result in
+ * the {@link SessionRepository} and passing its key. Reading the session back from disk, as
+ * after the app's process was restarted, is timed too. Prints the median of each, and how big
+ * the serialized extras were next to the ~1 MB a Binder transaction can carry.
+ * <br>
+ * This covers the part of launching the summary screen which the handoff changed; starting the
+ * Activity itself costs the same either way and needs a device to measure.
+ */
+public class SessionHandoffBenchmarkTest {
+
+    private static final int MERCHANTS = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestExecutors executors;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        executors = new TestExecutors();
+        directory = folder.newFolder("sessions");
+    }
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    public void oneHundredRows() throws Exception {
+        benchmark(100, 200);
+    }
+
+    @Test
+    public void oneThousandRows() throws Exception {
+        benchmark(1_000, 100);
+    }
+
+    @Test
+    public void tenThousandRows() throws Exception {
+        benchmark(10_000, 20);
+    }
+
+    private void benchmark(final int rows, final int iterations) throws Exception {
+        final LoginResult result = result(rows);
+        final ArrayList<OldTransaction> extras = extras(rows);
+        final SessionRepository sessions = new SessionRepository(directory, executors.get());
+
+        final long[] extrasNanos = new long[iterations];
+        final long[] sessionNanos = new long[iterations];
+        final int[] extrasBytes = new int[1];
+        // On the main thread, as the screens use the repository
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = -iterations; i < iterations; i++) {
+                    // The first half of the iterations only warm up
+                    long start = System.nanoTime();
+                    byte[] parcel = serialize(extras);
+                    List<?> received = (List<?>) deserialize(parcel);
+                    long extrasTime = System.nanoTime() - start;
+                    assertEquals(rows, received.size());
+
+                    start = System.nanoTime();
+                    String key = sessions.put(result);
+                    LoginResult[] found = new LoginResult[1];
+                    readBack(sessions, key, found);
+                    long sessionTime = System.nanoTime() - start;
+                    assertSame(result, found[0]);
+
+                    if (i >= 0) {
+                        extrasNanos[i] = extrasTime;
+                        sessionNanos[i] = sessionTime;
+                    }
+                    extrasBytes[0] = parcel.length;
+                }
+            }
+        });
+
+        // After the process was restarted, the session is read back from its file instead
+        File file = new File(folder.getRoot(), "session-" + rows);
+        LoginResultFile.write(file, result);
+        long[] diskNanos = new long[iterations];
+        for (int i = -iterations; i < iterations; i++) {
+            long start = System.nanoTime();
+            LoginResult fromDisk = LoginResultFile.read(file);
+            long diskTime = System.nanoTime() - start;
+            assertEquals(rows, fromDisk.getTransactions().size());
+            if (i >= 0) {
+                diskNanos[i] = diskTime;
+            }
+        }
+
+        long extrasMedian = Benchmarks.median(extrasNanos);
+        long sessionMedian = Benchmarks.median(sessionNanos);
+        System.out.println(String.format(Locale.US,
+                "%,d rows: Intent extras %.3fms (%,d bytes), session key %.3fms, session from disk %.3fms (%,d bytes)",
+                rows,
+                extrasMedian / 1_000_000.0,
+                extrasBytes[0],
+                sessionMedian / 1_000_000.0,
+                Benchmarks.median(diskNanos) / 1_000_000.0,
+                file.length()));
+        assertTrue("Session key took " + sessionMedian + "ns, Intent extras " + extrasMedian + "ns",
+                sessionMedian < extrasMedian);
+    }
+
+    /**
+     * Looks {@code key} up in {@code sessions}; it's in memory, so the answer comes straight
+     * back into {@code found}.
+     */
+    private static void readBack(SessionRepository sessions, String key, final LoginResult[] found) {
+        sessions.get(key, new SessionRepository.Callback() {
+            @Override
+            public void onSessionLoaded(LoginResult loaded) {
+                found[0] = loaded;
+            }
+        });
+    }
+
+    private static LoginResult result(int rows) {
+        TransactionStore transactions = new TransactionStore(rows);
+        for (int i = 0; i < rows; i++) {
+            transactions.add((long) i, "Merchant " + (i % MERCHANTS), amountOf(i));
+        }
+        return new LoginResult("Nick C.", "7890", transactions, "/transactions?page=2");
+    }
+
+    /**
+     * The same rows as {@link SessionHandoffBenchmarkTest#result(int)}, as the list of
+     * {@link OldTransaction}s which used to go in the launch Intent.
+     */
+    private static ArrayList<OldTransaction> extras(int rows) {
+        ArrayList<OldTransaction> extras = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            extras.add(new OldTransaction("Merchant " + (i % MERCHANTS), format(amountOf(i))));
+        }
+        return extras;
+    }
+
+    private static long amountOf(int row) {
+        return 100 + (row * 7919L) % 100_000;
+    }
+
+    private static String format(long cents) {
+        return String.format(Locale.US, "$%d.%02d", cents / 100, cents % 100);
+    }
+
+    /**
+     * What {@link android.os.Parcel#writeSerializable} does with a Serializable extra.
+     */
+    private static byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * What {@link android.os.Parcel#readSerializable} does on the receiving side.
+     */
+    private static Object deserialize(byte[] bytes) {
+        try {
+            return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Stands in for the Serializable transaction the launch Intent used to carry.
+     */
+    private static class OldTransaction implements Serializable {
+
+        private final String merchant;
+
+        private final String amount;
+
+        OldTransaction(String merchant, String amount) {
+            this.merchant = merchant;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.summit.summitproject.prebuilt.session;
+
+import com.summit.summitproject.prebuilt.concurrent.AppExecutors;
+import com.summit.summitproject.prebuilt.concurrent.TestExecutors;
+import com.summit.summitproject.prebuilt.login.LoginResult;
+import com.summit.summitproject.prebuilt.model.TransactionStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Writes sessions to a temporary directory and reads them back with a fresh
+ * {@link SessionRepository}, as after the app's process was restarted.
+ */
+public class SessionRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestExecutors executors;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        executors = new TestExecutors();
+        directory = folder.newFolder("sessions");
+    }
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    public void sessionSurvivesARestart() throws Exception {
+        String key = putAndWaitForDisk(new SessionRepository(directory, executors.get()), result("Nick C."));
+
+        LoginResult fromDisk = readBack(new SessionRepository(directory, executors.get()), key);
+        assertNotNull(fromDisk);
+        assertEquals("Nick C.", fromDisk.getName());
+        assertEquals("Starbucks", fromDisk.getTransactions().getMerchant(0));
+        // Only the session file itself, with no temporary files left behind
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void lastUpdateIsWhatEndsUpOnDisk() throws Exception {
+        final SessionRepository sessions = new SessionRepository(directory, executors.get());
+        final AtomicReference<String> key = new AtomicReference<>();
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                key.set(sessions.put(result("First")));
+                for (int i = 0; i < 100; i++) {
+                    sessions.update(key.get(), result("Update " + i));
+                }
+            }
+        });
+
+        // Writes finish in the background, so wait for the file to settle on the last one
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String name = null;
+        while (System.nanoTime() < deadline) {
+            LoginResult fromDisk = readBack(new SessionRepository(directory, executors.get()), key.get());
+            name = fromDisk != null ? fromDisk.getName() : null;
+            if ("Update 99".equals(name)) {
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals("Update 99", name);
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void busyIoThreadsDoNotLoseTheSession() throws Exception {
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        io.shutdown();
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        try {
+            // Every piece of I/O work is turned away
+            AppExecutors busy = new AppExecutors(background, io, ForkJoinPool.commonPool(), mainThread);
+            final SessionRepository sessions = new SessionRepository(directory, busy);
+            final AtomicReference<String> key = new AtomicReference<>();
+            mainThread.submit(new Runnable() {
+                @Override
+                public void run() {
+                    key.set(sessions.put(result("Nick C.")));
+                    sessions.update(key.get(), result("Nick Capurso"));
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            // Still there in memory
+            LoginResult inMemory = readBack(sessions, key.get());
+            assertNotNull(inMemory);
+            assertEquals("Nick Capurso", inMemory.getName());
+        } finally {
+            background.shutdownNow();
+            mainThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void busyIoThreadsStillReadFromDisk() throws Exception {
+        String key = putAndWaitForDisk(new SessionRepository(directory, executors.get()), result("Nick C."));
+
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        io.shutdown();
+        ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        try {
+            AppExecutors busy = new AppExecutors(mainThread, io, ForkJoinPool.commonPool(), mainThread);
+            LoginResult fromDisk = readBack(new SessionRepository(directory, busy), key);
+            assertNotNull(fromDisk);
+            assertEquals("Nick C.", fromDisk.getName());
+        } finally {
+            mainThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Puts {@code result} into {@code sessions} and waits until it has been written to disk.
+     */
+    private String putAndWaitForDisk(final SessionRepository sessions, final LoginResult result) throws Exception {
+        final AtomicReference<String> key = new AtomicReference<>();
+        executors.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                key.set(sessions.put(result));
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!new File(directory, key.get()).isFile() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        return key.get();
+    }
+
+    /**
+     * Looks {@code key} up in {@code sessions} and waits for the answer.
+     */
+    private static LoginResult readBack(SessionRepository sessions, String key) throws Exception {
+        final AtomicReference<LoginResult> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        sessions.get(key, new SessionRepository.Callback() {
+            @Override
+            public void onSessionLoaded(LoginResult loaded) {
+                result.set(loaded);
+                done.countDown();
+            }
+        });
+        done.await(10, TimeUnit.SECONDS);
+        return result.get();
+    }
+
+    private static LoginResult result(String name) {
+        TransactionStore transactions = new TransactionStore();
+        transactions.add("1", "Starbucks", "$1.40");
+        return new LoginResult(name, "7890", transactions, null);
+    }
+}
@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+#
+# Measures cold starts of the login screen on a connected device, and prints percentiles of:
+#   - time to initial display: from launch until the first frame ("Displayed" in Logcat)
+#   - time to full display: from launch until LoginActivity calls reportFullyDrawn(), once the
+#     remembered credentials are filled in ("Fully drawn" in Logcat)
+#
+# Every run force-stops the app first, so each one starts a fresh process. Install the build to
+# measure first (e.g. ./gradlew installDebug), then:
+#
+#   scripts/startup_benchmark.sh [runs]
+#
+# To compare two versions, install and run it against each.
+
+set -euo pipefail
+
+PACKAGE=com.summit.summitproject
+ACTIVITY=.LoginActivity
+RUNS=${1:-20}
+WARM_UP_RUNS=2
+
+initial=()
+full=()
+
+# Turns "+1s234ms" or "+234ms" into milliseconds
+to_millis() {
+    local value=${1#+} seconds=0
+    if [[ $value == *s*ms ]]; then
+        seconds=${value%%s*}
+        value=${value#*s}
+    fi
+    value=${value%ms}
+    echo $((10#$seconds * 1000 + 10#$value))
+}
+
+# Nearest-rank percentile $1 of the remaining arguments
+percentile() {
+    local p=$1
+    shift
+    local sorted
+    sorted=($(printf '%s\n' "$@" | sort -n))
+    local rank=$(( (p * ${#sorted[@]} + 99) / 100 ))
+    ((rank < 1)) && rank=1
+    echo "${sorted[$((rank - 1))]}"
+}
+
+for ((run = -WARM_UP_RUNS; run < RUNS; run++)); do
+    adb shell am force-stop "$PACKAGE"
+    sleep 1
+    adb logcat -c
+    total=$(adb shell am start-activity -W -n "$PACKAGE/$ACTIVITY" | tr -d '\r' | awk '/TotalTime/ {print $2}')
+
+    # reportFullyDrawn() is logged by the system once the form has been filled in
+    drawn=""
+    for _ in $(seq 50); do
+        drawn=$(adb logcat -d -s ActivityTaskManager:I ActivityManager:I | tr -d '\r' \
+            | grep -o "Fully drawn $PACKAGE/$ACTIVITY: +[0-9sm]*" | tail -n 1 | awk '{print $NF}' || true)
+        [[ -n $drawn ]] && break
+        sleep 0.1
+    done
+
+    if ((run >= 0)); then
+        initial+=("$total")
+        if [[ -n $drawn ]]; then
+            full+=("$(to_millis "$drawn")")
+        fi
+    fi
+done
+
+echo "$RUNS cold starts of $PACKAGE/$ACTIVITY"
+printf '%-24s p50 %5sms  p95 %5sms\n' "time to initial display" "$(percentile 50 "${initial[@]}")" "$(percentile 95 "${initial[@]}")"
+if ((${#full[@]} > 0)); then
+    printf '%-24s p50 %5sms  p95 %5sms\n' "time to full display" "$(percentile 50 "${full[@]}")" "$(percentile 95 "${full[@]}")"
+else
+    echo "time to full display: not reported (this build doesn't call reportFullyDrawn())"
+fi